@@ -0,0 +1,134 @@
+/*
+   The PeasyCam Processing library, which provides an easy-peasy
+   camera for 3D sketching.
+  
+   Copyright 2008 Jonathan Feinberg
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package peasy.benchmark;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import peasy.org.apache.commons.math.geometry.Rotation;
+import peasy.org.apache.commons.math.geometry.RotationOrder;
+import peasy.org.apache.commons.math.geometry.Vector3D;
+
+/**
+ * Rotating many points into camera space at once, one {@link Vector3D} at a
+ * time and through each of the bulk layouts.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BatchTransformBenchmark {
+
+	@Param({ "1000", "100000" })
+	public int count;
+
+	private Rotation rotation;
+	private Vector3D[] vectors;
+	private double[] interleaved;
+	private double[] interleavedOut;
+	private float[] interleavedFloat;
+	private float[] interleavedFloatOut;
+	private float[] x, y, z, outX, outY, outZ;
+	private FloatBuffer buffer;
+	private FloatBuffer bufferOut;
+
+	@Setup
+	public void setup() {
+		rotation = new Rotation(RotationOrder.XYZ, 0.3, 0.5, -0.7);
+		final Random random = new Random(42);
+		vectors = new Vector3D[count];
+		interleaved = new double[3 * count];
+		interleavedOut = new double[3 * count];
+		interleavedFloat = new float[3 * count];
+		interleavedFloatOut = new float[3 * count];
+		x = new float[count];
+		y = new float[count];
+		z = new float[count];
+		outX = new float[count];
+		outY = new float[count];
+		outZ = new float[count];
+		buffer = ByteBuffer.allocateDirect(12 * count).order(ByteOrder.nativeOrder())
+				.asFloatBuffer();
+		bufferOut = ByteBuffer.allocateDirect(12 * count).order(ByteOrder.nativeOrder())
+				.asFloatBuffer();
+		for (int i = 0; i < count; i++) {
+			final double px = random.nextDouble() * 1000 - 500;
+			final double py = random.nextDouble() * 1000 - 500;
+			final double pz = random.nextDouble() * 1000 - 500;
+			vectors[i] = new Vector3D(px, py, pz);
+			interleaved[3 * i] = px;
+			interleaved[3 * i + 1] = py;
+			interleaved[3 * i + 2] = pz;
+			interleavedFloat[3 * i] = x[i] = (float)px;
+			interleavedFloat[3 * i + 1] = y[i] = (float)py;
+			interleavedFloat[3 * i + 2] = z[i] = (float)pz;
+			buffer.put(3 * i, x[i]).put(3 * i + 1, y[i]).put(3 * i + 2, z[i]);
+		}
+	}
+
+	@Benchmark
+	public double oneByOne() {
+		double sum = 0;
+		for (int i = 0; i < count; i++) {
+			sum += rotation.applyTo(vectors[i]).getZ();
+		}
+		return sum;
+	}
+
+	@Benchmark
+	public double[] interleavedDouble() {
+		rotation.applyTo(interleaved, 0, interleavedOut, 0, count);
+		return interleavedOut;
+	}
+
+	@Benchmark
+	public float[] interleavedFloat() {
+		rotation.applyTo(interleavedFloat, 0, interleavedFloatOut, 0, count);
+		return interleavedFloatOut;
+	}
+
+	@Benchmark
+	public float[] structOfArrays() {
+		rotation.applyTo(x, y, z, outX, outY, outZ, count);
+		return outZ;
+	}
+
+	@Benchmark
+	public FloatBuffer directBuffer() {
+		rotation.applyTo(buffer, bufferOut, count);
+		return bufferOut;
+	}
+}
@@ -0,0 +1,76 @@
+/*
+   The PeasyCam Processing library, which provides an easy-peasy
+   camera for 3D sketching.
+  
+   Copyright 2008 Jonathan Feinberg
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package peasy.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import peasy.org.apache.commons.math.geometry.CardanEulerSingularityException;
+import peasy.org.apache.commons.math.geometry.Rotation;
+import peasy.org.apache.commons.math.geometry.RotationOrder;
+
+/**
+ * Rotation.getAngles() in each of the twelve Cardan and Euler orders. Kept
+ * apart from RotationBenchmark so that only these run once per order.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EulerAnglesBenchmark {
+
+	@Param({ "XYZ", "XZY", "YXZ", "YZX", "ZXY", "ZYX", "XYX", "XZX", "YXY", "YZY",
+			"ZXZ", "ZYZ" })
+	public String order;
+
+	private RotationOrder rotationOrder;
+	private Rotation rotation;
+	private double[] angles;
+
+	@Setup
+	public void setup() throws Exception {
+		rotationOrder = (RotationOrder)RotationOrder.class.getField(order).get(null);
+		// generic enough to be clear of every Cardan and Euler singularity
+		rotation = new Rotation(RotationOrder.XYZ, 0.3, 0.5, -0.7);
+		angles = new double[3];
+	}
+
+	@Benchmark
+	public double[] getAngles() throws CardanEulerSingularityException {
+		return rotation.getAngles(rotationOrder);
+	}
+
+	@Benchmark
+	public boolean getAnglesInto() {
+		return rotation.getAngles(rotationOrder, angles);
+	}
+}
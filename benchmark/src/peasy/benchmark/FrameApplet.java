@@ -0,0 +1,66 @@
+/*
+   The PeasyCam Processing library, which provides an easy-peasy
+   camera for 3D sketching.
+  
+   Copyright 2008 Jonathan Feinberg
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package peasy.benchmark;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+
+import processing.core.PApplet;
+
+/**
+ * A PApplet that is never run. It remembers every object registered for
+ * "pre", so a benchmark can drive frames the way PApplet.handleDraw() does.
+ */
+public class FrameApplet extends PApplet {
+	private final List<Object> preListeners = new ArrayList<Object>();
+	private final List<Method> preMethods = new ArrayList<Method>();
+
+	public FrameApplet(final int width, final int height) {
+		this.width = width;
+		this.height = height;
+	}
+
+	@Override
+	public void registerMethod(final String methodName, final Object target) {
+		super.registerMethod(methodName, target);
+		if ("pre".equals(methodName)) {
+			try {
+				preMethods.add(target.getClass().getMethod("pre"));
+			} catch (final NoSuchMethodException e) {
+				throw new IllegalArgumentException(e);
+			}
+			preListeners.add(target);
+		}
+	}
+
+	/**
+	 * Run one frame's worth of "pre" dispatch, reflectively and in
+	 * registration order, as Processing does.
+	 */
+	public void pre() {
+		try {
+			for (int i = 0; i < preMethods.size(); i++) {
+				preMethods.get(i).invoke(preListeners.get(i));
+			}
+		} catch (final Exception e) {
+			throw new RuntimeException(e);
+		}
+	}
+}
@@ -0,0 +1,150 @@
+/*
+   The PeasyCam Processing library, which provides an easy-peasy
+   camera for 3D sketching.
+  
+   Copyright 2008 Jonathan Feinberg
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package peasy.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import peasy.CameraTour;
+import peasy.Easing;
+import peasy.InterpolationUtil;
+import peasy.Slerp;
+import peasy.org.apache.commons.math.geometry.MutableRotation;
+import peasy.org.apache.commons.math.geometry.Rotation;
+import peasy.org.apache.commons.math.geometry.RotationOrder;
+import peasy.org.apache.commons.math.geometry.Vector3D;
+
+/**
+ * The per-frame work of the rotation, center and distance interpolations.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class InterpolationBenchmark {
+
+	private Rotation from;
+	private Rotation to;
+	private Vector3D start;
+	private Vector3D end;
+	private double t;
+	private Slerp slerp;
+	private MutableRotation slerped;
+	private CameraTour tour;
+	private double[] tourState;
+	private double tourTime;
+	private Easing elastic;
+	private Easing bakedElastic;
+
+	@Setup
+	public void setup() {
+		from = new Rotation(RotationOrder.XYZ, 0.3, 0.5, -0.7);
+		to = new Rotation(RotationOrder.XYZ, -1.1, 0.2, 0.4);
+		start = new Vector3D(0, 0, 0);
+		end = new Vector3D(100, -50, 25);
+		slerp = new Slerp(from, to);
+		slerped = new MutableRotation();
+		// a tour through 1000 keyframes, a second apart
+		final double[] keyframes = new double[8 * 1000];
+		final double[] times = new double[1000];
+		for (int i = 0; i < 1000; i++) {
+			final Rotation r = new Rotation(RotationOrder.XYZ, 0.3 * Math.sin(i), 0.1 * i,
+					0.2 * Math.cos(i));
+			keyframes[8 * i] = r.getQ0();
+			keyframes[8 * i + 1] = r.getQ1();
+			keyframes[8 * i + 2] = r.getQ2();
+			keyframes[8 * i + 3] = r.getQ3();
+			keyframes[8 * i + 4] = 100 * Math.cos(0.1 * i);
+			keyframes[8 * i + 5] = 100 * Math.sin(0.1 * i);
+			keyframes[8 * i + 6] = i;
+			keyframes[8 * i + 7] = 300 + 50 * Math.sin(0.05 * i);
+			times[i] = 1000 * i;
+		}
+		tour = new CameraTour(keyframes, times);
+		tourState = new double[8];
+		elastic = Easing.ELASTIC_IN_OUT;
+		bakedElastic = elastic.bake(256);
+	}
+
+	/**
+	 * Walk t through (0, 1) so that the JIT cannot fold the interpolation
+	 * parameter into a constant.
+	 */
+	private double nextT() {
+		t += 0.0137;
+		if (t >= 1) {
+			t -= 1;
+		}
+		return t;
+	}
+
+	@Benchmark
+	public Rotation slerp() {
+		return InterpolationUtil.slerp(from, to, nextT());
+	}
+
+	@Benchmark
+	public MutableRotation precomputedSlerp() {
+		return slerp.interpolate(nextT(), slerped);
+	}
+
+	/**
+	 * A frame of a tour played forwards at 60 frames a second.
+	 */
+	@Benchmark
+	public double[] tourFrame() {
+		tourTime += 1000 / 60.0;
+		if (tourTime > tour.getEndMillis()) {
+			tourTime = 0;
+		}
+		return tour.getState(tourTime, tourState);
+	}
+
+	@Benchmark
+	public double smoothScalar() {
+		return InterpolationUtil.smooth(10.0, 500.0, nextT());
+	}
+
+	@Benchmark
+	public Vector3D smoothVector() {
+		return InterpolationUtil.smooth(start, end, nextT());
+	}
+
+	@Benchmark
+	public double elastic() {
+		return elastic.ease(nextT());
+	}
+
+	@Benchmark
+	public double bakedElastic() {
+		return bakedElastic.ease(nextT());
+	}
+}
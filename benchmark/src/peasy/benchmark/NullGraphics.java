@@ -0,0 +1,37 @@
+/*
+   The PeasyCam Processing library, which provides an easy-peasy
+   camera for 3D sketching.
+  
+   Copyright 2008 Jonathan Feinberg
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package peasy.benchmark;
+
+import processing.core.PGraphics;
+
+/**
+ * A PGraphics that accepts camera() calls and does nothing else, so that the
+ * camera benchmarks measure PeasyCam rather than a renderer.
+ */
+public class NullGraphics extends PGraphics {
+	/** Running sum of everything passed to camera(), to defeat dead-code elimination. */
+	public float sink;
+
+	@Override
+	public void camera(final float eyeX, final float eyeY, final float eyeZ,
+			final float centerX, final float centerY, final float centerZ, final float upX,
+			final float upY, final float upZ) {
+		sink += eyeX + eyeY + eyeZ + centerX + centerY + centerZ + upX + upY + upZ;
+	}
+}
@@ -0,0 +1,122 @@
+/*
+   The PeasyCam Processing library, which provides an easy-peasy
+   camera for 3D sketching.
+  
+   Copyright 2008 Jonathan Feinberg
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package peasy.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import peasy.CameraEngine;
+import peasy.ManualClock;
+import peasy.PeasyCam;
+import peasy.PeasyDragHandler;
+
+/**
+ * Whole-camera benchmarks against a {@link NullGraphics}: pushing the camera to
+ * the PGraphics, a frame of a simulated left-drag rotation, and a frame of a
+ * high-rate mouse's burst of drag events, each in double and in single
+ * precision. The frames run on a {@link ManualClock} advanced by 1/60 s each,
+ * so the damped velocities see the same frame time however fast the
+ * benchmark runs.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PeasyCamBenchmark {
+	private static final double FRAME_MILLIS = 1000.0 / 60;
+
+	@Param({ "false", "true" })
+	public boolean singlePrecision;
+
+	private FrameApplet applet;
+	private NullGraphics graphics;
+	private PeasyCam cam;
+	private PeasyDragHandler rotate;
+	private ManualClock clock;
+	private int frame;
+
+	@Setup
+	public void setup() {
+		applet = new FrameApplet(800, 600);
+		graphics = new NullGraphics();
+		cam = new PeasyCam(applet, graphics, 500);
+		clock = new ManualClock();
+		cam.setClock(clock);
+		cam.setSinglePrecision(singlePrecision);
+		cam.rotateX(0.4);
+		cam.rotateY(-0.3);
+		rotate = cam.getRotateDragHandler();
+	}
+
+	@Benchmark
+	public float feed() {
+		cam.feed();
+		return graphics.sink;
+	}
+
+	/**
+	 * One frame of a steady drag: the mouse wanders around the window while
+	 * the rotate handler gets a drag event, then the frame's "pre" hook steps
+	 * the damped rotations and feeds the camera.
+	 */
+	@Benchmark
+	public float dragFrame() {
+		frame++;
+		applet.pmouseX = applet.mouseX;
+		applet.pmouseY = applet.mouseY;
+		applet.mouseX = 100 + (frame * 7) % 600;
+		applet.mouseY = 100 + (frame * 3) % 400;
+		rotate.handleDrag(3 + (frame & 3), 2 - (frame & 1));
+		clock.advance(FRAME_MILLIS);
+		applet.pre();
+		return graphics.sink;
+	}
+
+	/**
+	 * One frame of a 1000 Hz mouse at 60 frames a second: 16 drag events, then
+	 * the "pre" hook.
+	 */
+	@Benchmark
+	public float dragBurstFrame() {
+		final CameraEngine engine = cam.getEngine();
+		for (int i = 0; i < 16; i++) {
+			frame++;
+			applet.mouseX = 100 + (frame * 7) % 600;
+			applet.mouseY = 100 + (frame * 3) % 400;
+			engine.mouseDragged(CameraEngine.Button.LEFT, 1 + (frame & 1), -(frame & 1),
+					false, false);
+		}
+		clock.advance(FRAME_MILLIS);
+		applet.pre();
+		return graphics.sink;
+	}
+}
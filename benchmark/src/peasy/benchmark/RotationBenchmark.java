@@ -0,0 +1,108 @@
+/*
+   The PeasyCam Processing library, which provides an easy-peasy
+   camera for 3D sketching.
+  
+   Copyright 2008 Jonathan Feinberg
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package peasy.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import peasy.org.apache.commons.math.geometry.MutableRotation;
+import peasy.org.apache.commons.math.geometry.Rotation;
+import peasy.org.apache.commons.math.geometry.RotationOrder;
+import peasy.org.apache.commons.math.geometry.Vector3D;
+
+/**
+ * Rotation and Vector3D primitives, as used by the camera on every frame.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RotationBenchmark {
+
+	private Rotation rotation;
+	private Rotation other;
+	private Vector3D vector;
+	private double[] matrix;
+	private MutableRotation spinning;
+
+	@Setup
+	public void setup() {
+		rotation = new Rotation(RotationOrder.XYZ, 0.3, 0.5, -0.7);
+		other = new Rotation(new Vector3D(1, 2, 3), 0.01);
+		vector = new Vector3D(10, -20, 30);
+		matrix = new double[9];
+		spinning = new MutableRotation(rotation);
+	}
+
+	@Benchmark
+	public Vector3D applyToVector() {
+		return rotation.applyTo(vector);
+	}
+
+	@Benchmark
+	public Vector3D applyInverseToVector() {
+		return rotation.applyInverseTo(vector);
+	}
+
+	@Benchmark
+	public double[][] getMatrix() {
+		return rotation.getMatrix();
+	}
+
+	@Benchmark
+	public double[] getMatrixFlat() {
+		return rotation.getMatrix(matrix);
+	}
+
+	@Benchmark
+	public Rotation applyToRotation() {
+		return rotation.applyTo(other);
+	}
+
+	@Benchmark
+	public Rotation axisAngle() {
+		return new Rotation(Vector3D.plusI, 0.01);
+	}
+
+	/**
+	 * One frame's step of an inertial spin, as the damped rotations took it
+	 * before composeAroundX().
+	 */
+	@Benchmark
+	public MutableRotation composeAxisAngle() {
+		return spinning.composeAxisAngle(Vector3D.plusI, 0.01);
+	}
+
+	@Benchmark
+	public MutableRotation composeAroundX() {
+		return spinning.composeAroundX(0.01);
+	}
+}
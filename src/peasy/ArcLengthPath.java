@@ -0,0 +1,172 @@
+/*
+   The PeasyCam Processing library, which provides an easy-peasy
+   camera for 3D sketching.
+  
+   Copyright 2008 Jonathan Feinberg
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package peasy;
+
+/**
+ * A {@link CameraTour} re-timed so that the camera moves at a constant speed,
+ * instead of reaching its keyframes at fixed times.
+ * 
+ * <pre>
+ * path = new ArcLengthPath(keyframes, 32);
+ * ...
+ * void draw() {
+ *   path.apply(speed * (millis() - start), cam);
+ *   ...
+ * }
+ * </pre>
+ * 
+ * <p>
+ * Speed combines how far the look-at point moves, how much the distance
+ * changes, and how far the eye swings as the camera turns (the angle turned
+ * times the distance, times an optional weight), so a pure orbit and a pure
+ * dolly of the same size take the same time. The constructor samples the tour
+ * and tabulates the length travelled at each sample, in primitive arrays;
+ * evaluating looks the length up in that table and does not allocate. Not
+ * thread-safe.
+ */
+public class ArcLengthPath {
+	private final CameraTour tour;
+	private final int sampleCount;
+	private final double[] times;
+	private final double[] lengths;
+	private int lastSample = 0;
+	private final double[] state = new double[8];
+
+	/**
+	 * A path through keyframes, at constant speed.
+	 * 
+	 * @param samplesPerKeyframe
+	 *            how finely to measure each stretch between keyframes
+	 */
+	public ArcLengthPath(final CameraState[] keyframes, final int samplesPerKeyframe) {
+		this(new CameraTour(keyframes, evenTimes(keyframes.length)), Math.max(1,
+				keyframes.length - 1)
+				* samplesPerKeyframe, 1);
+	}
+
+	/**
+	 * @param samples
+	 *            how many stretches to measure the whole tour in
+	 * @param angularWeight
+	 *            how much turning counts against moving; 1 counts a turn by
+	 *            how far it swings the eye
+	 */
+	public ArcLengthPath(final CameraTour tour, final int samples,
+			final double angularWeight) {
+		if (samples < 1) {
+			throw new IllegalArgumentException("need at least one sample");
+		}
+		this.tour = tour;
+		sampleCount = samples;
+		times = new double[samples + 1];
+		lengths = new double[samples + 1];
+
+		final double start = tour.getStartMillis(), end = tour.getEndMillis();
+		final double[] a = new double[8], b = new double[8];
+		tour.getState(start, a);
+		times[0] = start;
+		for (int i = 1; i <= samples; i++) {
+			times[i] = start + (end - start) * i / samples;
+			tour.getState(times[i], b);
+			lengths[i] = lengths[i - 1] + step(a, b, angularWeight);
+			System.arraycopy(b, 0, a, 0, 8);
+		}
+	}
+
+	private static double[] evenTimes(final int count) {
+		final double[] times = new double[count];
+		for (int i = 0; i < count; i++) {
+			times[i] = i;
+		}
+		return times;
+	}
+
+	private static double step(final double[] a, final double[] b,
+			final double angularWeight) {
+		final double dx = b[4] - a[4], dy = b[5] - a[5], dz = b[6] - a[6];
+		final double dd = b[7] - a[7];
+		final double dot = Math.abs(a[0] * b[0] + a[1] * b[1] + a[2] * b[2] + a[3] * b[3]);
+		final double angle = 2 * Math.acos(Math.min(1, dot));
+		final double swing = angularWeight * angle * (a[7] + b[7]) / 2;
+		return Math.sqrt(dx * dx + dy * dy + dz * dz + dd * dd + swing * swing);
+	}
+
+	public CameraTour getTour() {
+		return tour;
+	}
+
+	/**
+	 * @return the length of the whole path
+	 */
+	public double getLength() {
+		return lengths[sampleCount];
+	}
+
+	/**
+	 * @return the tour time at which the camera has travelled arcLength
+	 */
+	public double getTime(final double arcLength) {
+		final double s = Math.max(0, Math.min(arcLength, lengths[sampleCount]));
+		final int i = sample(s);
+		final double span = lengths[i + 1] - lengths[i];
+		final double f = span > 0 ? (s - lengths[i]) / span : 0;
+		return times[i] + f * (times[i + 1] - times[i]);
+	}
+
+	// the sample interval containing s, starting from the last one found
+	private int sample(final double s) {
+		int i = lastSample;
+		if (s >= lengths[i] && s <= lengths[i + 1]) {
+			return i;
+		}
+		if (i + 2 <= sampleCount && s >= lengths[i + 1] && s <= lengths[i + 2]) {
+			return lastSample = i + 1;
+		}
+		int lo = 0, hi = sampleCount - 1;
+		while (lo < hi) {
+			final int mid = (lo + hi + 1) >>> 1;
+			if (lengths[mid] <= s) {
+				lo = mid;
+			} else {
+				hi = mid - 1;
+			}
+		}
+		return lastSample = lo;
+	}
+
+	/**
+	 * Compute the camera once it has travelled arcLength along the path.
+	 * 
+	 * @param out
+	 *            receives the state, laid out as by
+	 *            {@link CameraEngine#getState(double[])}
+	 * @return out
+	 */
+	public double[] getState(final double arcLength, final double[] out) {
+		return tour.getState(getTime(arcLength), out);
+	}
+
+	public void apply(final double arcLength, final PeasyCam cam) {
+		apply(arcLength, cam.getEngine());
+	}
+
+	public void apply(final double arcLength, final CameraEngine engine) {
+		engine.setState(getState(arcLength, state));
+	}
+}
@@ -0,0 +1,487 @@
+/*
+   The PeasyCam Processing library, which provides an easy-peasy
+   camera for 3D sketching.
+  
+   Copyright 2008 Jonathan Feinberg
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package peasy;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * A bounding volume hierarchy over the axis-aligned bounds of a fixed number of
+ * objects, for culling against a {@link Frustum} and picking with a ray
+ * without testing every object.
+ * 
+ * <pre>
+ * bvh = new BoundingVolumeHierarchy(count);
+ * for (int i = 0; i &lt; count; i++) {
+ *   bvh.setSphere(i, x[i], y[i], z[i], radius[i]);
+ * }
+ * bvh.build();
+ * ...
+ * // every frame
+ * bvh.cull(cam.getFrustum(frustum), visible);
+ * </pre>
+ * 
+ * <p>
+ * Everything is stored in primitive arrays. {@link #build()} sorts the objects
+ * into a tree by median split, forking large subtrees onto the common
+ * ForkJoinPool. When objects move, update their bounds and call
+ * {@link #refit()}, which recomputes only the nodes above the objects that
+ * changed; the tree's shape is kept, so rebuild when objects have moved far.
+ * 
+ * <p>
+ * Queries are not thread-safe; they share scratch space.
+ */
+public class BoundingVolumeHierarchy {
+	private static final int LEAF_SIZE = 4;
+	private static final int PARALLEL_THRESHOLD = 8192;
+	private static final int STACK_DEPTH = 64;
+
+	private final int count;
+
+	// object bounds
+	private final float[] minX, minY, minZ, maxX, maxY, maxZ;
+
+	// nodes, in depth-first order: a node's left child follows it directly, so
+	// every child has a higher index than its parent
+	private final int nodeCount;
+	private final float[] nodeMinX, nodeMinY, nodeMinZ, nodeMaxX, nodeMaxY, nodeMaxZ;
+	private final int[] nodeRight; // index of the right child, or -1 for a leaf
+	private final int[] nodeParent;
+	private final int[] nodeStart, nodeSize; // the node's range in order
+	private final boolean[] nodeDirty;
+	// the dirty nodes, in no particular order
+	private final int[] dirtyNodes;
+	private int dirtyCount = 0;
+
+	private final int[] order; // object indices, grouped by leaf
+	private final int[] objectLeaf;
+
+	private boolean built = false;
+
+	private final int[] stack = new int[STACK_DEPTH];
+
+	public BoundingVolumeHierarchy(final int count) {
+		this.count = count;
+		minX = new float[count];
+		minY = new float[count];
+		minZ = new float[count];
+		maxX = new float[count];
+		maxY = new float[count];
+		maxZ = new float[count];
+		order = new int[count];
+		objectLeaf = new int[count];
+
+		nodeCount = count == 0 ? 0 : nodeCount(count);
+		nodeMinX = new float[nodeCount];
+		nodeMinY = new float[nodeCount];
+		nodeMinZ = new float[nodeCount];
+		nodeMaxX = new float[nodeCount];
+		nodeMaxY = new float[nodeCount];
+		nodeMaxZ = new float[nodeCount];
+		nodeRight = new int[nodeCount];
+		nodeParent = new int[nodeCount];
+		nodeStart = new int[nodeCount];
+		nodeSize = new int[nodeCount];
+		nodeDirty = new boolean[nodeCount];
+		dirtyNodes = new int[nodeCount];
+	}
+
+	public int getCount() {
+		return count;
+	}
+
+	public void setBounds(final int object, final float minX, final float minY,
+			final float minZ, final float maxX, final float maxY, final float maxZ) {
+		this.minX[object] = minX;
+		this.minY[object] = minY;
+		this.minZ[object] = minZ;
+		this.maxX[object] = maxX;
+		this.maxY[object] = maxY;
+		this.maxZ[object] = maxZ;
+		if (built) {
+			final int leaf = objectLeaf[object];
+			if (!nodeDirty[leaf]) {
+				nodeDirty[leaf] = true;
+				dirtyNodes[dirtyCount++] = leaf;
+			}
+		}
+	}
+
+	public void setSphere(final int object, final float x, final float y, final float z,
+			final float radius) {
+		setBounds(object, x - radius, y - radius, z - radius, x + radius, y + radius, z
+				+ radius);
+	}
+
+	/**
+	 * Build the tree from the current bounds.
+	 */
+	public void build() {
+		for (int i = 0; i < count; i++) {
+			order[i] = i;
+		}
+		if (count > 0) {
+			new BuildTask(0, -1, 0, count).invoke();
+		}
+		Arrays.fill(nodeDirty, false);
+		dirtyCount = 0;
+		built = true;
+	}
+
+	/**
+	 * Recompute the bounds of the nodes above every object whose bounds changed
+	 * since the last build or refit. Only those nodes are visited, so the cost
+	 * grows with the number of changed leaves times the depth of the tree, not
+	 * with its size.
+	 */
+	public void refit() {
+		checkBuilt();
+		// so far only leaves are dirty; add their ancestors, stopping where
+		// another leaf's path has already been added
+		final int leaves = dirtyCount;
+		for (int i = 0; i < leaves; i++) {
+			int node = nodeParent[dirtyNodes[i]];
+			while (node >= 0 && !nodeDirty[node]) {
+				nodeDirty[node] = true;
+				dirtyNodes[dirtyCount++] = node;
+				node = nodeParent[node];
+			}
+		}
+		// children have higher indices than their parents
+		Arrays.sort(dirtyNodes, 0, dirtyCount);
+		for (int i = dirtyCount - 1; i >= 0; i--) {
+			final int node = dirtyNodes[i];
+			nodeDirty[node] = false;
+			computeBounds(node);
+		}
+		dirtyCount = 0;
+	}
+
+	/**
+	 * Find the objects whose bounds may be visible.
+	 * 
+	 * @param visible
+	 *            on return, bit i is set if and only if object i may be visible
+	 * @return the number of objects that may be visible
+	 */
+	public int cull(final Frustum frustum, final BitSet visible) {
+		checkBuilt();
+		visible.clear(0, count);
+		if (nodeCount == 0) {
+			return 0;
+		}
+		int visibleCount = 0;
+		int top = 0;
+		stack[top++] = 0;
+		while (top > 0) {
+			final int node = stack[--top];
+			final int test = frustum.classifyBox(nodeMinX[node], nodeMinY[node],
+					nodeMinZ[node], nodeMaxX[node], nodeMaxY[node], nodeMaxZ[node]);
+			if (test == Frustum.OUTSIDE) {
+				continue;
+			}
+			final int start = nodeStart[node], end = start + nodeSize[node];
+			if (test == Frustum.INSIDE) {
+				for (int i = start; i < end; i++) {
+					visible.set(order[i]);
+				}
+				visibleCount += end - start;
+			} else if (nodeRight[node] < 0) {
+				for (int i = start; i < end; i++) {
+					final int o = order[i];
+					if (frustum.intersectsBox(minX[o], minY[o], minZ[o], maxX[o], maxY[o],
+							maxZ[o])) {
+						visible.set(o);
+						visibleCount++;
+					}
+				}
+			} else {
+				stack[top++] = nodeRight[node];
+				stack[top++] = node + 1;
+			}
+		}
+		return visibleCount;
+	}
+
+	/**
+	 * Find the nearest object whose bounds are hit by a ray.
+	 * 
+	 * @param ray
+	 *            originX, originY, originZ, directionX, directionY, directionZ
+	 * @return the object's index, or -1 if the ray hits nothing
+	 */
+	public int pick(final float[] ray) {
+		return pick(ray, null);
+	}
+
+	/**
+	 * Find the nearest object whose bounds are hit by a ray.
+	 * 
+	 * @param ray
+	 *            originX, originY, originZ, directionX, directionY, directionZ
+	 * @param distance
+	 *            if not null, distance[0] receives the ray parameter t at which
+	 *            the object's bounds are entered (origin + t * direction)
+	 * @return the object's index, or -1 if the ray hits nothing
+	 */
+	public int pick(final float[] ray, final float[] distance) {
+		checkBuilt();
+		if (nodeCount == 0) {
+			return -1;
+		}
+		final float ox = ray[0], oy = ray[1], oz = ray[2];
+		final float ix = 1 / ray[3], iy = 1 / ray[4], iz = 1 / ray[5];
+
+		int hit = -1;
+		float nearest = Float.POSITIVE_INFINITY;
+		int top = 0;
+		stack[top++] = 0;
+		while (top > 0) {
+			final int node = stack[--top];
+			if (slab(ox, oy, oz, ix, iy, iz, nodeMinX[node], nodeMinY[node],
+					nodeMinZ[node], nodeMaxX[node], nodeMaxY[node], nodeMaxZ[node]) >= nearest) {
+				continue;
+			}
+			if (nodeRight[node] < 0) {
+				final int start = nodeStart[node], end = start + nodeSize[node];
+				for (int i = start; i < end; i++) {
+					final int o = order[i];
+					final float t = slab(ox, oy, oz, ix, iy, iz, minX[o], minY[o], minZ[o],
+							maxX[o], maxY[o], maxZ[o]);
+					if (t < nearest) {
+						nearest = t;
+						hit = o;
+					}
+				}
+			} else {
+				stack[top++] = nodeRight[node];
+				stack[top++] = node + 1;
+			}
+		}
+		if (distance != null && hit >= 0) {
+			distance[0] = nearest;
+		}
+		return hit;
+	}
+
+	/**
+	 * @return where the ray enters the box, or +infinity if it misses
+	 */
+	private static float slab(final float ox, final float oy, final float oz,
+			final float ix, final float iy, final float iz, final float minX,
+			final float minY, final float minZ, final float maxX, final float maxY,
+			final float maxZ) {
+		float t0 = (minX - ox) * ix, t1 = (maxX - ox) * ix;
+		float near = Math.min(t0, t1), far = Math.max(t0, t1);
+		t0 = (minY - oy) * iy;
+		t1 = (maxY - oy) * iy;
+		near = Math.max(near, Math.min(t0, t1));
+		far = Math.min(far, Math.max(t0, t1));
+		t0 = (minZ - oz) * iz;
+		t1 = (maxZ - oz) * iz;
+		near = Math.max(near, Math.min(t0, t1));
+		far = Math.min(far, Math.max(t0, t1));
+		if (far < Math.max(near, 0)) {
+			return Float.POSITIVE_INFINITY;
+		}
+		return Math.max(near, 0);
+	}
+
+	private void checkBuilt() {
+		if (!built) {
+			throw new IllegalStateException("call build() before querying the hierarchy");
+		}
+	}
+
+	private void computeBounds(final int node) {
+		float x0 = Float.POSITIVE_INFINITY, y0 = x0, z0 = x0;
+		float x1 = Float.NEGATIVE_INFINITY, y1 = x1, z1 = x1;
+		final int right = nodeRight[node];
+		if (right < 0) {
+			final int start = nodeStart[node], end = start + nodeSize[node];
+			for (int i = start; i < end; i++) {
+				final int o = order[i];
+				x0 = Math.min(x0, minX[o]);
+				y0 = Math.min(y0, minY[o]);
+				z0 = Math.min(z0, minZ[o]);
+				x1 = Math.max(x1, maxX[o]);
+				y1 = Math.max(y1, maxY[o]);
+				z1 = Math.max(z1, maxZ[o]);
+			}
+		} else {
+			final int left = node + 1;
+			x0 = Math.min(nodeMinX[left], nodeMinX[right]);
+			y0 = Math.min(nodeMinY[left], nodeMinY[right]);
+			z0 = Math.min(nodeMinZ[left], nodeMinZ[right]);
+			x1 = Math.max(nodeMaxX[left], nodeMaxX[right]);
+			y1 = Math.max(nodeMaxY[left], nodeMaxY[right]);
+			z1 = Math.max(nodeMaxZ[left], nodeMaxZ[right]);
+		}
+		nodeMinX[node] = x0;
+		nodeMinY[node] = y0;
+		nodeMinZ[node] = z0;
+		nodeMaxX[node] = x1;
+		nodeMaxY[node] = y1;
+		nodeMaxZ[node] = z1;
+	}
+
+	/**
+	 * The number of nodes in a tree over count objects. Since the tree always
+	 * splits at the median, this depends on count alone, which is what lets
+	 * subtrees be built in parallel into preassigned slots.
+	 */
+	static int nodeCount(final int count) {
+		return (int)(nodeCounts(count) >>> 32);
+	}
+
+	/**
+	 * nodeCount(m) in the high word and nodeCount(m + 1) in the low word. The
+	 * halves of m and of m + 1 are all either m / 2 or m / 2 + 1, so one
+	 * recursion per level is enough.
+	 */
+	private static long nodeCounts(final int m) {
+		if (m + 1 <= LEAF_SIZE) {
+			return (1L << 32) | 1L;
+		}
+		final long half = nodeCounts(m / 2);
+		final long a = half >>> 32, b = half & 0xffffffffL;
+		final long fm, fm1;
+		if (m % 2 == 0) {
+			fm = m <= LEAF_SIZE ? 1 : 1 + 2 * a;
+			fm1 = 1 + a + b;
+		} else {
+			fm = m <= LEAF_SIZE ? 1 : 1 + a + b;
+			fm1 = 1 + 2 * b;
+		}
+		return (fm << 32) | fm1;
+	}
+
+	private class BuildTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+		private final int node, parent, start, end;
+
+		BuildTask(final int node, final int parent, final int start, final int end) {
+			this.node = node;
+			this.parent = parent;
+			this.start = start;
+			this.end = end;
+		}
+
+		@Override
+		protected void compute() {
+			build(node, parent, start, end);
+		}
+
+		private void build(final int node, final int parent, final int start,
+				final int end) {
+			nodeParent[node] = parent;
+			nodeStart[node] = start;
+			nodeSize[node] = end - start;
+			if (end - start <= LEAF_SIZE) {
+				nodeRight[node] = -1;
+				for (int i = start; i < end; i++) {
+					objectLeaf[order[i]] = node;
+				}
+				computeBounds(node);
+				return;
+			}
+
+			// split at the median centroid along the widest axis of the centroids
+			float x0 = Float.POSITIVE_INFINITY, y0 = x0, z0 = x0;
+			float x1 = Float.NEGATIVE_INFINITY, y1 = x1, z1 = x1;
+			for (int i = start; i < end; i++) {
+				final int o = order[i];
+				final float cx = minX[o] + maxX[o], cy = minY[o] + maxY[o], cz = minZ[o]
+						+ maxZ[o];
+				x0 = Math.min(x0, cx);
+				y0 = Math.min(y0, cy);
+				z0 = Math.min(z0, cz);
+				x1 = Math.max(x1, cx);
+				y1 = Math.max(y1, cy);
+				z1 = Math.max(z1, cz);
+			}
+			final float dx = x1 - x0, dy = y1 - y0, dz = z1 - z0;
+			final float[] lo, hi;
+			if (dx >= dy && dx >= dz) {
+				lo = minX;
+				hi = maxX;
+			} else if (dy >= dz) {
+				lo = minY;
+				hi = maxY;
+			} else {
+				lo = minZ;
+				hi = maxZ;
+			}
+			final int mid = start + (end - start) / 2;
+			select(lo, hi, start, end - 1, mid);
+
+			final int left = node + 1;
+			final int right = left + nodeCount(mid - start);
+			nodeRight[node] = right;
+			if (end - start > PARALLEL_THRESHOLD) {
+				invokeAll(new BuildTask(left, node, start, mid), new BuildTask(right, node,
+						mid, end));
+			} else {
+				build(left, node, start, mid);
+				build(right, node, mid, end);
+			}
+			computeBounds(node);
+		}
+
+		/**
+		 * Partially sort order[from..to] by centroid so that the k-th object is
+		 * in its sorted place, with no greater one before it and no smaller one
+		 * after it.
+		 */
+		private void select(final float[] lo, final float[] hi, int from, int to,
+				final int k) {
+			while (to > from) {
+				final float pivot = centroid(lo, hi, order[(from + to) >>> 1]);
+				int i = from, j = to;
+				while (i <= j) {
+					while (centroid(lo, hi, order[i]) < pivot) {
+						i++;
+					}
+					while (centroid(lo, hi, order[j]) > pivot) {
+						j--;
+					}
+					if (i <= j) {
+						final int t = order[i];
+						order[i] = order[j];
+						order[j] = t;
+						i++;
+						j--;
+					}
+				}
+				if (k <= j) {
+					to = j;
+				} else if (k >= i) {
+					from = i;
+				} else {
+					return;
+				}
+			}
+		}
+
+		private float centroid(final float[] lo, final float[] hi, final int o) {
+			return lo[o] + hi[o];
+		}
+	}
+}
@@ -0,0 +1,193 @@
+/*
+   The PeasyCam Processing library, which provides an easy-peasy
+   camera for 3D sketching.
+  
+   Copyright 2008 Jonathan Feinberg
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package peasy;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Camera commands that any thread may issue, applied on the animation thread
+ * at the start of the next frame.
+ * 
+ * <pre>
+ * // on a network thread
+ * cam.getCommandQueue().pan(dx, dy);
+ * cam.getCommandQueue().lookAt(x, y, z, 500);
+ * </pre>
+ * 
+ * <p>
+ * No method blocks, and nothing issued is lost or reordered: every command
+ * goes through one lock-free queue. On the animation thread, each run of
+ * relative commands (pan and rotate) between two other commands is summed
+ * before it reaches the camera, so a burst of them costs one update per frame
+ * however many there were. Rotations about different axes within a run are
+ * summed per axis and applied X, then Y, then Z.
+ * 
+ * @see CameraEngine#getCommandQueue()
+ */
+public class CameraCommandQueue {
+	abstract static class Command {
+		abstract void apply(CameraEngine engine);
+	}
+
+	/**
+	 * A relative movement, summed with its neighbours by {@link #drain}.
+	 */
+	static final class Movement extends Command {
+		final double panX, panY, rotateX, rotateY, rotateZ;
+
+		Movement(final double panX, final double panY, final double rotateX,
+				final double rotateY, final double rotateZ) {
+			this.panX = panX;
+			this.panY = panY;
+			this.rotateX = rotateX;
+			this.rotateY = rotateY;
+			this.rotateZ = rotateZ;
+		}
+
+		@Override
+		void apply(final CameraEngine engine) {
+			move(engine, panX, panY, rotateX, rotateY, rotateZ);
+		}
+	}
+
+	private final ConcurrentLinkedQueue<Command> queue = new ConcurrentLinkedQueue<Command>();
+
+	/**
+	 * Marks where the commands issued before a {@link #drain} end. Only the
+	 * animation thread enqueues it, and it always polls it back out.
+	 */
+	private final Command end = new Command() {
+		@Override
+		void apply(final CameraEngine engine) {
+		}
+	};
+
+	public void pan(final double dx, final double dy) {
+		queue.offer(new Movement(dx, dy, 0, 0, 0));
+	}
+
+	public void rotateX(final double angle) {
+		queue.offer(new Movement(0, 0, angle, 0, 0));
+	}
+
+	public void rotateY(final double angle) {
+		queue.offer(new Movement(0, 0, 0, angle, 0));
+	}
+
+	public void rotateZ(final double angle) {
+		queue.offer(new Movement(0, 0, 0, 0, angle));
+	}
+
+	public void lookAt(final double x, final double y, final double z,
+			final long animationTimeMillis) {
+		post(new Command() {
+			@Override
+			void apply(final CameraEngine engine) {
+				engine.lookAt(x, y, z, animationTimeMillis);
+			}
+		});
+	}
+
+	public void lookAt(final double x, final double y, final double z,
+			final double distance, final long animationTimeMillis) {
+		post(new Command() {
+			@Override
+			void apply(final CameraEngine engine) {
+				engine.lookAt(x, y, z, distance, animationTimeMillis);
+			}
+		});
+	}
+
+	public void setDistance(final double distance, final long animationTimeMillis) {
+		post(new Command() {
+			@Override
+			void apply(final CameraEngine engine) {
+				engine.setDistance(distance, animationTimeMillis);
+			}
+		});
+	}
+
+	public void setState(final CameraState state, final long animationTimeMillis) {
+		post(new Command() {
+			@Override
+			void apply(final CameraEngine engine) {
+				engine.setState(state, animationTimeMillis);
+			}
+		});
+	}
+
+	public void reset(final long animationTimeMillis) {
+		post(new Command() {
+			@Override
+			void apply(final CameraEngine engine) {
+				engine.reset(animationTimeMillis);
+			}
+		});
+	}
+
+	void post(final Command command) {
+		queue.offer(command);
+	}
+
+	/**
+	 * Apply everything issued before the call. Commands issued while it runs,
+	 * whether by other threads or by the commands themselves, wait for the
+	 * next frame, so a producer that never pauses cannot hold up the frame.
+	 * Called by {@link CameraEngine#step()}.
+	 */
+	void drain(final CameraEngine engine) {
+		if (queue.isEmpty()) {
+			return;
+		}
+		queue.offer(end);
+		double px = 0, py = 0, rx = 0, ry = 0, rz = 0;
+		Command command;
+		while ((command = queue.poll()) != end) {
+			if (command instanceof Movement) {
+				final Movement m = (Movement)command;
+				px += m.panX;
+				py += m.panY;
+				rx += m.rotateX;
+				ry += m.rotateY;
+				rz += m.rotateZ;
+			} else {
+				move(engine, px, py, rx, ry, rz);
+				px = py = rx = ry = rz = 0;
+				command.apply(engine);
+			}
+		}
+		move(engine, px, py, rx, ry, rz);
+	}
+
+	private static void move(final CameraEngine engine, final double px,
+			final double py, final double rx, final double ry, final double rz) {
+		if (px != 0 || py != 0) {
+			engine.pan(px, py);
+		}
+		if (rx != 0) {
+			engine.rotateX(rx);
+		}
+		if (ry != 0) {
+			engine.rotateY(ry);
+		}
+		if (rz != 0) {
+			engine.rotateZ(rz);
+		}
+	}
+}
@@ -0,0 +1,1012 @@
+/*
+   The PeasyCam Processing library, which provides an easy-peasy
+   camera for 3D sketching.
+  
+   Copyright 2008 Jonathan Feinberg
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package peasy;
+
+import peasy.org.apache.commons.math.geometry.FloatRotation;
+import peasy.org.apache.commons.math.geometry.FloatVector3D;
+import peasy.org.apache.commons.math.geometry.MutableRotation;
+import peasy.org.apache.commons.math.geometry.MutableVector3D;
+import peasy.org.apache.commons.math.geometry.Rotation;
+import peasy.org.apache.commons.math.geometry.RotationOrder;
+import peasy.org.apache.commons.math.geometry.Vector3D;
+
+/**
+ * The camera itself, without Processing: rotation, look-at point and distance,
+ * the damped mouse behaviors, and the animated transitions between states.
+ * 
+ * <p>
+ * An engine is driven entirely through its methods. Input arrives as calls to
+ * {@link #mouseDragged}, {@link #mouseWheel} and friends, time comes from the
+ * injected {@link Clock}, and {@link #step()} advances every animation by one
+ * frame. Nothing is drawn; read the result with {@link #getCamera(float[])} or
+ * {@link #getState()}. {@link PeasyCam} is a thin adapter that wires an engine
+ * to a PApplet and a PGraphics.
+ * 
+ * @author Jonathan Feinberg
+ */
+public class CameraEngine {
+	static final Vector3D LOOK = Vector3D.plusK;
+	static final Vector3D UP = Vector3D.plusJ;
+	private static final double SMALLEST_MINIMUM_DISTANCE = 0.01;
+
+	private static enum Constraint {
+		YAW, PITCH, ROLL, SUPPRESS_ROLL
+	}
+
+	public static enum Button {
+		LEFT, CENTER, RIGHT
+	}
+
+	private Clock clock;
+	private final InputSource input;
+
+	private final double startDistance;
+	private final Vector3D startCenter;
+
+	private double minimumDistance = 1;
+	private double maximumDistance = Double.MAX_VALUE;
+
+	private final DampedAction rotateX, rotateY, rotateZ, dampedZoom, dampedPanX,
+			dampedPanY;
+
+	private double distance;
+	private final MutableVector3D center;
+	private final MutableRotation rotation = new MutableRotation();
+
+	// scratch space for the per-frame math, so that it doesn't allocate
+	private final MutableVector3D pos = new MutableVector3D();
+	private final MutableVector3D rup = new MutableVector3D();
+	private final MutableVector3D panDelta = new MutableVector3D();
+
+	// with single precision on, the camera lives in these instead; the fields
+	// above are brought up to date only for code that needs them in double
+	private boolean singlePrecision = false;
+	private float fdistance;
+	private final FloatVector3D fcenter = new FloatVector3D();
+	private final FloatRotation frotation = new FloatRotation();
+	private final FloatVector3D fpos = new FloatVector3D();
+	private final FloatVector3D frup = new FloatVector3D();
+	private final FloatVector3D fpanDelta = new FloatVector3D();
+
+	private Constraint dragConstraint = null;
+	private Constraint permaConstraint = null;
+
+	private final InterpolationManager rotationInterps = new InterpolationManager();
+	private final InterpolationManager centerInterps = new InterpolationManager();
+	private final InterpolationManager distanceInterps = new InterpolationManager();
+
+	// the curves animated transitions follow
+	private Easing positionEasing = Easing.SMOOTHSTEP;
+	private Easing rotationEasing = Easing.LINEAR;
+
+	private DampedAction[] dampedActions = new DampedAction[0];
+
+	private final PeasyDragHandler panHandler /* ha ha ha */= new PeasyDragHandler() {
+		public void handleDrag(final double dx, final double dy) {
+			dampedPanX.impulse(dx / 8.);
+			dampedPanY.impulse(dy / 8.);
+		}
+	};
+	private PeasyDragHandler centerDragHandler = panHandler;
+
+	private final PeasyDragHandler rotateHandler = new PeasyDragHandler() {
+		public void handleDrag(final double dx, final double dy) {
+			mouseRotate(dx, dy);
+		}
+	};
+	private PeasyDragHandler leftDragHandler = rotateHandler;
+
+	private final PeasyDragHandler zoomHandler = new PeasyDragHandler() {
+		public void handleDrag(final double dx, final double dy) {
+			dampedZoom.impulse(dy / 10.0);
+		}
+	};
+	private PeasyDragHandler rightDraghandler = zoomHandler;
+
+	private final PeasyWheelHandler zoomWheelHandler = new PeasyWheelHandler() {
+		public void handleWheel(final int delta) {
+			dampedZoom.impulse(wheelScale * delta);
+		}
+	};
+	private PeasyWheelHandler wheelHandler = zoomWheelHandler;
+	private double wheelScale = 1.0;
+
+	/**
+	 * Set whenever the camera state changes, and cleared by whoever pushes the
+	 * camera to a renderer, so that happens at most once per frame.
+	 */
+	private boolean dirty = true;
+
+	/**
+	 * The state as of the last {@link #step()}, for other threads, laid out as
+	 * by {@link #getState(double[])}. A step that finds the camera has changed
+	 * copies into it under its lock; the CameraState readers see is only built
+	 * from it, under the same lock, when one asks and the last is out of date.
+	 */
+	private final double[] published = new double[8];
+	// guarded by published; null until a reader asks after a change
+	private CameraState snapshot;
+	private boolean snapshotStale = true;
+
+	private final CameraCommandQueue commands = new CameraCommandQueue();
+
+	private static final Button[] BUTTONS = Button.values();
+	// one per button (or none) with and without shift and meta
+	private static final int DRAG_SLOTS = (BUTTONS.length + 1) << 2;
+	private boolean coalesceInput = true;
+	private final boolean[] pendingDrag = new boolean[DRAG_SLOTS];
+	private final double[] pendingDragX = new double[DRAG_SLOTS];
+	private final double[] pendingDragY = new double[DRAG_SLOTS];
+	private int pendingWheel = 0;
+
+	public CameraEngine(final double lookAtX, final double lookAtY, final double lookAtZ,
+			final double distance, final Clock clock, final InputSource input) {
+		this.clock = clock;
+		this.input = input;
+		this.startCenter = new Vector3D(lookAtX, lookAtY, lookAtZ);
+		this.center = new MutableVector3D(startCenter);
+		this.startDistance = this.distance = Math.max(distance, SMALLEST_MINIMUM_DISTANCE);
+
+		rotateX = new DampedAction(this) {
+			@Override
+			protected void behave(final double velocity) {
+				turnX(velocity);
+			}
+		};
+
+		rotateY = new DampedAction(this) {
+			@Override
+			protected void behave(final double velocity) {
+				turnY(velocity);
+			}
+		};
+
+		rotateZ = new DampedAction(this) {
+			@Override
+			protected void behave(final double velocity) {
+				turnZ(velocity);
+			}
+		};
+
+		dampedZoom = new DampedAction(this) {
+			@Override
+			protected void behave(final double velocity) {
+				mouseZoom(velocity);
+			}
+		};
+
+		dampedPanX = new DampedAction(this) {
+			@Override
+			protected void behave(final double velocity) {
+				mousePan(velocity, 0);
+			}
+		};
+
+		dampedPanY = new DampedAction(this) {
+			@Override
+			protected void behave(final double velocity) {
+				mousePan(0, velocity);
+			}
+		};
+
+		publishSnapshot();
+	}
+
+	public Clock getClock() {
+		return clock;
+	}
+
+	/**
+	 * Animate against a different clock from now on, e.g. a
+	 * {@link FixedStepClock} for reproducible frames or a {@link ManualClock}
+	 * driven by an external timeline. Animations in progress carry on from
+	 * where they were.
+	 */
+	public void setClock(final Clock clock) {
+		final double delta = clock.millis() - this.clock.millis();
+		this.clock = clock;
+		rotationInterps.rebase(delta);
+		centerInterps.rebase(delta);
+		distanceInterps.rebase(delta);
+		for (int i = 0; i < dampedActions.length; i++) {
+			dampedActions[i].resync();
+		}
+	}
+
+	public InputSource getInput() {
+		return input;
+	}
+
+	/**
+	 * Commands that other threads may issue; they take effect at the start of
+	 * the next {@link #step()}.
+	 */
+	public CameraCommandQueue getCommandQueue() {
+		return commands;
+	}
+
+	/**
+	 * Apply queued commands and coalesced input, then advance every damped
+	 * action and running interpolation by one frame. The engine only reads its
+	 * clock; a {@link FixedStepClock} is ticked by its owner, once per frame
+	 * however many cameras share it.
+	 */
+	public void step() {
+		commands.drain(this);
+		flushInput();
+		final DampedAction[] actions = dampedActions;
+		for (int i = 0; i < actions.length; i++) {
+			actions[i].draw();
+		}
+		final boolean interpolating = singlePrecision
+				&& (rotationInterps.isRunning() || centerInterps.isRunning() || distanceInterps
+						.isRunning());
+		if (interpolating) {
+			syncFromFloat();
+		}
+		rotationInterps.step();
+		centerInterps.step();
+		distanceInterps.step();
+		if (interpolating) {
+			syncToFloat();
+		}
+		publishSnapshot();
+	}
+
+	/**
+	 * Keep the camera in float rather than double. Processing takes its camera
+	 * in float anyway, so interaction and {@link #getCamera(float[])} then run
+	 * without conversions; animations and the double-valued state accessors
+	 * still work in double, converting at the boundary. The camera then strays
+	 * from where the double path would have put it, and the gap keeps growing
+	 * with the length of the session rather than settling: in
+	 * {@code SinglePrecisionTest}, random dragging stays within
+	 * 10<sup>-4</sup> of the camera's distance from the origin after 50000
+	 * frames (about 14 minutes at 60 fps) and within 10<sup>-3</sup> after
+	 * 200000.
+	 */
+	public void setSinglePrecision(final boolean singlePrecision) {
+		if (singlePrecision == this.singlePrecision) {
+			return;
+		}
+		if (singlePrecision) {
+			this.singlePrecision = true;
+			syncToFloat();
+		} else {
+			syncFromFloat();
+			this.singlePrecision = false;
+		}
+	}
+
+	public boolean isSinglePrecision() {
+		return singlePrecision;
+	}
+
+	/**
+	 * In single precision, bring the double state up to date with the float
+	 * one, before code that reads or modifies the double state.
+	 */
+	private void syncFromFloat() {
+		if (singlePrecision) {
+			frotation.get(rotation);
+			fcenter.get(center);
+			distance = fdistance;
+		}
+	}
+
+	/**
+	 * In single precision, round the double state into the float one, after
+	 * code that modified the double state.
+	 */
+	private void syncToFloat() {
+		if (singlePrecision) {
+			frotation.set(rotation);
+			fcenter.set(center);
+			fdistance = (float)distance;
+		}
+	}
+
+	// the damped rotations call these every frame of an inertial spin; at 60
+	// frames a second even a brisk drag mostly turns by angles small enough
+	// for the series in composeAroundX() and its siblings
+
+	private void turnX(final double angle) {
+		if (singlePrecision) {
+			frotation.composeAroundX((float)angle);
+		} else {
+			rotation.composeAroundX(angle);
+		}
+	}
+
+	private void turnY(final double angle) {
+		if (singlePrecision) {
+			frotation.composeAroundY((float)angle);
+		} else {
+			rotation.composeAroundY(angle);
+		}
+	}
+
+	private void turnZ(final double angle) {
+		if (singlePrecision) {
+			frotation.composeAroundZ((float)angle);
+		} else {
+			rotation.composeAroundZ(angle);
+		}
+	}
+
+	private void publishSnapshot() {
+		if (snapshotStale) {
+			snapshotStale = false;
+			synchronized (published) {
+				getState(published);
+				snapshot = null;
+			}
+		}
+	}
+
+	/**
+	 * The camera's state as of the most recent frame. Unlike every other
+	 * method, this may be called from any thread: the state is immutable, and
+	 * the animation thread only holds the lock behind it for the eight-value
+	 * copy at the end of a frame that changed the camera, so readers never see
+	 * a half-updated camera and the animation thread allocates nothing for
+	 * them. Successive calls return the same instance until the camera moves.
+	 */
+	public CameraState getSnapshot() {
+		synchronized (published) {
+			if (snapshot == null) {
+				snapshot = new CameraState(new Rotation(published[0], published[1], published[2],
+						published[3], false), new Vector3D(published[4], published[5], published[6]),
+						published[7]);
+			}
+			return snapshot;
+		}
+	}
+
+	/**
+	 * Called by each DampedAction as it is constructed; from then on it is
+	 * stepped once per frame by {@link #step()}.
+	 */
+	void addDampedAction(final DampedAction action) {
+		final DampedAction[] grown = new DampedAction[dampedActions.length + 1];
+		System.arraycopy(dampedActions, 0, grown, 0, dampedActions.length);
+		grown[dampedActions.length] = action;
+		dampedActions = grown;
+	}
+
+	/**
+	 * Has the camera changed since the last {@link #markClean()}?
+	 */
+	public boolean isDirty() {
+		return dirty;
+	}
+
+	void markDirty() {
+		dirty = true;
+		snapshotStale = true;
+	}
+
+	public void markClean() {
+		dirty = false;
+	}
+
+	public double getWheelScale() {
+		return wheelScale;
+	}
+
+	public void setWheelScale(final double wheelScale) {
+		this.wheelScale = wheelScale;
+	}
+
+	public PeasyDragHandler getPanDragHandler() {
+		return panHandler;
+	}
+
+	public PeasyDragHandler getRotateDragHandler() {
+		return rotateHandler;
+	}
+
+	public PeasyDragHandler getZoomDragHandler() {
+		return zoomHandler;
+	}
+
+	public PeasyWheelHandler getZoomWheelHandler() {
+		return zoomWheelHandler;
+	}
+
+	public void setLeftDragHandler(final PeasyDragHandler handler) {
+		leftDragHandler = handler;
+	}
+
+	public void setCenterDragHandler(final PeasyDragHandler handler) {
+		centerDragHandler = handler;
+	}
+
+	public void setRightDragHandler(final PeasyDragHandler handler) {
+		rightDraghandler = handler;
+	}
+
+	public PeasyWheelHandler getWheelHandler() {
+		return wheelHandler;
+	}
+
+	public void setWheelHandler(final PeasyWheelHandler wheelHandler) {
+		this.wheelHandler = wheelHandler;
+	}
+
+	public void keyReleased(final boolean shiftDown) {
+		if (shiftDown) {
+			flushInput();
+			dragConstraint = null;
+		}
+	}
+
+	public void mouseReleased() {
+		flushInput();
+		dragConstraint = null;
+	}
+
+	public void mouseWheel(final int count) {
+		if (coalesceInput) {
+			pendingWheel += count;
+		} else {
+			wheelHandler.handleWheel(count);
+		}
+	}
+
+	/**
+	 * When on (the default), drag and wheel events are summed as they arrive and
+	 * handed to the drag and wheel handlers once per {@link #step()}, one drag
+	 * per combination of button and modifiers, however many events a
+	 * high-rate mouse sent. When off, every event goes to its handler at once.
+	 */
+	public void setInputCoalescing(final boolean coalesceInput) {
+		flushInput();
+		this.coalesceInput = coalesceInput;
+	}
+
+	public boolean isInputCoalescing() {
+		return coalesceInput;
+	}
+
+	/**
+	 * Set the curve followed by animated transitions (setState, lookAt,
+	 * setDistance, reset) that start from now on. By default, the distance
+	 * and look-at point follow {@link Easing#SMOOTHSTEP} and the rotation is
+	 * {@link Easing#LINEAR}.
+	 */
+	public void setEasing(final Easing easing) {
+		positionEasing = easing;
+		rotationEasing = easing;
+	}
+
+	/**
+	 * Dispatch the input summed since the last step.
+	 */
+	private void flushInput() {
+		for (int slot = 0; slot < DRAG_SLOTS; slot++) {
+			if (pendingDrag[slot]) {
+				pendingDrag[slot] = false;
+				final double dx = pendingDragX[slot], dy = pendingDragY[slot];
+				pendingDragX[slot] = 0;
+				pendingDragY[slot] = 0;
+				final int b = slot >> 2;
+				dispatchDrag(b < BUTTONS.length ? BUTTONS[b] : null, dx, dy,
+						(slot & 2) != 0, (slot & 1) != 0);
+			}
+		}
+		if (pendingWheel != 0) {
+			final int count = pendingWheel;
+			pendingWheel = 0;
+			wheelHandler.handleWheel(count);
+		}
+	}
+
+	/**
+	 * Handle a drag, or with input coalescing on, add it to those to be handled
+	 * at the next step.
+	 * 
+	 * @param button
+	 *            the button held during the drag
+	 * @param dx
+	 *            horizontal pointer movement since the last drag event
+	 * @param dy
+	 *            vertical pointer movement since the last drag event
+	 * @param shiftDown
+	 *            shift constrains the drag to the dominant axis
+	 * @param metaDown
+	 *            meta turns a left drag into a center drag
+	 */
+	public void mouseDragged(final Button button, final double dx, final double dy,
+			final boolean shiftDown, final boolean metaDown) {
+		if (coalesceInput) {
+			final int slot = ((button == null ? BUTTONS.length : button.ordinal()) << 2)
+					| (shiftDown ? 2 : 0) | (metaDown ? 1 : 0);
+			pendingDrag[slot] = true;
+			pendingDragX[slot] += dx;
+			pendingDragY[slot] += dy;
+		} else {
+			dispatchDrag(button, dx, dy, shiftDown, metaDown);
+		}
+	}
+
+	private void dispatchDrag(final Button button, final double dx, final double dy,
+			final boolean shiftDown, final boolean metaDown) {
+		if (shiftDown) {
+			if (dragConstraint == null && Math.abs(dx - dy) > 1) {
+				dragConstraint = Math.abs(dx) > Math.abs(dy) ? Constraint.YAW
+						: Constraint.PITCH;
+			}
+		} else if (permaConstraint != null) {
+			dragConstraint = permaConstraint;
+		} else {
+			dragConstraint = null;
+		}
+
+		if (centerDragHandler != null
+				&& (button == Button.CENTER || (button == Button.LEFT && metaDown))) {
+			centerDragHandler.handleDrag(dx, dy);
+		} else if (leftDragHandler != null && button == Button.LEFT) {
+			leftDragHandler.handleDrag(dx, dy);
+		} else if (rightDraghandler != null && button == Button.RIGHT) {
+			rightDraghandler.handleDrag(dx, dy);
+		}
+	}
+
+	private void mouseZoom(final double delta) {
+		final double current = getDistance();
+		safeSetDistance(current + delta * Math.log1p(current));
+	}
+
+	private void mousePan(final double dxMouse, final double dyMouse) {
+		final double panScale = Math.sqrt(getDistance() * .005);
+		pan(dragConstraint == Constraint.PITCH ? 0 : -dxMouse * panScale,
+				dragConstraint == Constraint.YAW ? 0 : -dyMouse * panScale);
+	}
+
+	private void mouseRotate(final double dx, final double dy) {
+		// Each impulse is the angle between u = -(100 + .6 * startDistance) * LOOK
+		// and u nudged sideways by the drag; the nudge is orthogonal to u, so that
+		// angle is just atan2(nudge, |u|).
+		final double u = 100 + .6 * startDistance;
+
+		final int xSign = dx > 0 ? -1 : 1;
+		final int ySign = dy < 0 ? -1 : 1;
+
+		final int mouseX = input.getMouseX();
+		final int mouseY = input.getMouseY();
+		final int width = input.getWidth();
+		final int height = input.getHeight();
+
+		final double eccentricity = Math.abs((height / 2d) - mouseY) / (height / 2d);
+		final double rho = Math.abs((width / 2d) - mouseX) / (width / 2d);
+
+		if (dragConstraint == null || dragConstraint == Constraint.YAW
+				|| dragConstraint == Constraint.SUPPRESS_ROLL) {
+			final double adx = Math.abs(dx) * (1 - eccentricity);
+			rotateY.impulse(Math.atan2(adx, u) * xSign);
+		}
+		if (dragConstraint == null || dragConstraint == Constraint.PITCH
+				|| dragConstraint == Constraint.SUPPRESS_ROLL) {
+			final double ady = Math.abs(dy) * (1 - rho);
+			rotateX.impulse(Math.atan2(ady, u) * ySign);
+		}
+		if (dragConstraint == null || dragConstraint == Constraint.ROLL) {
+			{
+				final double adz = Math.abs(dy) * rho;
+				rotateZ.impulse(Math.atan2(adz, u) * -ySign
+						* (mouseX < width / 2 ? -1 : 1));
+			}
+			{
+				final double adz = Math.abs(dx) * eccentricity;
+				rotateZ.impulse(Math.atan2(adz, u) * xSign
+						* (mouseY > height / 2 ? -1 : 1));
+			}
+		}
+	}
+
+	public double getDistance() {
+		return singlePrecision ? fdistance : distance;
+	}
+
+	public void setDistance(final double newDistance) {
+		setDistance(newDistance, 300);
+	}
+
+	public void setDistance(final double newDistance, final long animationTimeMillis) {
+		syncFromFloat();
+		distanceInterps.startInterpolation(new DistanceInterp(newDistance,
+				animationTimeMillis));
+	}
+
+	public float[] getLookAt() {
+		if (singlePrecision) {
+			return new float[] { fcenter.getX(), fcenter.getY(), fcenter.getZ() };
+		}
+		return new float[] { (float)center.getX(), (float)center.getY(),
+				(float)center.getZ() };
+	}
+
+	public void lookAt(final double x, final double y, final double z) {
+		syncFromFloat();
+		centerInterps.startInterpolation(new CenterInterp(new Vector3D(x, y, z), 300));
+	}
+
+	public void lookAt(final double x, final double y, final double z,
+			final double distance) {
+		lookAt(x, y, z);
+		setDistance(distance);
+	}
+
+	public void lookAt(final double x, final double y, final double z,
+			final long animationTimeMillis) {
+		lookAt(x, y, z, getDistance(), animationTimeMillis);
+	}
+
+	public void lookAt(final double x, final double y, final double z,
+			final double distance, final long animationTimeMillis) {
+		syncFromFloat();
+		setState(new CameraState(rotation.toRotation(), new Vector3D(x, y, z), distance),
+				animationTimeMillis);
+	}
+
+	private void safeSetDistance(final double distance) {
+		final double clamped = Math.min(maximumDistance, Math.max(minimumDistance,
+				distance));
+		if (singlePrecision) {
+			fdistance = (float)clamped;
+		} else {
+			this.distance = clamped;
+		}
+		markDirty();
+	}
+
+	/**
+	 * Compute the current camera in the form PGraphics.camera() takes it.
+	 * 
+	 * @param out
+	 *            receives eyeX, eyeY, eyeZ, centerX, centerY, centerZ, upX, upY,
+	 *            upZ
+	 * @return out
+	 */
+	public float[] getCamera(final float[] out) {
+		if (singlePrecision) {
+			frotation.applyTo(0, 0, 1, fpos).scalarMultiply(fdistance).add(fcenter);
+			frotation.applyTo(0, 1, 0, frup);
+			out[0] = fpos.getX();
+			out[1] = fpos.getY();
+			out[2] = fpos.getZ();
+			out[3] = fcenter.getX();
+			out[4] = fcenter.getY();
+			out[5] = fcenter.getZ();
+			out[6] = frup.getX();
+			out[7] = frup.getY();
+			out[8] = frup.getZ();
+			return out;
+		}
+		rotation.applyTo(LOOK, pos).scalarMultiply(distance).add(center);
+		rotation.applyTo(UP, rup);
+		out[0] = (float)pos.getX();
+		out[1] = (float)pos.getY();
+		out[2] = (float)pos.getZ();
+		out[3] = (float)center.getX();
+		out[4] = (float)center.getY();
+		out[5] = (float)center.getZ();
+		out[6] = (float)rup.getX();
+		out[7] = (float)rup.getY();
+		out[8] = (float)rup.getZ();
+		return out;
+	}
+
+	/**
+	 * Where is the camera in world space?
+	 * 
+	 * @return float[]{x,y,z}
+	 */
+	public float[] getPosition() {
+		if (singlePrecision) {
+			frotation.applyTo(0, 0, 1, fpos).scalarMultiply(fdistance).add(fcenter);
+			return new float[] { fpos.getX(), fpos.getY(), fpos.getZ() };
+		}
+		rotation.applyTo(LOOK, pos).scalarMultiply(distance).add(center);
+		return new float[] { (float)pos.getX(), (float)pos.getY(), (float)pos.getZ() };
+	}
+
+	public void reset() {
+		reset(300);
+	}
+
+	public void reset(final long animationTimeInMillis) {
+		setState(new CameraState(new Rotation(), startCenter, startDistance),
+				animationTimeInMillis);
+	}
+
+	public void pan(final double dx, final double dy) {
+		if (singlePrecision) {
+			fcenter.add(frotation.applyTo((float)dx, (float)dy, 0, fpanDelta));
+			markDirty();
+			return;
+		}
+		center.add(rotation.applyTo(dx, dy, 0, panDelta));
+		markDirty();
+	}
+
+	public void rotateX(final double angle) {
+		turnX(angle);
+		markDirty();
+	}
+
+	public void rotateY(final double angle) {
+		turnY(angle);
+		markDirty();
+	}
+
+	public void rotateZ(final double angle) {
+		turnZ(angle);
+		markDirty();
+	}
+
+	public CameraState getState() {
+		syncFromFloat();
+		return new CameraState(rotation.toRotation(), center.toVector3D(), distance);
+	}
+
+	/**
+	 * Copy the current state into an array, without allocating.
+	 * 
+	 * @param out
+	 *            receives the rotation quaternion q0, q1, q2, q3, then the
+	 *            center x, y, z, then the distance
+	 * @return out
+	 */
+	public double[] getState(final double[] out) {
+		syncFromFloat();
+		out[0] = rotation.getQ0();
+		out[1] = rotation.getQ1();
+		out[2] = rotation.getQ2();
+		out[3] = rotation.getQ3();
+		out[4] = center.getX();
+		out[5] = center.getY();
+		out[6] = center.getZ();
+		out[7] = distance;
+		return out;
+	}
+
+	/**
+	 * Jump to a state laid out as by {@link #getState(double[])}, cancelling
+	 * any animation in progress.
+	 */
+	public void setState(final double[] state) {
+		rotationInterps.cancelInterpolation();
+		centerInterps.cancelInterpolation();
+		distanceInterps.cancelInterpolation();
+		rotation.set(state[0], state[1], state[2], state[3], false);
+		center.set(state[4], state[5], state[6]);
+		distance = state[7];
+		syncToFloat();
+		markDirty();
+	}
+
+	/**
+	 * Permit arbitrary rotation. (Default mode.)
+	 */
+	public void setFreeRotationMode() {
+		permaConstraint = null;
+	}
+
+	/**
+	 * Only permit yaw.
+	 */
+	public void setYawRotationMode() {
+		permaConstraint = Constraint.YAW;
+	}
+
+	/**
+	 * Only permit pitch.
+	 */
+	public void setPitchRotationMode() {
+		permaConstraint = Constraint.PITCH;
+	}
+
+	/**
+	 * Only permit roll.
+	 */
+	public void setRollRotationMode() {
+		permaConstraint = Constraint.ROLL;
+	}
+
+	/**
+	 * Only suppress roll.
+	 */
+	public void setSuppressRollRotationMode() {
+		permaConstraint = Constraint.SUPPRESS_ROLL;
+	}
+
+	public void setMinimumDistance(final double minimumDistance) {
+		this.minimumDistance = Math.max(minimumDistance, SMALLEST_MINIMUM_DISTANCE);
+		safeSetDistance(getDistance());
+	}
+
+	public void setMaximumDistance(final double maximumDistance) {
+		this.maximumDistance = maximumDistance;
+		safeSetDistance(getDistance());
+	}
+
+	public void setState(final CameraState state) {
+		setState(state, 300);
+	}
+
+	public void setState(final CameraState state, final long animationTimeMillis) {
+		syncFromFloat();
+		if (animationTimeMillis > 0) {
+			rotationInterps.startInterpolation(new RotationInterp(state.rotation,
+					animationTimeMillis));
+			centerInterps.startInterpolation(new CenterInterp(state.center,
+					animationTimeMillis));
+			distanceInterps.startInterpolation(new DistanceInterp(state.distance,
+					animationTimeMillis));
+		} else {
+			this.rotation.set(state.rotation);
+			this.center.set(state.center);
+			this.distance = state.distance;
+			syncToFloat();
+		}
+		markDirty();
+	}
+
+	public void setRotations(final double pitch, final double yaw, final double roll) {
+		rotationInterps.cancelInterpolation();
+		syncFromFloat();
+		this.rotation.set(new Rotation(RotationOrder.XYZ, pitch, yaw, roll));
+		syncToFloat();
+		markDirty();
+	}
+
+	/**
+	 * Express the current camera rotation as an equivalent series of world
+	 * rotations, in X, Y, Z order.
+	 * 
+	 * @see PeasyCam#getRotations()
+	 */
+	public float[] getRotations() {
+		syncFromFloat();
+		final double[] angles = new double[3];
+		if (rotation.getAngles(RotationOrder.XYZ, angles)) {
+			return new float[] { (float)angles[0], (float)angles[1], (float)angles[2] };
+		}
+		if (rotation.getAngles(RotationOrder.YXZ, angles)) {
+			return new float[] { (float)angles[1], (float)angles[0], (float)angles[2] };
+		}
+		if (rotation.getAngles(RotationOrder.ZXY, angles)) {
+			return new float[] { (float)angles[2], (float)angles[0], (float)angles[1] };
+		}
+		return new float[] { 0, 0, 0 };
+	}
+
+	abstract public class AbstractInterp {
+		double startTime;
+		final double timeInMillis;
+		final Easing easing;
+		boolean running;
+
+		protected AbstractInterp(final long timeInMillis, final Easing easing) {
+			this.timeInMillis = timeInMillis;
+			this.easing = easing;
+		}
+
+		void start() {
+			startTime = clock.millis();
+			running = true;
+		}
+
+		void cancel() {
+			running = false;
+		}
+
+		public void draw() {
+			final double t = (clock.millis() - startTime) / timeInMillis;
+			if (t > .99) {
+				cancel();
+				setEndState();
+			} else {
+				interp(easing.ease(t));
+			}
+			markDirty();
+		}
+
+		/**
+		 * @param t
+		 *            eased progress
+		 */
+		protected abstract void interp(double t);
+
+		protected abstract void setEndState();
+	}
+
+	class DistanceInterp extends AbstractInterp {
+		private final double startDistance = distance;
+		private final double endDistance;
+
+		public DistanceInterp(final double endDistance, final long timeInMillis) {
+			super(timeInMillis, positionEasing);
+			this.endDistance = Math.min(maximumDistance,
+					Math.max(minimumDistance, endDistance));
+		}
+
+		@Override
+		protected void interp(final double t) {
+			distance = InterpolationUtil.linear(startDistance, endDistance, t);
+		}
+
+		@Override
+		protected void setEndState() {
+			distance = endDistance;
+		}
+	}
+
+	class CenterInterp extends AbstractInterp {
+		private final Vector3D startCenter = center.toVector3D();
+		private final Vector3D endCenter;
+
+		public CenterInterp(final Vector3D endCenter, final long timeInMillis) {
+			super(timeInMillis, positionEasing);
+			this.endCenter = endCenter;
+		}
+
+		@Override
+		protected void interp(final double t) {
+			InterpolationUtil.linear(startCenter, endCenter, t, center);
+		}
+
+		@Override
+		protected void setEndState() {
+			center.set(endCenter);
+		}
+	}
+
+	class RotationInterp extends AbstractInterp {
+		final Rotation startRotation = rotation.toRotation();
+		final Rotation endRotation;
+		final Slerp slerp;
+
+		public RotationInterp(final Rotation endRotation, final long timeInMillis) {
+			super(timeInMillis, rotationEasing);
+			this.endRotation = endRotation;
+			this.slerp = new Slerp(startRotation, endRotation);
+		}
+
+		@Override
+		void start() {
+			rotateX.stop();
+			rotateY.stop();
+			rotateZ.stop();
+			super.start();
+		}
+
+		@Override
+		protected void interp(final double t) {
+			slerp.interpolate(t, rotation);
+		}
+
+		@Override
+		protected void setEndState() {
+			rotation.set(endRotation);
+		}
+	}
+}
@@ -0,0 +1,191 @@
+/*
+   The PeasyCam Processing library, which provides an easy-peasy
+   camera for 3D sketching.
+  
+   Copyright 2008 Jonathan Feinberg
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package peasy;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Replays a file written by {@link CameraPathRecorder}.
+ * 
+ * <pre>
+ * player = new CameraPathPlayer(new File("session.cam"));
+ * ...
+ * void draw() {
+ *   player.seek(millis() - replayStart, cam);
+ *   ...
+ * }
+ * </pre>
+ * 
+ * <p>
+ * Seeking to any time is constant-time: the two samples around it are found
+ * by arithmetic, read straight from the memory-mapped file, blended, and
+ * handed to the camera as primitives. Nothing is deserialized or allocated.
+ * Files are limited to 2 GB, over a hundred hours at 60 samples a second.
+ */
+public class CameraPathPlayer implements Closeable {
+	private final RandomAccessFile file;
+	private final MappedByteBuffer samples;
+	private final double samplePeriodMillis;
+	private final long sampleCount;
+	private final double[] state = new double[8];
+	private final double[] next = new double[8];
+
+	public CameraPathPlayer(final File path) throws IOException {
+		file = new RandomAccessFile(path, "r");
+		try {
+			final FileChannel channel = file.getChannel();
+			final long size = channel.size();
+			if (size < CameraPathRecorder.HEADER_SIZE) {
+				throw new IOException(path + " is not a camera path");
+			}
+			final MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0,
+					CameraPathRecorder.HEADER_SIZE);
+			header.order(ByteOrder.LITTLE_ENDIAN);
+			if (header.getInt(0) != CameraPathRecorder.MAGIC) {
+				throw new IOException(path + " is not a camera path");
+			}
+			if (header.getInt(4) != CameraPathRecorder.VERSION
+					|| header.getInt(8) != CameraPathRecorder.SAMPLE_SIZE) {
+				throw new IOException(path + " was written by an unsupported version");
+			}
+			samplePeriodMillis = header.getDouble(16);
+			sampleCount = Math.min(header.getLong(CameraPathRecorder.COUNT_OFFSET),
+					(size - CameraPathRecorder.HEADER_SIZE)
+							/ CameraPathRecorder.SAMPLE_SIZE);
+			final long length = sampleCount * CameraPathRecorder.SAMPLE_SIZE;
+			if (length > Integer.MAX_VALUE) {
+				throw new IOException(path + " is too long to map");
+			}
+			samples = channel.map(FileChannel.MapMode.READ_ONLY,
+					CameraPathRecorder.HEADER_SIZE, length);
+			samples.order(ByteOrder.LITTLE_ENDIAN);
+		} catch (final IOException e) {
+			file.close();
+			throw e;
+		}
+	}
+
+	public double getSamplePeriodMillis() {
+		return samplePeriodMillis;
+	}
+
+	public long getSampleCount() {
+		return sampleCount;
+	}
+
+	/**
+	 * @return the time of the last sample
+	 */
+	public double getDurationMillis() {
+		return sampleCount == 0 ? 0 : (sampleCount - 1) * samplePeriodMillis;
+	}
+
+	/**
+	 * Read one sample. Sample <i>n</i> was taken <i>n</i> sample periods into
+	 * the recording.
+	 * 
+	 * @param out
+	 *            receives the state, laid out as by
+	 *            {@link CameraEngine#getState(double[])}
+	 * @return the time at which the sample was taken
+	 */
+	public double getSample(final long index, final double[] out) {
+		if (index < 0 || index >= sampleCount) {
+			throw new IndexOutOfBoundsException("no sample " + index);
+		}
+		final int base = (int)(index * CameraPathRecorder.SAMPLE_SIZE);
+		samples.position(base + 8);
+		CameraStateCodec.decode(CameraStateCodec.Format.DOUBLE, samples, out);
+		return samples.getDouble(base);
+	}
+
+	/**
+	 * Compute the state at a time, blending the samples on either side of it.
+	 * Times outside the recording are clamped to it.
+	 * 
+	 * @param out
+	 *            receives the state, laid out as by
+	 *            {@link CameraEngine#getState(double[])}
+	 * @return out
+	 */
+	public double[] getState(final double timeMillis, final double[] out) {
+		if (sampleCount == 0) {
+			throw new IllegalStateException("the camera path is empty");
+		}
+		final double position = Math.max(0,
+				Math.min(timeMillis / samplePeriodMillis, sampleCount - 1));
+		final long index = Math.min((long)position, sampleCount - 2);
+		if (index < 0) {
+			getSample(0, out);
+			return out;
+		}
+		getSample(index, out);
+		getSample(index + 1, next);
+		return blend(out, next, position - index, out);
+	}
+
+	/**
+	 * Blend two states laid out as by {@link CameraEngine#getState(double[])}.
+	 * 
+	 * @param out
+	 *            receives the blend; may be a
+	 * @return out
+	 */
+	static double[] blend(final double[] a, final double[] b, final double t,
+			final double[] out) {
+		// samples are close together, so a normalized lerp is as good as a slerp;
+		// flip the second quaternion onto the same hemisphere as the first
+		final double sign = a[0] * b[0] + a[1] * b[1] + a[2] * b[2] + a[3] * b[3] < 0 ? -1
+				: 1;
+		double norm = 0;
+		for (int i = 0; i < 4; i++) {
+			out[i] = a[i] + t * (sign * b[i] - a[i]);
+			norm += out[i] * out[i];
+		}
+		norm = 1 / Math.sqrt(norm);
+		for (int i = 0; i < 4; i++) {
+			out[i] *= norm;
+		}
+		for (int i = 4; i < 8; i++) {
+			out[i] = a[i] + t * (b[i] - a[i]);
+		}
+		return out;
+	}
+
+	public void seek(final double timeMillis, final PeasyCam cam) {
+		seek(timeMillis, cam.getEngine());
+	}
+
+	/**
+	 * Put the camera where it was at a time in the recording.
+	 */
+	public void seek(final double timeMillis, final CameraEngine engine) {
+		engine.setState(getState(timeMillis, state));
+	}
+
+	public void close() throws IOException {
+		file.close();
+	}
+}
@@ -0,0 +1,175 @@
+/*
+   The PeasyCam Processing library, which provides an easy-peasy
+   camera for 3D sketching.
+  
+   Copyright 2008 Jonathan Feinberg
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package peasy;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Records a camera's path to a compact binary file, for replay with
+ * {@link CameraPathPlayer}.
+ * 
+ * <pre>
+ * recorder = new CameraPathRecorder(new File("session.cam"), 1000 / 60.0);
+ * ...
+ * void draw() {
+ *   recorder.record(cam);
+ *   ...
+ * }
+ * ...
+ * recorder.close();
+ * </pre>
+ * 
+ * <p>
+ * The camera is sampled at a fixed period from the first call to
+ * {@link #record(CameraEngine)}: sample <i>n</i> is the camera at <i>n</i>
+ * periods after it. Each call writes one sample for every period boundary
+ * passed since the previous call, blending the state recorded then with the
+ * current one for boundaries that fell in between. Every sample has the same
+ * size, so the player finds the sample for any time by arithmetic. Samples are written
+ * through a memory-mapped buffer, and the sample count in the header is kept
+ * current, so a file is readable up to its last sample even if the recorder is
+ * never closed.
+ * 
+ * <p>
+ * The file is a 32-byte header followed by the samples, all little-endian:
+ * 
+ * <pre>
+ * header: int magic, int version, int sample size, int reserved,
+ *         double sample period in millis, long sample count
+ * sample: double time in millis since the first sample, always its index
+ *         times the sample period,
+ *         the state in {@link CameraStateCodec.Format#DOUBLE}
+ * </pre>
+ */
+public class CameraPathRecorder implements Closeable {
+	static final int MAGIC = 0x50435041; // "PCPA"
+	static final int VERSION = 1;
+	static final int HEADER_SIZE = 32;
+	static final int SAMPLE_SIZE = 8 + CameraStateCodec.Format.DOUBLE.size;
+	static final int COUNT_OFFSET = 24;
+
+	// samples are mapped this many at a time
+	private static final int CHUNK_SAMPLES = 4096;
+
+	private final RandomAccessFile file;
+	private final FileChannel channel;
+	private final MappedByteBuffer header;
+	private MappedByteBuffer chunk;
+	private final double samplePeriodMillis;
+	private final double[] state = new double[8];
+	private final double[] previous = new double[8];
+	private final double[] sample = new double[8];
+
+	private double startMillis = Double.NaN;
+	private double previousElapsed;
+	private long sampleCount = 0;
+
+	/**
+	 * @param path
+	 *            the file to write; an existing file is overwritten
+	 * @param samplePeriodMillis
+	 *            the time between samples
+	 */
+	public CameraPathRecorder(final File path, final double samplePeriodMillis)
+			throws IOException {
+		if (!(samplePeriodMillis > 0)) {
+			throw new IllegalArgumentException("the sample period must be positive");
+		}
+		this.samplePeriodMillis = samplePeriodMillis;
+		file = new RandomAccessFile(path, "rw");
+		file.setLength(0);
+		channel = file.getChannel();
+		header = map(0, HEADER_SIZE);
+		header.putInt(MAGIC).putInt(VERSION).putInt(SAMPLE_SIZE).putInt(0).putDouble(
+				samplePeriodMillis).putLong(0);
+	}
+
+	public double getSamplePeriodMillis() {
+		return samplePeriodMillis;
+	}
+
+	public long getSampleCount() {
+		return sampleCount;
+	}
+
+	public void record(final PeasyCam cam) throws IOException {
+		record(cam.getEngine());
+	}
+
+	/**
+	 * Sample the camera at its clock's current time.
+	 */
+	public void record(final CameraEngine engine) throws IOException {
+		final double now = engine.getClock().millis();
+		if (Double.isNaN(startMillis)) {
+			startMillis = now;
+		}
+		engine.getState(state);
+		final double elapsed = now - startMillis;
+		double time;
+		while ((time = sampleCount * samplePeriodMillis) <= elapsed) {
+			if (time < elapsed && sampleCount > 0) {
+				// a boundary passed between calls
+				CameraPathPlayer.blend(previous, state, (time - previousElapsed)
+						/ (elapsed - previousElapsed), sample);
+				append(time, sample);
+			} else {
+				append(time, state);
+			}
+		}
+		System.arraycopy(state, 0, previous, 0, 8);
+		previousElapsed = elapsed;
+	}
+
+	private void append(final double time, final double[] values) throws IOException {
+		if (sampleCount % CHUNK_SAMPLES == 0) {
+			chunk = map(HEADER_SIZE + sampleCount * SAMPLE_SIZE, (long)CHUNK_SAMPLES
+					* SAMPLE_SIZE);
+		}
+		chunk.putDouble(time);
+		CameraStateCodec.encode(values, CameraStateCodec.Format.DOUBLE, chunk);
+		header.putLong(COUNT_OFFSET, ++sampleCount);
+	}
+
+	private MappedByteBuffer map(final long position, final long size)
+			throws IOException {
+		final MappedByteBuffer b = channel.map(FileChannel.MapMode.READ_WRITE,
+				position, size);
+		b.order(ByteOrder.LITTLE_ENDIAN);
+		return b;
+	}
+
+	/**
+	 * Flush the samples to disk and close the file. The file may still be
+	 * longer than its samples; the player goes by the header's count.
+	 */
+	public void close() throws IOException {
+		header.force();
+		if (chunk != null) {
+			chunk.force();
+		}
+		file.close();
+	}
+}
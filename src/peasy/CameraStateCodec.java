@@ -0,0 +1,251 @@
+/*
+   The PeasyCam Processing library, which provides an easy-peasy
+   camera for 3D sketching.
+  
+   Copyright 2008 Jonathan Feinberg
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package peasy;
+
+import java.nio.ByteBuffer;
+
+import peasy.org.apache.commons.math.geometry.Rotation;
+import peasy.org.apache.commons.math.geometry.Vector3D;
+
+/**
+ * Writes camera states to and reads them from ByteBuffers in fixed-size binary
+ * layouts, much smaller and faster than serializing a {@link CameraState}.
+ * 
+ * <p>
+ * States are either {@link CameraState}s or arrays laid out as by
+ * {@link CameraEngine#getState(double[])}: q0, q1, q2, q3, center x, y, z,
+ * distance. The array methods do not allocate. All methods read and write at
+ * the buffer's position and advance it, in the buffer's byte order.
+ */
+public class CameraStateCodec {
+	public static enum Format {
+		/** Eight doubles; exact. */
+		DOUBLE(64),
+		/** Eight floats. */
+		FLOAT(32),
+		/**
+		 * The quaternion in one long by the smallest-three method (the largest
+		 * component is dropped and the other three are kept to 20 bits), then
+		 * the center and distance as floats.
+		 */
+		SMALLEST_THREE(24);
+
+		/** Bytes per state. */
+		public final int size;
+
+		private Format(final int size) {
+			this.size = size;
+		}
+	}
+
+	private static final int BITS = 20;
+	private static final long MASK = (1L << BITS) - 1;
+	private static final double SQRT_HALF = Math.sqrt(0.5);
+
+	public static void encode(final CameraState state, final Format format,
+			final ByteBuffer out) {
+		final Rotation r = state.rotation;
+		final Vector3D c = state.center;
+		encode(r.getQ0(), r.getQ1(), r.getQ2(), r.getQ3(), c.getX(), c.getY(), c.getZ(),
+				state.distance, format, out);
+	}
+
+	public static CameraState decode(final Format format, final ByteBuffer in) {
+		final double[] s = decode(format, in, new double[8]);
+		return new CameraState(new Rotation(s[0], s[1], s[2], s[3], false), new Vector3D(
+				s[4], s[5], s[6]), s[7]);
+	}
+
+	public static void encode(final double[] state, final Format format,
+			final ByteBuffer out) {
+		encodeAt(state, 0, format, out);
+	}
+
+	public static double[] decode(final Format format, final ByteBuffer in,
+			final double[] out) {
+		return decodeAt(format, in, out, 0);
+	}
+
+	/**
+	 * Write count states.
+	 * 
+	 * @param states
+	 *            eight elements per state
+	 */
+	public static void encode(final double[] states, final int count,
+			final Format format, final ByteBuffer out) {
+		for (int i = 0; i < count; i++) {
+			encodeAt(states, 8 * i, format, out);
+		}
+	}
+
+	/**
+	 * Read count states.
+	 * 
+	 * @param out
+	 *            receives eight elements per state
+	 * @return out
+	 */
+	public static double[] decode(final Format format, final ByteBuffer in,
+			final double[] out, final int count) {
+		for (int i = 0; i < count; i++) {
+			decodeAt(format, in, out, 8 * i);
+		}
+		return out;
+	}
+
+	public static void encode(final CameraState[] states, final int offset,
+			final int count, final Format format, final ByteBuffer out) {
+		for (int i = offset; i < offset + count; i++) {
+			encode(states[i], format, out);
+		}
+	}
+
+	public static CameraState[] decode(final Format format, final ByteBuffer in,
+			final CameraState[] out, final int offset, final int count) {
+		for (int i = offset; i < offset + count; i++) {
+			out[i] = decode(format, in);
+		}
+		return out;
+	}
+
+	private static void encodeAt(final double[] s, final int i, final Format format,
+			final ByteBuffer out) {
+		encode(s[i], s[i + 1], s[i + 2], s[i + 3], s[i + 4], s[i + 5], s[i + 6], s[i + 7],
+				format, out);
+	}
+
+	private static void encode(final double q0, final double q1, final double q2,
+			final double q3, final double x, final double y, final double z,
+			final double distance, final Format format, final ByteBuffer out) {
+		switch (format) {
+		case DOUBLE:
+			out.putDouble(q0).putDouble(q1).putDouble(q2).putDouble(q3);
+			out.putDouble(x).putDouble(y).putDouble(z).putDouble(distance);
+			break;
+		case FLOAT:
+			out.putFloat((float)q0).putFloat((float)q1).putFloat((float)q2).putFloat(
+					(float)q3);
+			out.putFloat((float)x).putFloat((float)y).putFloat((float)z).putFloat(
+					(float)distance);
+			break;
+		case SMALLEST_THREE:
+			out.putLong(packQuaternion(q0, q1, q2, q3));
+			out.putFloat((float)x).putFloat((float)y).putFloat((float)z).putFloat(
+					(float)distance);
+			break;
+		}
+	}
+
+	private static double[] decodeAt(final Format format, final ByteBuffer in,
+			final double[] out, final int i) {
+		switch (format) {
+		case DOUBLE:
+			for (int k = 0; k < 8; k++) {
+				out[i + k] = in.getDouble();
+			}
+			break;
+		case FLOAT:
+			for (int k = 0; k < 8; k++) {
+				out[i + k] = in.getFloat();
+			}
+			break;
+		case SMALLEST_THREE:
+			unpackQuaternion(in.getLong(), out, i);
+			for (int k = 4; k < 8; k++) {
+				out[i + k] = in.getFloat();
+			}
+			break;
+		}
+		return out;
+	}
+
+	/**
+	 * The index of the largest component in the top two bits, then the other
+	 * three in order, 20 bits each. q and -q are the same rotation, so the
+	 * largest component is made positive and need not be stored.
+	 */
+	private static long packQuaternion(final double q0, final double q1,
+			final double q2, final double q3) {
+		int largest = 0;
+		double max = Math.abs(q0);
+		if (Math.abs(q1) > max) {
+			largest = 1;
+			max = Math.abs(q1);
+		}
+		if (Math.abs(q2) > max) {
+			largest = 2;
+			max = Math.abs(q2);
+		}
+		if (Math.abs(q3) > max) {
+			largest = 3;
+		}
+		final double sign = component(largest, q0, q1, q2, q3) < 0 ? -1 : 1;
+		long bits = (long)largest << (3 * BITS);
+		int shift = 2 * BITS;
+		for (int k = 0; k < 4; k++) {
+			if (k != largest) {
+				bits |= quantize(sign * component(k, q0, q1, q2, q3)) << shift;
+				shift -= BITS;
+			}
+		}
+		return bits;
+	}
+
+	private static double component(final int k, final double q0, final double q1,
+			final double q2, final double q3) {
+		switch (k) {
+		case 0:
+			return q0;
+		case 1:
+			return q1;
+		case 2:
+			return q2;
+		default:
+			return q3;
+		}
+	}
+
+	private static void unpackQuaternion(final long bits, final double[] out,
+			final int i) {
+		final int largest = (int)(bits >>> (3 * BITS));
+		int shift = 2 * BITS;
+		double sum = 0;
+		for (int k = 0; k < 4; k++) {
+			if (k != largest) {
+				final double c = dequantize((bits >>> shift) & MASK);
+				out[i + k] = c;
+				sum += c * c;
+				shift -= BITS;
+			}
+		}
+		out[i + largest] = Math.sqrt(Math.max(0, 1 - sum));
+	}
+
+	// the three smallest components of a unit quaternion lie in
+	// [-sqrt(1/2), sqrt(1/2)]
+	private static long quantize(final double c) {
+		final double t = (c / SQRT_HALF + 1) / 2;
+		return Math.round(Math.max(0, Math.min(1, t)) * MASK);
+	}
+
+	private static double dequantize(final long v) {
+		return ((double)v / MASK * 2 - 1) * SQRT_HALF;
+	}
+}
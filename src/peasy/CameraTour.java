@@ -0,0 +1,396 @@
+/*
+   The PeasyCam Processing library, which provides an easy-peasy
+   camera for 3D sketching.
+  
+   Copyright 2008 Jonathan Feinberg
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package peasy;
+
+import peasy.org.apache.commons.math.geometry.Rotation;
+import peasy.org.apache.commons.math.geometry.Vector3D;
+
+/**
+ * A smooth camera path through any number of keyframes, each reached at a
+ * given time. The look-at point and distance follow a Catmull-Rom spline and
+ * the rotation follows a SQUAD curve, so the camera passes through every
+ * keyframe without the jolt of chaining {@link PeasyCam#setState(CameraState,
+ * long)} calls.
+ * 
+ * <pre>
+ * tour = new CameraTour(keyframes, times);
+ * ...
+ * void draw() {
+ *   tour.apply(millis() - tourStart, cam);
+ *   ...
+ * }
+ * </pre>
+ * 
+ * <p>
+ * Everything that depends only on the keyframes is computed by the
+ * constructor: each segment's spline coefficients, its SQUAD control points,
+ * and the angles its slerps need. Finding the segment for a time is a binary
+ * search, skipped entirely when the time is in the same or the next segment
+ * as last time, as it is when playing forwards. Evaluating allocates nothing.
+ * A tour is not thread-safe; it keeps scratch space.
+ */
+public class CameraTour {
+	private final int keyCount;
+	private final double[] times;
+
+	// per segment: for x, y, z, distance in turn, c0, c1, c2, c3 of
+	// c0 + c1 u + c2 u^2 + c3 u^3, with u from 0 to 1 across the segment
+	private final double[] splines;
+
+	// per key, four components each: the keyframe's quaternion, each on the
+	// same hemisphere as the one before, and its SQUAD control points for the
+	// segments leaving and arriving at it
+	private final double[] keys;
+	private final double[] controlsOut, controlsIn;
+
+	// per segment: the angle between its keys' quaternions and between its
+	// control points, and the reciprocals of their sines (0 when tiny)
+	private final double[] keyAngles, keyInverseSines;
+	private final double[] controlAngles, controlInverseSines;
+
+	// cos(0.9); see Slerp.weight
+	private static final double FAST_SLERP_COS = 0.62;
+
+	private int lastSegment = 0;
+	private final double[] scratchKey = new double[4];
+	private final double[] scratchControl = new double[4];
+	private final double[] state = new double[8];
+
+	public CameraTour(final CameraState[] keyframes, final double[] timesMillis) {
+		this(flatten(keyframes), timesMillis);
+	}
+
+	/**
+	 * @param keyframes
+	 *            eight elements per keyframe, laid out as by
+	 *            {@link CameraEngine#getState(double[])}
+	 * @param timesMillis
+	 *            when each keyframe is reached, strictly increasing
+	 */
+	public CameraTour(final double[] keyframes, final double[] timesMillis) {
+		keyCount = timesMillis.length;
+		if (keyCount == 0 || keyframes.length != 8 * keyCount) {
+			throw new IllegalArgumentException("need eight values per keyframe, "
+					+ "and one time per keyframe");
+		}
+		for (int i = 1; i < keyCount; i++) {
+			if (!(timesMillis[i] > timesMillis[i - 1])) {
+				throw new IllegalArgumentException("keyframe times must increase");
+			}
+		}
+		times = timesMillis.clone();
+		final int segments = Math.max(keyCount - 1, 1);
+		splines = new double[16 * segments];
+		keys = new double[4 * keyCount];
+		controlsOut = new double[4 * keyCount];
+		controlsIn = new double[4 * keyCount];
+		keyAngles = new double[segments];
+		keyInverseSines = new double[segments];
+		controlAngles = new double[segments];
+		controlInverseSines = new double[segments];
+
+		buildSplines(keyframes);
+		buildQuaternions(keyframes);
+	}
+
+	private static double[] flatten(final CameraState[] keyframes) {
+		final double[] flat = new double[8 * keyframes.length];
+		for (int i = 0; i < keyframes.length; i++) {
+			final Rotation r = keyframes[i].rotation;
+			final Vector3D c = keyframes[i].center;
+			flat[8 * i] = r.getQ0();
+			flat[8 * i + 1] = r.getQ1();
+			flat[8 * i + 2] = r.getQ2();
+			flat[8 * i + 3] = r.getQ3();
+			flat[8 * i + 4] = c.getX();
+			flat[8 * i + 5] = c.getY();
+			flat[8 * i + 6] = c.getZ();
+			flat[8 * i + 7] = keyframes[i].distance;
+		}
+		return flat;
+	}
+
+	/**
+	 * Cubic Hermite segments whose tangent at each key, per millisecond, is the
+	 * mean of the slopes of the segments on either side of it; one-sided at the
+	 * ends. The tangents are shared, so the path is C1 in time.
+	 */
+	private void buildSplines(final double[] k) {
+		if (keyCount == 1) {
+			for (int c = 0; c < 4; c++) {
+				splines[4 * c] = k[4 + c];
+			}
+			return;
+		}
+		for (int s = 0; s < keyCount - 1; s++) {
+			final double h = times[s + 1] - times[s];
+			for (int c = 0; c < 4; c++) {
+				final double p0 = k[8 * s + 4 + c], p1 = k[8 * (s + 1) + 4 + c];
+				final double m0 = h * tangent(k, s, c), m1 = h * tangent(k, s + 1, c);
+				final int i = 16 * s + 4 * c;
+				splines[i] = p0;
+				splines[i + 1] = m0;
+				splines[i + 2] = 3 * (p1 - p0) - 2 * m0 - m1;
+				splines[i + 3] = 2 * (p0 - p1) + m0 + m1;
+			}
+		}
+	}
+
+	private double tangent(final double[] k, final int key, final int c) {
+		final double p = k[8 * key + 4 + c];
+		if (key == 0) {
+			return (k[8 + 4 + c] - p) / (times[1] - times[0]);
+		}
+		final double before = (p - k[8 * (key - 1) + 4 + c])
+				/ (times[key] - times[key - 1]);
+		if (key == keyCount - 1) {
+			return before;
+		}
+		final double after = (k[8 * (key + 1) + 4 + c] - p) / (times[key + 1] - times[key]);
+		return (before + after) / 2;
+	}
+
+	/**
+	 * SQUAD control points. With A = log(q<sub>i</sub><sup>-1</sup>
+	 * q<sub>i+1</sub>) and B = log(q<sub>i</sub><sup>-1</sup>
+	 * q<sub>i-1</sub>), the curve leaves key i at A + 2 log(q<sub>i</sub>
+	 * <sup>-1</sup> s) per unit of u and arrives at -B - 2 log(q<sub>i</sub>
+	 * <sup>-1</sup> s). The usual single control point, q<sub>i</sub> exp(-(A +
+	 * B) / 4), makes those equal per unit of u, which is only smooth in time if
+	 * the keys are evenly spaced. Separate control points on either side of
+	 * each key make both equal the mean of A and -B per millisecond instead.
+	 */
+	private void buildQuaternions(final double[] k) {
+		for (int i = 0; i < keyCount; i++) {
+			double sign = 1;
+			if (i > 0) {
+				final double dot = k[8 * i] * keys[4 * i - 4] + k[8 * i + 1]
+						* keys[4 * i - 3] + k[8 * i + 2] * keys[4 * i - 2] + k[8 * i + 3]
+						* keys[4 * i - 1];
+				sign = dot < 0 ? -1 : 1;
+			}
+			for (int c = 0; c < 4; c++) {
+				keys[4 * i + c] = sign * k[8 * i + c];
+			}
+		}
+
+		System.arraycopy(keys, 0, controlsOut, 0, 4 * keyCount);
+		System.arraycopy(keys, 0, controlsIn, 0, 4 * keyCount);
+		final double[] a = new double[4], b = new double[4], c = new double[4];
+		for (int i = 1; i < keyCount - 1; i++) {
+			relativeLog(i, i + 1, a);
+			relativeLog(i, i - 1, b);
+			final double after = times[i + 1] - times[i], before = times[i] - times[i - 1];
+			for (int j = 1; j < 4; j++) {
+				final double omega = (a[j] / after - b[j] / before) / 2;
+				c[j] = (after * omega - a[j]) / 2;
+			}
+			exp(c);
+			multiply(keys, 4 * i, c, 0, controlsOut, 4 * i);
+			for (int j = 1; j < 4; j++) {
+				final double omega = (a[j] / after - b[j] / before) / 2;
+				c[j] = -(before * omega + b[j]) / 2;
+			}
+			exp(c);
+			multiply(keys, 4 * i, c, 0, controlsIn, 4 * i);
+		}
+
+		for (int s = 0; s < keyCount - 1; s++) {
+			keyAngles[s] = angle(keys, 4 * s, keys, 4 * s + 4);
+			keyInverseSines[s] = inverseSine(keyAngles[s]);
+			controlAngles[s] = angle(controlsOut, 4 * s, controlsIn, 4 * s + 4);
+			controlInverseSines[s] = inverseSine(controlAngles[s]);
+		}
+	}
+
+	// log(q[a]^-1 q[b]) into out, a pure quaternion
+	private void relativeLog(final int a, final int b, final double[] out) {
+		final double[] conjugate = { keys[4 * a], -keys[4 * a + 1], -keys[4 * a + 2],
+				-keys[4 * a + 3] };
+		multiply(conjugate, 0, keys, 4 * b, out, 0);
+		final double vectorNorm = Math.sqrt(out[1] * out[1] + out[2] * out[2] + out[3]
+				* out[3]);
+		final double scale = vectorNorm < 1e-12 ? 0 : Math.atan2(vectorNorm, out[0])
+				/ vectorNorm;
+		out[0] = 0;
+		out[1] *= scale;
+		out[2] *= scale;
+		out[3] *= scale;
+	}
+
+	// exp of the pure quaternion q, in place
+	private static void exp(final double[] q) {
+		final double a = Math.sqrt(q[1] * q[1] + q[2] * q[2] + q[3] * q[3]);
+		final double scale = a < 1e-12 ? 1 : Math.sin(a) / a;
+		q[0] = Math.cos(a);
+		q[1] *= scale;
+		q[2] *= scale;
+		q[3] *= scale;
+	}
+
+	// the quaternion product a b, into out; out may not be a or b
+	private static void multiply(final double[] a, final int i, final double[] b,
+			final int j, final double[] out, final int k) {
+		final double a0 = a[i], a1 = a[i + 1], a2 = a[i + 2], a3 = a[i + 3];
+		final double b0 = b[j], b1 = b[j + 1], b2 = b[j + 2], b3 = b[j + 3];
+		out[k] = a0 * b0 - a1 * b1 - a2 * b2 - a3 * b3;
+		out[k + 1] = a0 * b1 + a1 * b0 + a2 * b3 - a3 * b2;
+		out[k + 2] = a0 * b2 - a1 * b3 + a2 * b0 + a3 * b1;
+		out[k + 3] = a0 * b3 + a1 * b2 - a2 * b1 + a3 * b0;
+	}
+
+	// the angle between the quaternions a[i] and b[j]
+	private static double angle(final double[] a, final int i, final double[] b,
+			final int j) {
+		final double dot = a[i] * b[j] + a[i + 1] * b[j + 1] + a[i + 2] * b[j + 2] + a[i + 3]
+				* b[j + 3];
+		return Math.acos(Math.max(-1, Math.min(1, dot)));
+	}
+
+	private static double inverseSine(final double angle) {
+		final double sin = Math.sin(angle);
+		return sin > 0.001 ? 1 / sin : 0;
+	}
+
+	public int getKeyCount() {
+		return keyCount;
+	}
+
+	public double getStartMillis() {
+		return times[0];
+	}
+
+	public double getEndMillis() {
+		return times[keyCount - 1];
+	}
+
+	/**
+	 * @return the segment containing time, which is within the tour
+	 */
+	int segment(final double time) {
+		if (keyCount <= 2) {
+			return 0;
+		}
+		int s = lastSegment;
+		if (time >= times[s] && time <= times[s + 1]) {
+			return s;
+		}
+		if (s + 2 < keyCount && time >= times[s + 1] && time <= times[s + 2]) {
+			return lastSegment = s + 1;
+		}
+		int lo = 0, hi = keyCount - 2;
+		while (lo < hi) {
+			final int mid = (lo + hi + 1) >>> 1;
+			if (times[mid] <= time) {
+				lo = mid;
+			} else {
+				hi = mid - 1;
+			}
+		}
+		return lastSegment = lo;
+	}
+
+	/**
+	 * Compute the camera at a time; times outside the tour are clamped to it.
+	 * 
+	 * @param out
+	 *            receives the state, laid out as by
+	 *            {@link CameraEngine#getState(double[])}
+	 * @return out
+	 */
+	public double[] getState(final double timeMillis, final double[] out) {
+		if (keyCount == 1) {
+			System.arraycopy(keys, 0, out, 0, 4);
+			for (int c = 0; c < 4; c++) {
+				out[4 + c] = splines[4 * c];
+			}
+			return out;
+		}
+		final double time = Math.max(times[0], Math.min(timeMillis, times[keyCount - 1]));
+		final int s = segment(time);
+		final double u = (time - times[s]) / (times[s + 1] - times[s]);
+
+		for (int c = 0; c < 4; c++) {
+			final int i = 16 * s + 4 * c;
+			out[4 + c] = splines[i] + u
+					* (splines[i + 1] + u * (splines[i + 2] + u * splines[i + 3]));
+		}
+
+		// squad = slerp(slerp(q0, q1, u), slerp(s0, s1, u), 2u(1 - u))
+		final double[] p = scratchKey, q = scratchControl;
+		slerp(keys, 4 * s, keys, 4 * s + 4, keyAngles[s], keyInverseSines[s], u, p);
+		slerp(controlsOut, 4 * s, controlsIn, 4 * s + 4, controlAngles[s],
+				controlInverseSines[s], u, q);
+		final double h = 2 * u * (1 - u);
+		// the two inner curves stay close, so this angle is small and the slerp
+		// weights come from a polynomial in its cosine; Math.acos is slow
+		final double dot = p[0] * q[0] + p[1] * q[1] + p[2] * q[2] + p[3] * q[3];
+		final double w1, w2;
+		if (dot >= FAST_SLERP_COS) {
+			w1 = Slerp.weight(dot, 1 - h);
+			w2 = Slerp.weight(dot, h);
+		} else {
+			final double angle = Math.acos(Math.max(-1, dot));
+			final double sin = Math.sin(angle);
+			w1 = Math.sin((1 - h) * angle) / sin;
+			w2 = Math.sin(h * angle) / sin;
+		}
+		for (int c = 0; c < 4; c++) {
+			out[c] = w1 * p[c] + w2 * q[c];
+		}
+		return out;
+	}
+
+	public CameraState getState(final double timeMillis) {
+		final double[] s = getState(timeMillis, new double[8]);
+		return new CameraState(new Rotation(s[0], s[1], s[2], s[3], true), new Vector3D(
+				s[4], s[5], s[6]), s[7]);
+	}
+
+	public void apply(final double timeMillis, final PeasyCam cam) {
+		apply(timeMillis, cam.getEngine());
+	}
+
+	/**
+	 * Put the camera where the tour is at a time.
+	 */
+	public void apply(final double timeMillis, final CameraEngine engine) {
+		engine.setState(getState(timeMillis, state));
+	}
+
+	private static void slerp(final double[] a, final int i, final double[] b,
+			final int j, final double angle, final double inverseSine, final double u,
+			final double[] out) {
+		final double w1, w2;
+		if (inverseSine == 0) {
+			w1 = 1 - u;
+			w2 = u;
+		} else {
+			w1 = sine((1 - u) * angle) * inverseSine;
+			w2 = sine(u * angle) * inverseSine;
+		}
+		for (int c = 0; c < 4; c++) {
+			out[c] = w1 * a[i + c] + w2 * b[j + c];
+		}
+	}
+
+	private static double sine(final double x) {
+		return x <= Math.PI / 2 ? Slerp.sin(x) : Math.sin(x);
+	}
+}
@@ -0,0 +1,241 @@
+/*
+   The PeasyCam Processing library, which provides an easy-peasy
+   camera for 3D sketching.
+  
+   Copyright 2008 Jonathan Feinberg
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package peasy;
+
+import peasy.org.apache.commons.math.geometry.Vector3D;
+
+/**
+ * Projection * view, the matrix taking world coordinates to OpenGL clip
+ * coordinates, with the view built exactly as PGraphics.camera() builds it.
+ * Shared by {@link Frustum} and {@link PeasyCam}'s picking and projection, and
+ * kept as scratch space so that none of them allocate.
+ */
+class ClipMatrix {
+	// row-major
+	final double[] m = new double[16];
+	private final double[] view = new double[16];
+	private final double[] inverse = new double[16];
+	private boolean inverseValid = false;
+
+	/**
+	 * The matrix PGraphicsOpenGL.perspective() builds, row-major.
+	 */
+	static float[] perspective(final double fov, final double aspect,
+			final double near, final double far, final float[] out) {
+		final double ymax = near * Math.tan(fov / 2);
+		final double xmax = ymax * aspect;
+		for (int i = 0; i < 16; i++) {
+			out[i] = 0;
+		}
+		out[0] = (float)(near / xmax);
+		out[5] = (float)(-near / ymax);
+		out[10] = (float)(-(far + near) / (far - near));
+		out[11] = (float)(-2 * far * near / (far - near));
+		out[14] = -1;
+		return out;
+	}
+
+	/**
+	 * The perspective a PGraphics of this size starts with.
+	 */
+	static float[] defaultPerspective(final int width, final int height,
+			final float[] out) {
+		final double fov = Math.PI / 3;
+		final double cameraZ = height / 2.0 / Math.tan(fov / 2);
+		return perspective(fov, (double)width / height, cameraZ / 10, cameraZ * 10, out);
+	}
+
+	ClipMatrix set(final float[] projection, final CameraState state) {
+		final Vector3D eye = state.rotation.applyTo(CameraEngine.LOOK).scalarMultiply(
+				state.distance).add(state.center);
+		final Vector3D up = state.rotation.applyTo(CameraEngine.UP);
+		return set(projection, eye.getX(), eye.getY(), eye.getZ(), state.center.getX(),
+				state.center.getY(), state.center.getZ(), up.getX(), up.getY(), up.getZ());
+	}
+
+	ClipMatrix set(final float[] projection, final float[] camera) {
+		return set(projection, camera[0], camera[1], camera[2], camera[3], camera[4],
+				camera[5], camera[6], camera[7], camera[8]);
+	}
+
+	ClipMatrix set(final float[] p, final double eyeX, final double eyeY,
+			final double eyeZ, final double centerX, final double centerY,
+			final double centerZ, final double upX, final double upY, final double upZ) {
+		// the modelview PGraphics.camera() would build
+		double z0 = eyeX - centerX;
+		double z1 = eyeY - centerY;
+		double z2 = eyeZ - centerZ;
+		final double zn = Math.sqrt(z0 * z0 + z1 * z1 + z2 * z2);
+		z0 /= zn;
+		z1 /= zn;
+		z2 /= zn;
+
+		double x0 = upY * z2 - upZ * z1;
+		double x1 = -upX * z2 + upZ * z0;
+		double x2 = upX * z1 - upY * z0;
+		double y0 = z1 * x2 - z2 * x1;
+		double y1 = -z0 * x2 + z2 * x0;
+		double y2 = z0 * x1 - z1 * x0;
+		final double xn = Math.sqrt(x0 * x0 + x1 * x1 + x2 * x2);
+		x0 /= xn;
+		x1 /= xn;
+		x2 /= xn;
+		final double yn = Math.sqrt(y0 * y0 + y1 * y1 + y2 * y2);
+		y0 /= yn;
+		y1 /= yn;
+		y2 /= yn;
+
+		final double[] v = view;
+		v[0] = x0;
+		v[1] = x1;
+		v[2] = x2;
+		v[3] = -(x0 * eyeX + x1 * eyeY + x2 * eyeZ);
+		v[4] = y0;
+		v[5] = y1;
+		v[6] = y2;
+		v[7] = -(y0 * eyeX + y1 * eyeY + y2 * eyeZ);
+		v[8] = z0;
+		v[9] = z1;
+		v[10] = z2;
+		v[11] = -(z0 * eyeX + z1 * eyeY + z2 * eyeZ);
+		v[12] = 0;
+		v[13] = 0;
+		v[14] = 0;
+		v[15] = 1;
+
+		for (int row = 0; row < 4; row++) {
+			for (int col = 0; col < 4; col++) {
+				double sum = 0;
+				for (int k = 0; k < 4; k++) {
+					sum += p[4 * row + k] * v[4 * k + col];
+				}
+				m[4 * row + col] = sum;
+			}
+		}
+		inverseValid = false;
+		return this;
+	}
+
+	/**
+	 * Project world points to screen coordinates the way PGraphics.screenX()
+	 * and screenY() do. Points behind the eye get NaN.
+	 */
+	void project(final float[] x, final float[] y, final float[] z, final int count,
+			final float width, final float height, final float[] screen) {
+		final double[] a = m;
+		for (int i = 0; i < count; i++) {
+			final double px = x[i], py = y[i], pz = z[i];
+			final double w = a[12] * px + a[13] * py + a[14] * pz + a[15];
+			if (w <= 0) {
+				screen[2 * i] = Float.NaN;
+				screen[2 * i + 1] = Float.NaN;
+				continue;
+			}
+			final double cx = a[0] * px + a[1] * py + a[2] * pz + a[3];
+			final double cy = a[4] * px + a[5] * py + a[6] * pz + a[7];
+			// Processing's y axis points down the screen
+			screen[2 * i] = (float)(width * (1 + cx / w) / 2);
+			screen[2 * i + 1] = (float)(height * (1 - cy / w) / 2);
+		}
+	}
+
+	/**
+	 * The ray through a screen point, from the near plane away from the eye.
+	 * 
+	 * @param ray
+	 *            receives originX, originY, originZ, and a unit direction
+	 */
+	void unproject(final float screenX, final float screenY, final float width,
+			final float height, final float[] ray) {
+		if (!inverseValid) {
+			invert();
+		}
+		final double[] a = inverse;
+		final double nx = 2.0 * screenX / width - 1;
+		final double ny = 1 - 2.0 * screenY / height;
+
+		// clip (nx, ny, -1, 1) and (nx, ny, 1, 1) back to world
+		final double bx = a[0] * nx + a[1] * ny + a[3];
+		final double by = a[4] * nx + a[5] * ny + a[7];
+		final double bz = a[8] * nx + a[9] * ny + a[11];
+		final double bw = a[12] * nx + a[13] * ny + a[15];
+		final double nearW = bw - a[14], farW = bw + a[14];
+		final double x0 = (bx - a[2]) / nearW, x1 = (bx + a[2]) / farW;
+		final double y0 = (by - a[6]) / nearW, y1 = (by + a[6]) / farW;
+		final double z0 = (bz - a[10]) / nearW, z1 = (bz + a[10]) / farW;
+
+		final double dx = x1 - x0, dy = y1 - y0, dz = z1 - z0;
+		final double inv = 1 / Math.sqrt(dx * dx + dy * dy + dz * dz);
+		ray[0] = (float)x0;
+		ray[1] = (float)y0;
+		ray[2] = (float)z0;
+		ray[3] = (float)(dx * inv);
+		ray[4] = (float)(dy * inv);
+		ray[5] = (float)(dz * inv);
+	}
+
+	/**
+	 * Gauss-Jordan elimination with partial pivoting, into inverse.
+	 */
+	private void invert() {
+		final double[] a = view; // the view is no longer needed
+		System.arraycopy(m, 0, a, 0, 16);
+		final double[] b = inverse;
+		for (int i = 0; i < 16; i++) {
+			b[i] = i % 5 == 0 ? 1 : 0;
+		}
+		for (int col = 0; col < 4; col++) {
+			int pivot = col;
+			for (int row = col + 1; row < 4; row++) {
+				if (Math.abs(a[4 * row + col]) > Math.abs(a[4 * pivot + col])) {
+					pivot = row;
+				}
+			}
+			if (a[4 * pivot + col] == 0) {
+				throw new IllegalStateException("the camera's projection is singular");
+			}
+			if (pivot != col) {
+				for (int k = 0; k < 4; k++) {
+					double t = a[4 * col + k];
+					a[4 * col + k] = a[4 * pivot + k];
+					a[4 * pivot + k] = t;
+					t = b[4 * col + k];
+					b[4 * col + k] = b[4 * pivot + k];
+					b[4 * pivot + k] = t;
+				}
+			}
+			final double inv = 1 / a[4 * col + col];
+			for (int k = 0; k < 4; k++) {
+				a[4 * col + k] *= inv;
+				b[4 * col + k] *= inv;
+			}
+			for (int row = 0; row < 4; row++) {
+				final double f = a[4 * row + col];
+				if (row == col || f == 0) {
+					continue;
+				}
+				for (int k = 0; k < 4; k++) {
+					a[4 * row + k] -= f * a[4 * col + k];
+					b[4 * row + k] -= f * b[4 * col + k];
+				}
+			}
+		}
+		inverseValid = true;
+	}
+}
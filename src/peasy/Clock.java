@@ -0,0 +1,32 @@
+/*
+   The PeasyCam Processing library, which provides an easy-peasy
+   camera for 3D sketching.
+  
+   Copyright 2008 Jonathan Feinberg
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package peasy;
+
+/**
+ * The time source a {@link CameraEngine} animates against. PeasyCam supplies
+ * one backed by PApplet.millis(); see also {@link WallClock},
+ * {@link ManualClock} and {@link FixedStepClock}.
+ */
+public interface Clock {
+	/**
+	 * @return the current time in milliseconds; only differences between
+	 *         readings are meaningful
+	 */
+	public double millis();
+}
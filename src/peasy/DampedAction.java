@@ -27,39 +27,117 @@ package peasy;
  * 
  */
 abstract public class DampedAction {
-	private final PeasyCam p;
+	/**
+	 * The motion advances in fixed steps of this length, whatever the frame
+	 * rate. 60 steps per second is the rate the default friction was tuned at.
+	 */
+	private static final double STEP_MILLIS = 1000.0 / 60;
+
+	/**
+	 * A frame longer than this (a hitch, or a sketch that was paused) is
+	 * treated as if it were this long.
+	 */
+	private static final double MAX_FRAME_MILLIS = 250;
+
+	private final CameraEngine p;
 	private double velocity;
-	private final double damping;
+	private double decayRate;
+	private double damping;
+
+	// time not yet consumed by whole steps, and how much of the current step
+	// has already been handed to behave(), both in steps
+	private double pending = 0;
+	private double applied = 0;
+	private double lastMillis;
 
 	public DampedAction(final PeasyCam p) {
-		this(p, 0.16);
+		this(p.getEngine());
 	}
 
 	public DampedAction(final PeasyCam p, final double friction) {
+		this(p.getEngine(), friction);
+	}
+
+	public DampedAction(final CameraEngine p) {
+		this(p, 0.16);
+	}
+
+	/**
+	 * @param friction
+	 *            the fraction of its velocity the action loses every 1/60th of
+	 *            a second
+	 */
+	public DampedAction(final CameraEngine p, final double friction) {
 		this.p = p;
 		this.velocity = 0;
-		this.damping = 1.0 - friction;
-		p.getApplet().registerMethod("draw", this);
+		setDecayRate(-Math.log(1.0 - friction) * 1000 / STEP_MILLIS);
+		this.lastMillis = p.getClock().millis();
+		p.addDampedAction(this);
+	}
+
+	/**
+	 * @return the rate k, per second, at which velocity decays as
+	 *         e<sup>-k&middot;seconds</sup>
+	 */
+	public double getDecayRate() {
+		return decayRate;
+	}
+
+	public void setDecayRate(final double decayRate) {
+		this.decayRate = decayRate;
+		this.damping = Math.exp(-decayRate * STEP_MILLIS / 1000);
 	}
 
 	public void impulse(final double impulse) {
 		velocity += impulse;
 	}
 
+	/**
+	 * Advance by however much time has passed since the last frame. Whole steps
+	 * are integrated with the per-step damping; the part of a step left over at
+	 * the end of the frame is applied in proportion, and the rest of that step
+	 * is applied at the start of the next frame. The motion therefore traces
+	 * the same path at 30 or 144 frames per second.
+	 */
 	public void draw() {
+		final double now = p.getClock().millis();
+		final double elapsed = Math.max(0, Math.min(now - lastMillis, MAX_FRAME_MILLIS));
+		lastMillis = now;
 		if (velocity == 0) {
+			pending = 0;
+			applied = 0;
 			return;
 		}
-		behave(velocity);
-		p.feed();
-		velocity *= damping;
-		if (Math.abs(velocity) < .001) {
-			velocity = 0;
+		pending += elapsed / STEP_MILLIS;
+		while (pending >= 1) {
+			behave(velocity * (1 - applied));
+			velocity *= damping;
+			pending -= 1;
+			applied = 0;
+			if (Math.abs(velocity) < .001) {
+				stop();
+				p.markDirty();
+				return;
+			}
+		}
+		if (pending > applied) {
+			behave(velocity * (pending - applied));
+			applied = pending;
 		}
+		p.markDirty();
+	}
+
+	/**
+	 * Start measuring elapsed time afresh, from the engine's current clock.
+	 */
+	void resync() {
+		lastMillis = p.getClock().millis();
 	}
 
 	public void stop() {
 		velocity = 0;
+		pending = 0;
+		applied = 0;
 	}
 
 	abstract protected void behave(final double velocity);
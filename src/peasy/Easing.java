@@ -0,0 +1,316 @@
+/*
+   The PeasyCam Processing library, which provides an easy-peasy
+   camera for 3D sketching.
+  
+   Copyright 2008 Jonathan Feinberg
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package peasy;
+
+/**
+ * A curve mapping the linear progress of an animation, from 0 to 1, to how far
+ * along the animation should be. Curves may overshoot (see {@link #BACK_OUT}
+ * and {@link #ELASTIC_OUT}) but all start at 0 and end at 1.
+ * 
+ * <p>
+ * {@link #bake(int)} samples any curve into a lookup table, which is cheaper
+ * than evaluating pow() or sin() when many things follow the same curve:
+ * 
+ * <pre>
+ * Easing ease = Easing.ELASTIC_OUT.bake(256);
+ * cam.setEasing(ease);
+ * ...
+ * for (int i = 0; i &lt; count; i++) {
+ *   size[i] = lerp(small, big, (float)ease.ease(t));
+ * }
+ * </pre>
+ * 
+ * @see CameraEngine#setEasing(Easing)
+ */
+public abstract class Easing {
+	/**
+	 * @param t
+	 *            progress, from 0 to 1
+	 * @return how far along the animation should be
+	 */
+	public abstract double ease(double t);
+
+	/**
+	 * Sample this curve at size + 1 evenly spaced points, and interpolate
+	 * linearly between them.
+	 * 
+	 * @param size
+	 *            the number of intervals; 64 to 256 is plenty for a smooth
+	 *            curve, more for elastic ones
+	 */
+	public Easing bake(final int size) {
+		if (size < 1) {
+			throw new IllegalArgumentException("a table needs at least one interval");
+		}
+		final float[] table = new float[size + 2];
+		for (int i = 0; i <= size; i++) {
+			table[i] = (float)ease((double)i / size);
+		}
+		// a copy of the last sample, so that t == 1 needs no special case
+		table[size + 1] = table[size];
+		return new Easing() {
+			@Override
+			public double ease(final double t) {
+				final double x = (t <= 0 ? 0 : t >= 1 ? 1 : t) * size;
+				final int i = (int)x;
+				final float a = table[i];
+				return a + (x - i) * (table[i + 1] - a);
+			}
+		};
+	}
+
+	public static final Easing LINEAR = new Easing() {
+		@Override
+		public double ease(final double t) {
+			return t;
+		}
+	};
+
+	/**
+	 * 3t<sup>2</sup> - 2t<sup>3</sup>, as used by
+	 * {@link InterpolationUtil#smooth(double, double, double)}.
+	 */
+	public static final Easing SMOOTHSTEP = new Easing() {
+		@Override
+		public double ease(final double t) {
+			return t * t * (3 - 2 * t);
+		}
+	};
+
+	public static final Easing CUBIC_IN = new Easing() {
+		@Override
+		public double ease(final double t) {
+			return t * t * t;
+		}
+	};
+
+	public static final Easing CUBIC_OUT = new Easing() {
+		@Override
+		public double ease(final double t) {
+			final double u = 1 - t;
+			return 1 - u * u * u;
+		}
+	};
+
+	public static final Easing CUBIC_IN_OUT = new Easing() {
+		@Override
+		public double ease(final double t) {
+			if (t < 0.5) {
+				return 4 * t * t * t;
+			}
+			final double u = 2 - 2 * t;
+			return 1 - u * u * u / 2;
+		}
+	};
+
+	public static final Easing QUINT_IN = new Easing() {
+		@Override
+		public double ease(final double t) {
+			return t * t * t * t * t;
+		}
+	};
+
+	public static final Easing QUINT_OUT = new Easing() {
+		@Override
+		public double ease(final double t) {
+			final double u = 1 - t;
+			return 1 - u * u * u * u * u;
+		}
+	};
+
+	public static final Easing QUINT_IN_OUT = new Easing() {
+		@Override
+		public double ease(final double t) {
+			if (t < 0.5) {
+				return 16 * t * t * t * t * t;
+			}
+			final double u = 2 - 2 * t;
+			return 1 - u * u * u * u * u / 2;
+		}
+	};
+
+	public static final Easing EXPO_IN = new Easing() {
+		@Override
+		public double ease(final double t) {
+			return t <= 0 ? 0 : Math.pow(2, 10 * t - 10);
+		}
+	};
+
+	public static final Easing EXPO_OUT = new Easing() {
+		@Override
+		public double ease(final double t) {
+			return t >= 1 ? 1 : 1 - Math.pow(2, -10 * t);
+		}
+	};
+
+	public static final Easing EXPO_IN_OUT = new Easing() {
+		@Override
+		public double ease(final double t) {
+			if (t <= 0) {
+				return 0;
+			}
+			if (t >= 1) {
+				return 1;
+			}
+			return t < 0.5 ? Math.pow(2, 20 * t - 10) / 2
+					: (2 - Math.pow(2, 10 - 20 * t)) / 2;
+		}
+	};
+
+	// the usual overshoot of about 10%
+	private static final double BACK = 1.70158;
+
+	public static final Easing BACK_IN = new Easing() {
+		@Override
+		public double ease(final double t) {
+			return t * t * ((BACK + 1) * t - BACK);
+		}
+	};
+
+	public static final Easing BACK_OUT = new Easing() {
+		@Override
+		public double ease(final double t) {
+			final double u = t - 1;
+			return 1 + u * u * ((BACK + 1) * u + BACK);
+		}
+	};
+
+	public static final Easing BACK_IN_OUT = new Easing() {
+		@Override
+		public double ease(final double t) {
+			final double s = BACK * 1.525;
+			if (t < 0.5) {
+				final double u = 2 * t;
+				return u * u * ((s + 1) * u - s) / 2;
+			}
+			final double u = 2 * t - 2;
+			return (u * u * ((s + 1) * u + s) + 2) / 2;
+		}
+	};
+
+	public static final Easing ELASTIC_IN = new Easing() {
+		@Override
+		public double ease(final double t) {
+			if (t <= 0) {
+				return 0;
+			}
+			if (t >= 1) {
+				return 1;
+			}
+			return -Math.pow(2, 10 * t - 10) * Math.sin((10 * t - 10.75) * (2 * Math.PI / 3));
+		}
+	};
+
+	public static final Easing ELASTIC_OUT = new Easing() {
+		@Override
+		public double ease(final double t) {
+			if (t <= 0) {
+				return 0;
+			}
+			if (t >= 1) {
+				return 1;
+			}
+			return Math.pow(2, -10 * t) * Math.sin((10 * t - 0.75) * (2 * Math.PI / 3)) + 1;
+		}
+	};
+
+	public static final Easing ELASTIC_IN_OUT = new Easing() {
+		@Override
+		public double ease(final double t) {
+			if (t <= 0) {
+				return 0;
+			}
+			if (t >= 1) {
+				return 1;
+			}
+			final double s = Math.sin((20 * t - 11.125) * (2 * Math.PI / 4.5));
+			return t < 0.5 ? -Math.pow(2, 20 * t - 10) * s / 2 : Math.pow(2, 10 - 20 * t)
+					* s / 2 + 1;
+		}
+	};
+
+	/**
+	 * A cubic Bezier from (0, 0) to (1, 1) with control points (x1, y1) and
+	 * (x2, y2), like CSS's cubic-bezier(). x1 and x2 must be within [0, 1], so
+	 * that the curve is a function of t.
+	 */
+	public static Easing bezier(final double x1, final double y1, final double x2,
+			final double y2) {
+		if (x1 < 0 || x1 > 1 || x2 < 0 || x2 > 1) {
+			throw new IllegalArgumentException("x1 and x2 must be within [0, 1]");
+		}
+		return new Easing() {
+			@Override
+			public double ease(final double t) {
+				if (t <= 0) {
+					return 0;
+				}
+				if (t >= 1) {
+					return 1;
+				}
+				return curve(y1, y2, solve(t));
+			}
+
+			/**
+			 * Find the curve parameter s at which x(s) = x: Newton's method, with
+			 * bisection when the slope is too flat.
+			 */
+			private double solve(final double x) {
+				double s = x;
+				for (int i = 0; i < 8; i++) {
+					final double error = curve(x1, x2, s) - x;
+					if (Math.abs(error) < 1e-7) {
+						return s;
+					}
+					final double slope = slope(x1, x2, s);
+					if (Math.abs(slope) < 1e-6) {
+						break;
+					}
+					s -= error / slope;
+				}
+				double lo = 0, hi = 1;
+				s = x;
+				for (int i = 0; i < 40; i++) {
+					final double value = curve(x1, x2, s);
+					if (Math.abs(value - x) < 1e-7) {
+						break;
+					}
+					if (value < x) {
+						lo = s;
+					} else {
+						hi = s;
+					}
+					s = (lo + hi) / 2;
+				}
+				return s;
+			}
+		};
+	}
+
+	// one coordinate of the curve from 0 to 1 with control values c1, c2
+	private static double curve(final double c1, final double c2, final double s) {
+		final double u = 1 - s;
+		return 3 * u * u * s * c1 + 3 * u * s * s * c2 + s * s * s;
+	}
+
+	private static double slope(final double c1, final double c2, final double s) {
+		final double u = 1 - s;
+		return 3 * u * u * c1 + 6 * u * s * (c2 - c1) + 3 * s * s * (1 - c2);
+	}
+}
@@ -0,0 +1,104 @@
+/*
+   The PeasyCam Processing library, which provides an easy-peasy
+   camera for 3D sketching.
+  
+   Copyright 2008 Jonathan Feinberg
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package peasy;
+
+import processing.core.PApplet;
+
+/**
+ * A virtual clock that advances by exactly one frame every time it is ticked,
+ * however long the frame really took. Animations then depend only on the
+ * number of frames drawn, so the same input always produces the same frames,
+ * and rendering may run faster or slower than real time.
+ * 
+ * <p>
+ * Tick it once per frame, however many cameras share it: either call
+ * {@link #tick()} yourself, before the cameras step, or {@link #attach} it to
+ * the sketch so that the sketch's "pre" hook does. Setting the clock on a
+ * camera does neither.
+ * </p>
+ * 
+ * <pre>
+ * FixedStepClock clock = new FixedStepClock(30); // 30 frames per animated second
+ * clock.attach(this);
+ * cam.setClock(clock);
+ * </pre>
+ */
+public class FixedStepClock implements Clock {
+	private final double stepMillis;
+	private long frames = 0;
+	private PApplet sketch;
+
+	/**
+	 * @param framesPerSecond
+	 *            how many frames make one second of animation
+	 */
+	public FixedStepClock(final double framesPerSecond) {
+		if (!(framesPerSecond > 0)) {
+			throw new IllegalArgumentException("frames per second must be positive");
+		}
+		this.stepMillis = 1000 / framesPerSecond;
+	}
+
+	/**
+	 * @return the number of frames so far times the frame length; computed
+	 *         afresh from the count, so no rounding error accumulates
+	 */
+	public double millis() {
+		return frames * stepMillis;
+	}
+
+	public long getFrameCount() {
+		return frames;
+	}
+
+	/**
+	 * Advance one frame. Call it once per frame, before the cameras step,
+	 * unless the clock is attached to a sketch.
+	 */
+	public void tick() {
+		frames++;
+	}
+
+	/**
+	 * Tick once per frame of a sketch, from its "pre" hook, until detached. A
+	 * clock is attached to one sketch at a time; attaching it again moves it.
+	 */
+	public void attach(final PApplet sketch) {
+		detach();
+		this.sketch = sketch;
+		sketch.registerMethod("pre", this);
+	}
+
+	/**
+	 * Stop ticking with the sketch the clock is attached to, if any.
+	 */
+	public void detach() {
+		if (sketch != null) {
+			sketch.unregisterMethod("pre", this);
+			sketch = null;
+		}
+	}
+
+	/**
+	 * Tick; called by the sketch the clock is attached to.
+	 */
+	public void pre() {
+		tick();
+	}
+}
@@ -0,0 +1,247 @@
+/*
+   The PeasyCam Processing library, which provides an easy-peasy
+   camera for 3D sketching.
+  
+   Copyright 2008 Jonathan Feinberg
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package peasy;
+
+import java.util.BitSet;
+
+/**
+ * The six planes bounding what a camera can see, for skipping geometry that
+ * would not be drawn anyway.
+ * 
+ * <p>
+ * The bulk tests take their items as parallel primitive arrays (one array per
+ * coordinate) and report the visible ones in a {@link BitSet}, so a sketch can
+ * keep its instances in flat arrays and cull all of them in one call:
+ * 
+ * <pre>
+ * cam.getFrustum(frustum);
+ * frustum.cullSpheres(x, y, z, radius, count, visible);
+ * for (int i = visible.nextSetBit(0); i &gt;= 0; i = visible.nextSetBit(i + 1)) {
+ *   drawInstance(i);
+ * }
+ * </pre>
+ * 
+ * <p>
+ * The tests are conservative: anything reported invisible is certainly outside,
+ * but a few things just outside a corner may be reported visible.
+ */
+public class Frustum {
+	public static final int LEFT = 0, RIGHT = 1, BOTTOM = 2, TOP = 3, NEAR = 4, FAR = 5;
+
+	// a, b, c, d for each plane; a*x + b*y + c*z + d is the signed distance of
+	// (x, y, z) from the plane, positive on the inside
+	private final float[] planes = new float[24];
+
+	// scratch space for building the planes from a camera
+	private final ClipMatrix clip = new ClipMatrix();
+
+	/**
+	 * Set the planes from a combined projection * modelview matrix, as used by
+	 * OpenGL: a point is inside when every clip coordinate lies within
+	 * [-w, w].
+	 * 
+	 * @param m
+	 *            16 elements, row-major (m[1] is row 0, column 1)
+	 * @return this
+	 */
+	public Frustum set(final double[] m) {
+		for (int i = 0; i < 3; i++) {
+			setPlane(2 * i, m[12] + m[4 * i], m[13] + m[4 * i + 1], m[14] + m[4 * i + 2],
+					m[15] + m[4 * i + 3]);
+			setPlane(2 * i + 1, m[12] - m[4 * i], m[13] - m[4 * i + 1], m[14]
+					- m[4 * i + 2], m[15] - m[4 * i + 3]);
+		}
+		return this;
+	}
+
+	/**
+	 * Set the planes from a projection matrix and a camera.
+	 * 
+	 * @param projection
+	 *            16 elements, row-major, e.g. the fields of PGraphicsOpenGL's
+	 *            projection matrix
+	 * @param camera
+	 *            eyeX, eyeY, eyeZ, centerX, centerY, centerZ, upX, upY, upZ, as
+	 *            passed to PGraphics.camera() and filled in by
+	 *            {@link CameraEngine#getCamera(float[])}
+	 * @return this
+	 */
+	public Frustum set(final float[] projection, final float[] camera) {
+		return set(projection, camera[0], camera[1], camera[2], camera[3], camera[4],
+				camera[5], camera[6], camera[7], camera[8]);
+	}
+
+	/**
+	 * Set the planes from a projection matrix and a camera state.
+	 * 
+	 * @param projection
+	 *            16 elements, row-major
+	 * @param state
+	 *            where the camera is
+	 * @return this
+	 */
+	public Frustum set(final float[] projection, final CameraState state) {
+		return set(clip.set(projection, state).m);
+	}
+
+	private Frustum set(final float[] p, final double eyeX, final double eyeY,
+			final double eyeZ, final double centerX, final double centerY,
+			final double centerZ, final double upX, final double upY, final double upZ) {
+		return set(clip.set(p, eyeX, eyeY, eyeZ, centerX, centerY, centerZ, upX, upY,
+				upZ).m);
+	}
+
+	private void setPlane(final int plane, final double a, final double b,
+			final double c, final double d) {
+		final double inv = 1 / Math.sqrt(a * a + b * b + c * c);
+		planes[4 * plane] = (float)(a * inv);
+		planes[4 * plane + 1] = (float)(b * inv);
+		planes[4 * plane + 2] = (float)(c * inv);
+		planes[4 * plane + 3] = (float)(d * inv);
+	}
+
+	/**
+	 * @param plane
+	 *            one of LEFT, RIGHT, BOTTOM, TOP, NEAR, FAR
+	 * @param out
+	 *            receives a, b, c, d, with (a, b, c) the unit normal pointing
+	 *            into the frustum
+	 * @return out
+	 */
+	public float[] getPlane(final int plane, final float[] out) {
+		System.arraycopy(planes, 4 * plane, out, 0, 4);
+		return out;
+	}
+
+	public boolean containsPoint(final float x, final float y, final float z) {
+		return intersectsSphere(x, y, z, 0);
+	}
+
+	public boolean intersectsSphere(final float x, final float y, final float z,
+			final float radius) {
+		final float[] p = planes;
+		for (int i = 0; i < 24; i += 4) {
+			if (p[i] * x + p[i + 1] * y + p[i + 2] * z + p[i + 3] < -radius) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	public boolean intersectsBox(final float minX, final float minY, final float minZ,
+			final float maxX, final float maxY, final float maxZ) {
+		final float[] p = planes;
+		for (int i = 0; i < 24; i += 4) {
+			// the corner furthest along the plane's inward normal
+			final float a = p[i], b = p[i + 1], c = p[i + 2];
+			if (a * (a > 0 ? maxX : minX) + b * (b > 0 ? maxY : minY) + c
+					* (c > 0 ? maxZ : minZ) + p[i + 3] < 0) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	static final int OUTSIDE = -1, INTERSECTS = 0, INSIDE = 1;
+
+	/**
+	 * Classify a box as entirely outside, straddling or entirely inside.
+	 */
+	int classifyBox(final float minX, final float minY, final float minZ,
+			final float maxX, final float maxY, final float maxZ) {
+		final float[] p = planes;
+		int result = INSIDE;
+		for (int i = 0; i < 24; i += 4) {
+			final float a = p[i], b = p[i + 1], c = p[i + 2], d = p[i + 3];
+			if (a * (a > 0 ? maxX : minX) + b * (b > 0 ? maxY : minY) + c
+					* (c > 0 ? maxZ : minZ) + d < 0) {
+				return OUTSIDE;
+			}
+			if (a * (a > 0 ? minX : maxX) + b * (b > 0 ? minY : maxY) + c
+					* (c > 0 ? minZ : maxZ) + d < 0) {
+				result = INTERSECTS;
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Test count spheres at once.
+	 * 
+	 * @param visible
+	 *            on return, bit i is set if and only if sphere i may be visible;
+	 *            every bit from count on is clear
+	 * @return the number of spheres that may be visible
+	 */
+	public int cullSpheres(final float[] x, final float[] y, final float[] z,
+			final float[] radius, final int count, final BitSet visible) {
+		visible.clear();
+		int n = 0;
+		for (int i = 0; i < count; i++) {
+			if (intersectsSphere(x[i], y[i], z[i], radius[i])) {
+				visible.set(i);
+				n++;
+			}
+		}
+		return n;
+	}
+
+	/**
+	 * Test count points at once.
+	 * 
+	 * @param visible
+	 *            on return, bit i is set if and only if point i is visible;
+	 *            every bit from count on is clear
+	 * @return the number of visible points
+	 */
+	public int cullPoints(final float[] x, final float[] y, final float[] z,
+			final int count, final BitSet visible) {
+		visible.clear();
+		int n = 0;
+		for (int i = 0; i < count; i++) {
+			if (intersectsSphere(x[i], y[i], z[i], 0)) {
+				visible.set(i);
+				n++;
+			}
+		}
+		return n;
+	}
+
+	/**
+	 * Test count axis-aligned boxes at once.
+	 * 
+	 * @param visible
+	 *            on return, bit i is set if and only if box i may be visible;
+	 *            every bit from count on is clear
+	 * @return the number of boxes that may be visible
+	 */
+	public int cullBoxes(final float[] minX, final float[] minY, final float[] minZ,
+			final float[] maxX, final float[] maxY, final float[] maxZ, final int count,
+			final BitSet visible) {
+		visible.clear();
+		int n = 0;
+		for (int i = 0; i < count; i++) {
+			if (intersectsBox(minX[i], minY[i], minZ[i], maxX[i], maxY[i], maxZ[i])) {
+				visible.set(i);
+				n++;
+			}
+		}
+		return n;
+	}
+}
@@ -0,0 +1,34 @@
+/*
+   The PeasyCam Processing library, which provides an easy-peasy
+   camera for 3D sketching.
+  
+   Copyright 2008 Jonathan Feinberg
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package peasy;
+
+/**
+ * The pointer and viewport a {@link CameraEngine} reads while turning drags
+ * into rotations. PeasyCam supplies one backed by the PApplet's mouseX, mouseY,
+ * width and height.
+ */
+public interface InputSource {
+	public int getMouseX();
+
+	public int getMouseY();
+
+	public int getWidth();
+
+	public int getHeight();
+}
@@ -3,7 +3,7 @@
  */
 package peasy;
 
-import peasy.PeasyCam.AbstractInterp;
+import peasy.CameraEngine.AbstractInterp;
 
 class InterpolationManager {
 	private AbstractInterp currentInterpolator = null;
@@ -21,4 +21,27 @@ class InterpolationManager {
 		}
 	}
 
+	/**
+	 * Shift the running interpolation's start time by delta, when the clock
+	 * it is timed against changes.
+	 */
+	protected synchronized void rebase(final double delta) {
+		if (currentInterpolator != null) {
+			currentInterpolator.startTime += delta;
+		}
+	}
+
+	protected synchronized boolean isRunning() {
+		return currentInterpolator != null;
+	}
+
+	protected synchronized void step() {
+		if (currentInterpolator != null) {
+			currentInterpolator.draw();
+			if (!currentInterpolator.running) {
+				currentInterpolator = null;
+			}
+		}
+	}
+
 }
\ No newline at end of file
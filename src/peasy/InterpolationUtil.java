@@ -18,6 +18,7 @@
  */
 package peasy;
 
+import peasy.org.apache.commons.math.geometry.MutableVector3D;
 import peasy.org.apache.commons.math.geometry.Rotation;
 import peasy.org.apache.commons.math.geometry.Vector3D;
 
@@ -71,4 +72,10 @@ public class InterpolationUtil {
 		return new Vector3D(linear(a.getX(), b.getX(), t), linear(a.getY(), b.getY(), t),
 				linear(a.getZ(), b.getZ(), t));
 	}
+
+	static public MutableVector3D linear(final Vector3D a, final Vector3D b,
+			final double t, final MutableVector3D out) {
+		return out.set(linear(a.getX(), b.getX(), t), linear(a.getY(), b.getY(), t),
+				linear(a.getZ(), b.getZ(), t));
+	}
 }
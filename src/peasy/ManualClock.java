@@ -0,0 +1,55 @@
+/*
+   The PeasyCam Processing library, which provides an easy-peasy
+   camera for 3D sketching.
+  
+   Copyright 2008 Jonathan Feinberg
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package peasy;
+
+/**
+ * A clock that only moves when told to, for driving the camera from an
+ * external time source (a video's timeline, a network master clock) or
+ * stepping it explicitly in tests.
+ * 
+ * <pre>
+ * ManualClock clock = new ManualClock();
+ * cam.setClock(clock);
+ * ...
+ * clock.set(video.time() * 1000);
+ * </pre>
+ */
+public class ManualClock implements Clock {
+	private double millis;
+
+	public ManualClock() {
+		this(0);
+	}
+
+	public ManualClock(final double millis) {
+		this.millis = millis;
+	}
+
+	public double millis() {
+		return millis;
+	}
+
+	public void set(final double millis) {
+		this.millis = millis;
+	}
+
+	public void advance(final double millis) {
+		this.millis += millis;
+	}
+}
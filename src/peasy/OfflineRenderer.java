@@ -0,0 +1,284 @@
+/*
+   The PeasyCam Processing library, which provides an easy-peasy
+   camera for 3D sketching.
+  
+   Copyright 2008 Jonathan Feinberg
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package peasy;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import processing.core.PApplet;
+import processing.core.PGraphics;
+import processing.core.PImage;
+
+/**
+ * Renders a camera path to a sequence of images on several threads at once,
+ * for exporting video.
+ * 
+ * <pre>
+ * renderer = new OfflineRenderer(this, 1920, 1080, JAVA2D, 8);
+ * renderer.render(OfflineRenderer.frames(tour, 30), new OfflineRenderer.Scene() {
+ *   public void draw(PGraphics g, CameraState state, int frame) {
+ *     g.background(0);
+ *     renderer.project(state, x, y, z, count, screen); // with JAVA2D
+ *     ...
+ *   }
+ * }, "frames/frame-#####.png");
+ * </pre>
+ * 
+ * <p>
+ * Every camera state is computed before rendering starts. Each worker thread
+ * has its own offscreen PGraphics, applies each frame's state to it, and calls
+ * the scene to draw the frame, so the scene must only draw into the PGraphics
+ * it is given and must be safe to call from several threads at once. The
+ * renderer must be usable off the animation thread: JAVA2D is, OpenGL
+ * renderers are not. A 2D renderer has no camera, so the state is only
+ * applied to 3D ones; a 2D scene places its geometry with
+ * {@link #project(CameraState, float[], float[], float[], int, float[])}, which
+ * sees the frame as a 3D renderer of the same size would.
+ * 
+ * <p>
+ * Frames are handed out one at a time, so a slow frame does not hold up the
+ * others. At most two frames per thread are in flight, so memory stays bounded
+ * however long the path.
+ */
+public class OfflineRenderer {
+	public interface Scene {
+		/**
+		 * Draw one frame, between beginDraw() and endDraw(). If g is 3D, the
+		 * camera has already been applied to it; if not, project the scene
+		 * with {@link OfflineRenderer#project}.
+		 */
+		public void draw(PGraphics g, CameraState state, int frame);
+	}
+
+	public interface FrameSink {
+		/**
+		 * Receive a frame. Called for frame 0, 1, 2... in order, on the thread
+		 * that called render().
+		 */
+		public void write(int frame, PImage image) throws IOException;
+	}
+
+	private final PApplet p;
+	private final int width, height;
+	private final String renderer;
+	private final int threads;
+
+	public OfflineRenderer(final PApplet parent, final int width, final int height,
+			final String renderer, final int threads) {
+		if (threads < 1) {
+			throw new IllegalArgumentException("need at least one thread");
+		}
+		this.p = parent;
+		this.width = width;
+		this.height = height;
+		this.renderer = renderer;
+		this.threads = threads;
+	}
+
+	/**
+	 * The states of a tour at every frame from its start to its end.
+	 */
+	public static CameraState[] frames(final CameraTour tour, final double framesPerSecond) {
+		final double start = tour.getStartMillis();
+		final double frameMillis = 1000 / framesPerSecond;
+		final int count = (int)Math.floor((tour.getEndMillis() - start) / frameMillis) + 1;
+		final CameraState[] frames = new CameraState[count];
+		for (int i = 0; i < count; i++) {
+			frames[i] = tour.getState(start + i * frameMillis);
+		}
+		return frames;
+	}
+
+	/**
+	 * Where world points appear in a frame, for a scene drawn with a 2D
+	 * renderer. The camera is the given state, and the projection is the
+	 * default perspective a 3D renderer of this size starts with. Safe to call
+	 * from the scene on any thread.
+	 * 
+	 * @param screen
+	 *            receives screenX, screenY for each point, in pixels; both are
+	 *            NaN for a point behind the camera
+	 * @return screen
+	 */
+	public float[] project(final CameraState state, final float[] x, final float[] y,
+			final float[] z, final int count, final float[] screen) {
+		final float[] projection = ClipMatrix.defaultPerspective(width, height,
+				new float[16]);
+		new ClipMatrix().set(projection, state).project(x, y, z, count, width, height,
+				screen);
+		return screen;
+	}
+
+	/**
+	 * Render every frame and save each to a file, in parallel.
+	 * 
+	 * @param filename
+	 *            as for saveFrame(): #### is replaced by the frame number
+	 */
+	public void render(final CameraState[] frames, final Scene scene,
+			final String filename) throws IOException {
+		render(frames, scene, filename, null);
+	}
+
+	/**
+	 * Render every frame and hand each to a sink, in order.
+	 */
+	public void render(final CameraState[] frames, final Scene scene,
+			final FrameSink sink) throws IOException {
+		render(frames, scene, null, sink);
+	}
+
+	private void render(final CameraState[] frames, final Scene scene,
+			final String filename, final FrameSink sink) throws IOException {
+		final List<PGraphics> created = new ArrayList<PGraphics>();
+		final ThreadLocal<PGraphics> graphics = new ThreadLocal<PGraphics>() {
+			@Override
+			protected PGraphics initialValue() {
+				final PGraphics g = p.createGraphics(width, height, renderer);
+				synchronized (created) {
+					created.add(g);
+				}
+				return g;
+			}
+		};
+		final ExecutorService pool = Executors.newFixedThreadPool(threads,
+				new ThreadFactory() {
+					public Thread newThread(final Runnable r) {
+						final Thread t = new Thread(r, "PeasyCam offline renderer");
+						t.setDaemon(true);
+						return t;
+					}
+				});
+
+		final ArrayDeque<Future<PImage>> inFlight = new ArrayDeque<Future<PImage>>();
+		boolean done = false;
+		try {
+			int next = 0;
+			for (int written = 0; written < frames.length; written++) {
+				while (next < frames.length && inFlight.size() < 2 * threads) {
+					final int frame = next++;
+					inFlight.add(pool.submit(new Callable<PImage>() {
+						public PImage call() throws IOException {
+							return renderFrame(graphics.get(), frames[frame], frame, scene,
+									filename);
+						}
+					}));
+				}
+				final PImage image = await(inFlight.poll());
+				if (sink != null) {
+					sink.write(written, image);
+				}
+			}
+			done = true;
+		} finally {
+			if (done) {
+				pool.shutdown();
+			} else {
+				pool.shutdownNow();
+			}
+			// a frame may still be drawing after another failed, and a scene
+			// need not stop when interrupted
+			if (awaitTermination(pool)) {
+				synchronized (created) {
+					for (final PGraphics g : created) {
+						g.dispose();
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * @return false, leaving the interrupt flag set, if interrupted before the
+	 *         workers finished; their PGraphics are then left undisposed
+	 */
+	private static boolean awaitTermination(final ExecutorService pool) {
+		try {
+			return pool.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+		} catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return false;
+		}
+	}
+
+	/**
+	 * @return the frame, or null if it was saved to a file
+	 */
+	private PImage renderFrame(final PGraphics g, final CameraState state,
+			final int frame, final Scene scene, final String filename)
+			throws IOException {
+		g.beginDraw();
+		if (g.is3D()) {
+			state.apply(g);
+		}
+		scene.draw(g, state, frame);
+		g.endDraw();
+		final PImage image = g.get();
+		if (filename == null) {
+			return image;
+		}
+		final String path = p.savePath(insertFrame(filename, frame));
+		if (!image.save(path)) {
+			throw new IOException("could not save " + path);
+		}
+		return null;
+	}
+
+	// like PApplet.insertFrame(), but for any frame number
+	private static String insertFrame(final String filename, final int frame) {
+		final int first = filename.indexOf('#');
+		if (first == -1) {
+			return filename;
+		}
+		final int last = filename.lastIndexOf('#');
+		return filename.substring(0, first) + PApplet.nf(frame, last - first + 1)
+				+ filename.substring(last + 1);
+	}
+
+	private static PImage await(final Future<PImage> future) throws IOException {
+		try {
+			return future.get();
+		} catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("interrupted while rendering");
+		} catch (final ExecutionException e) {
+			final Throwable cause = e.getCause();
+			if (cause instanceof IOException) {
+				throw (IOException)cause;
+			}
+			if (cause instanceof RuntimeException) {
+				throw (RuntimeException)cause;
+			}
+			if (cause instanceof Error) {
+				throw (Error)cause;
+			}
+			throw new RuntimeException(cause);
+		}
+	}
+}
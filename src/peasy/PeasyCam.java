@@ -19,85 +19,47 @@
 package peasy;
 
 
-import peasy.org.apache.commons.math.geometry.CardanEulerSingularityException;
 import peasy.org.apache.commons.math.geometry.Rotation;
-import peasy.org.apache.commons.math.geometry.RotationOrder;
 import peasy.org.apache.commons.math.geometry.Vector3D;
 import processing.core.PApplet;
 import processing.core.PConstants;
 import processing.core.PGraphics;
+import processing.core.PMatrix3D;
 import processing.event.KeyEvent;
 import processing.event.MouseEvent;
 import processing.opengl.PGraphicsOpenGL;
 
 /**
+ * Connects a {@link CameraEngine} to a PApplet's mouse and keyboard, and feeds
+ * the engine's camera to a PGraphics.
+ * 
+ * <p>
+ * <b>Changes reach the PGraphics one frame late.</b> The camera is fed once per
+ * frame, in the PApplet's pre() hook, and only if it changed. A lookAt(),
+ * rotateX(), setState() or the like made during draw() therefore leaves the
+ * PGraphics drawing with the old camera until the next frame, while
+ * {@link #getFrustum(Frustum)}, {@link #pickRay(float, float, float[])} and
+ * {@link #screenPositions(float[], float[], float[], int, float[])} already
+ * see the new one. Call {@link #feed()} after such a change to bring the
+ * PGraphics up to date at once; it replaces the current model transform, so do
+ * it before drawing anything that relies on one.
  * 
  * @author Jonathan Feinberg
  */
 public class PeasyCam {
-	private static final Vector3D LOOK = Vector3D.plusK;
-	private static final Vector3D UP = Vector3D.plusJ;
-	private static final double SMALLEST_MINIMUM_DISTANCE = 0.01;
-
-	private static enum Constraint {
-		YAW, PITCH, ROLL, SUPPRESS_ROLL
-	}
-
 	private final PGraphics g;
 	private final PApplet p;
-
-	private final double startDistance;
-	private final Vector3D startCenter;
+	private final CameraEngine engine;
 
 	private boolean resetOnDoubleClick = true;
-	private double minimumDistance = 1;
-	private double maximumDistance = Double.MAX_VALUE;
-
-	private final DampedAction rotateX, rotateY, rotateZ, dampedZoom, dampedPanX,
-			dampedPanY;
-
-	private double distance;
-	private Vector3D center;
-	private Rotation rotation;
-
-	private Constraint dragConstraint = null;
-	private Constraint permaConstraint = null;
-
-	private final InterpolationManager rotationInterps = new InterpolationManager();
-	private final InterpolationManager centerInterps = new InterpolationManager();
-	private final InterpolationManager distanceInterps = new InterpolationManager();
-
-	private final PeasyDragHandler panHandler /* ha ha ha */= new PeasyDragHandler() {
-		public void handleDrag(final double dx, final double dy) {
-			dampedPanX.impulse(dx / 8.);
-			dampedPanY.impulse(dy / 8.);
-		}
-	};
-	private PeasyDragHandler centerDragHandler = panHandler;
-
-	private final PeasyDragHandler rotateHandler = new PeasyDragHandler() {
-		public void handleDrag(final double dx, final double dy) {
-			mouseRotate(dx, dy);
-		}
-	};
-	private PeasyDragHandler leftDragHandler = rotateHandler;
-
-	private final PeasyDragHandler zoomHandler = new PeasyDragHandler() {
-		public void handleDrag(final double dx, final double dy) {
-			dampedZoom.impulse(dy / 10.0);
-		}
-	};
-	private PeasyDragHandler rightDraghandler = zoomHandler;
 
-	private final PeasyWheelHandler zoomWheelHandler = new PeasyWheelHandler() {
-		public void handleWheel(final int delta) {
-			dampedZoom.impulse(wheelScale * delta);
-		}
-	};
-	private PeasyWheelHandler wheelHandler = zoomWheelHandler;
-	private double wheelScale = 1.0;
+	// the arguments to PGraphics.camera(), reused from frame to frame
+	private final float[] camera = new float[9];
+	private final float[] projection = new float[16];
+	private final ClipMatrix clip = new ClipMatrix();
 
 	private final PeasyEventListener peasyEventListener = new PeasyEventListener();
+	private final PeasyFrameListener peasyFrameListener = new PeasyFrameListener();
 	private boolean isActive = false;
 
 	public final String VERSION = "202";
@@ -119,54 +81,31 @@ public class PeasyCam {
 			final double lookAtZ, final double distance) {
 		this.p = parent;
 		this.g = pg;
-		this.startCenter = this.center = new Vector3D(lookAtX, lookAtY, lookAtZ);
-		this.startDistance = this.distance = Math.max(distance, SMALLEST_MINIMUM_DISTANCE);
-		this.rotation = new Rotation();
-
-		feed();
-
-		rotateX = new DampedAction(this) {
-			@Override
-			protected void behave(final double velocity) {
-				rotation = rotation.applyTo(new Rotation(Vector3D.plusI, velocity));
+		this.engine = new CameraEngine(lookAtX, lookAtY, lookAtZ, distance, new Clock() {
+			public double millis() {
+				return p.millis();
 			}
-		};
-
-		rotateY = new DampedAction(this) {
-			@Override
-			protected void behave(final double velocity) {
-				rotation = rotation.applyTo(new Rotation(Vector3D.plusJ, velocity));
+		}, new InputSource() {
+			public int getMouseX() {
+				return p.mouseX;
 			}
-		};
 
-		rotateZ = new DampedAction(this) {
-			@Override
-			protected void behave(final double velocity) {
-				rotation = rotation.applyTo(new Rotation(Vector3D.plusK, velocity));
+			public int getMouseY() {
+				return p.mouseY;
 			}
-		};
 
-		dampedZoom = new DampedAction(this) {
-			@Override
-			protected void behave(final double velocity) {
-				mouseZoom(velocity);
+			public int getWidth() {
+				return p.width;
 			}
-		};
 
-		dampedPanX = new DampedAction(this) {
-			@Override
-			protected void behave(final double velocity) {
-				mousePan(velocity, 0);
+			public int getHeight() {
+				return p.height;
 			}
-		};
+		});
 
-		dampedPanY = new DampedAction(this) {
-			@Override
-			protected void behave(final double velocity) {
-				mousePan(0, velocity);
-			}
-		};
+		feed();
 
+		p.registerMethod("pre", peasyFrameListener);
 		setActive(true);
 	}
 
@@ -220,67 +159,119 @@ public class PeasyCam {
 		setActive(isMouseControlled);
 	}
 
+	/**
+	 * @see CameraEngine#setEasing(Easing)
+	 */
+	public void setEasing(final Easing easing) {
+		engine.setEasing(easing);
+	}
+
+	/**
+	 * @see CameraEngine#setSinglePrecision(boolean)
+	 */
+	public void setSinglePrecision(final boolean singlePrecision) {
+		engine.setSinglePrecision(singlePrecision);
+	}
+
+	public boolean isSinglePrecision() {
+		return engine.isSinglePrecision();
+	}
+
 	public double getWheelScale() {
-		return wheelScale;
+		return engine.getWheelScale();
 	}
 
 	public void setWheelScale(final double wheelScale) {
-		this.wheelScale = wheelScale;
+		engine.setWheelScale(wheelScale);
 	}
 
 	public PeasyDragHandler getPanDragHandler() {
-		return panHandler;
+		return engine.getPanDragHandler();
 	}
 
 	public PeasyDragHandler getRotateDragHandler() {
-		return rotateHandler;
+		return engine.getRotateDragHandler();
 	}
 
 	public PeasyDragHandler getZoomDragHandler() {
-		return zoomHandler;
+		return engine.getZoomDragHandler();
 	}
 
 	public PeasyWheelHandler getZoomWheelHandler() {
-		return zoomWheelHandler;
+		return engine.getZoomWheelHandler();
 	}
 
 	public void setLeftDragHandler(final PeasyDragHandler handler) {
-		leftDragHandler = handler;
+		engine.setLeftDragHandler(handler);
 	}
 
 	public void setCenterDragHandler(final PeasyDragHandler handler) {
-		centerDragHandler = handler;
+		engine.setCenterDragHandler(handler);
 	}
 
 	public void setRightDragHandler(final PeasyDragHandler handler) {
-		rightDraghandler = handler;
+		engine.setRightDragHandler(handler);
 	}
 
 	public PeasyWheelHandler getWheelHandler() {
-		return wheelHandler;
+		return engine.getWheelHandler();
 	}
 
 	public void setWheelHandler(final PeasyWheelHandler wheelHandler) {
-		this.wheelHandler = wheelHandler;
+		engine.setWheelHandler(wheelHandler);
 	}
 
 	public String version() {
 		return VERSION;
 	}
 
+	/**
+	 * The Processing-free camera this PeasyCam drives.
+	 */
+	public CameraEngine getEngine() {
+		return engine;
+	}
+
+	/**
+	 * The camera only reads the clock: a {@link FixedStepClock} still needs
+	 * ticking once per frame, for instance by {@link FixedStepClock#attach}.
+	 * 
+	 * @see CameraEngine#setClock(Clock)
+	 */
+	public void setClock(final Clock clock) {
+		engine.setClock(clock);
+	}
+
+	public Clock getClock() {
+		return engine.getClock();
+	}
+
+	/**
+	 * The one per-frame hook registered with the PApplet. It steps the engine,
+	 * then pushes the camera if anything changed.
+	 */
+	protected class PeasyFrameListener {
+		public void pre() {
+			engine.step();
+			if (engine.isDirty()) {
+				feed();
+			}
+		}
+	}
+
 	protected class PeasyEventListener {
 		public void keyEvent(final KeyEvent e) {
-			if (e.getAction() == KeyEvent.RELEASE && e.isShiftDown())
-				dragConstraint = null;
+			if (e.getAction() == KeyEvent.RELEASE)
+				engine.keyReleased(e.isShiftDown());
 		}
 
 		public void mouseEvent(final MouseEvent e) {
 			switch (e.getAction()) {
 			case MouseEvent.WHEEL:
-				wheelHandler.handleWheel((int)e.getCount());
+				engine.mouseWheel((int)e.getCount());
 				break;
 			case MouseEvent.RELEASE:
-				dragConstraint = null;
+				engine.mouseReleased();
 				break;
 			case MouseEvent.CLICK:
 				if (resetOnDoubleClick && 2 == (int)e.getCount()) {
@@ -288,139 +279,151 @@ public class PeasyCam {
 				}
 				break;
 			case MouseEvent.DRAG:
-				final double dx = p.mouseX - p.pmouseX;
-				final double dy = p.mouseY - p.pmouseY;
-
-				if (e.isShiftDown()) {
-					if (dragConstraint == null && Math.abs(dx - dy) > 1) {
-						dragConstraint = Math.abs(dx) > Math.abs(dy) ? Constraint.YAW
-								: Constraint.PITCH;
-					}
-				} else if (permaConstraint != null) {
-					dragConstraint = permaConstraint;
-				} else {
-					dragConstraint = null;
-				}
-
 				final int b = p.mouseButton;
-				if (centerDragHandler != null
-						&& (b == PConstants.CENTER || (b == PConstants.LEFT && e
-								.isMetaDown()))) {
-					centerDragHandler.handleDrag(dx, dy);
-				} else if (leftDragHandler != null && b == PConstants.LEFT) {
-					leftDragHandler.handleDrag(dx, dy);
-				} else if (rightDraghandler != null && b == PConstants.RIGHT) {
-					rightDraghandler.handleDrag(dx, dy);
-				}
+				final CameraEngine.Button button = b == PConstants.LEFT ? CameraEngine.Button.LEFT
+						: b == PConstants.CENTER ? CameraEngine.Button.CENTER
+								: b == PConstants.RIGHT ? CameraEngine.Button.RIGHT : null;
+				engine.mouseDragged(button, p.mouseX - p.pmouseX, p.mouseY - p.pmouseY,
+						e.isShiftDown(), e.isMetaDown());
 				break;
 			}
 		}
 	}
 
-	private void mouseZoom(final double delta) {
-		safeSetDistance(distance + delta * Math.log1p(distance));
-	}
-
-	private void mousePan(final double dxMouse, final double dyMouse) {
-		final double panScale = Math.sqrt(distance * .005);
-		pan(dragConstraint == Constraint.PITCH ? 0 : -dxMouse * panScale,
-				dragConstraint == Constraint.YAW ? 0 : -dyMouse * panScale);
-	}
-
-	private void mouseRotate(final double dx, final double dy) {
-		final Vector3D u = LOOK.scalarMultiply(100 + .6 * startDistance).negate();
-
-		final int xSign = dx > 0 ? -1 : 1;
-		final int ySign = dy < 0 ? -1 : 1;
-
-		final double eccentricity = Math.abs((p.height / 2d) - p.mouseY)
-				/ (p.height / 2d);
-		final double rho = Math.abs((p.width / 2d) - p.mouseX) / (p.width / 2d);
-
-		if (dragConstraint == null || dragConstraint == Constraint.YAW
-				|| dragConstraint == Constraint.SUPPRESS_ROLL) {
-			final double adx = Math.abs(dx) * (1 - eccentricity);
-			final Vector3D vx = u.add(new Vector3D(adx, 0, 0));
-			rotateY.impulse(Vector3D.angle(u, vx) * xSign);
-		}
-		if (dragConstraint == null || dragConstraint == Constraint.PITCH
-				|| dragConstraint == Constraint.SUPPRESS_ROLL) {
-			final double ady = Math.abs(dy) * (1 - rho);
-			final Vector3D vy = u.add(new Vector3D(0, ady, 0));
-			rotateX.impulse(Vector3D.angle(u, vy) * ySign);
-		}
-		if (dragConstraint == null || dragConstraint == Constraint.ROLL) {
-			{
-				final double adz = Math.abs(dy) * rho;
-				final Vector3D vz = u.add(new Vector3D(0, adz, 0));
-				rotateZ.impulse(Vector3D.angle(u, vz) * -ySign
-						* (p.mouseX < p.width / 2 ? -1 : 1));
-			}
-			{
-				final double adz = Math.abs(dx) * eccentricity;
-				final Vector3D vz = u.add(new Vector3D(0, adz, 0));
-				rotateZ.impulse(Vector3D.angle(u, vz) * xSign
-						* (p.mouseY > p.height / 2 ? -1 : 1));
-			}
-		}
-	}
-
 	public double getDistance() {
-		return distance;
+		return engine.getDistance();
 	}
 
 	public void setDistance(final double newDistance) {
-		setDistance(newDistance, 300);
+		engine.setDistance(newDistance);
 	}
 
 	public void setDistance(final double newDistance, final long animationTimeMillis) {
-		distanceInterps.startInterpolation(new DistanceInterp(newDistance,
-				animationTimeMillis));
+		engine.setDistance(newDistance, animationTimeMillis);
 	}
 
 	public float[] getLookAt() {
-		return new float[] { (float)center.getX(), (float)center.getY(),
-				(float)center.getZ() };
+		return engine.getLookAt();
 	}
 
 	public void lookAt(final double x, final double y, final double z) {
-		centerInterps.startInterpolation(new CenterInterp(new Vector3D(x, y, z), 300));
+		engine.lookAt(x, y, z);
 	}
 
 	public void lookAt(final double x, final double y, final double z,
 			final double distance) {
-		lookAt(x, y, z);
-		setDistance(distance);
+		engine.lookAt(x, y, z, distance);
 	}
 
 	public void lookAt(final double x, final double y, final double z,
 			final long animationTimeMillis) {
-		lookAt(x, y, z, distance, animationTimeMillis);
+		engine.lookAt(x, y, z, animationTimeMillis);
 	}
 
 	public void lookAt(final double x, final double y, final double z,
 			final double distance, final long animationTimeMillis) {
-		setState(new CameraState(rotation, new Vector3D(x, y, z), distance),
-				animationTimeMillis);
+		engine.lookAt(x, y, z, distance, animationTimeMillis);
 	}
 
-	private void safeSetDistance(final double distance) {
-		this.distance = Math.min(maximumDistance, Math.max(minimumDistance, distance));
-		feed();
+	/**
+	 * Push the current camera to the PGraphics right away. This normally
+	 * happens automatically before each frame; call it after changing the
+	 * projection, or when you need the new camera in the middle of draw().
+	 */
+	public void feed() {
+		engine.markClean();
+		final float[] c = engine.getCamera(camera);
+		g.camera(c[0], c[1], c[2], c[3], c[4], c[5], c[6], c[7], c[8]);
 	}
 
-	public void feed() {
-		final Vector3D pos = rotation.applyTo(LOOK).scalarMultiply(distance).add(center);
-		final Vector3D rup = rotation.applyTo(UP);
-		g.camera((float)pos.getX(), (float)pos.getY(), (float)pos.getZ(), //
-				(float)center.getX(), (float)center.getY(), (float)center.getZ(), //
-				(float)rup.getX(), (float)rup.getY(), (float)rup.getZ());
+	/**
+	 * Compute the planes bounding what this camera sees, from the current
+	 * camera and the PGraphics' current projection. Only available with an
+	 * OpenGL renderer (P3D). The camera is read from the engine, so it
+	 * includes changes not yet fed to the PGraphics.
+	 * 
+	 * @param out
+	 *            the frustum to update
+	 * @return out
+	 */
+	public Frustum getFrustum(final Frustum out) {
+		return out.set(getProjection(), engine.getCamera(camera));
+	}
+
+	/**
+	 * Compute the ray under a point on the screen, e.g. under the mouse, for
+	 * picking. Only available with an OpenGL renderer (P3D). Like
+	 * {@link #getFrustum(Frustum)}, this sees changes not yet fed.
+	 * 
+	 * @param screenX
+	 *            in pixels, like mouseX
+	 * @param screenY
+	 *            in pixels, like mouseY
+	 * @param out
+	 *            receives originX, originY, originZ, directionX, directionY,
+	 *            directionZ; the origin is on the near plane and the direction
+	 *            has unit length
+	 * @return out
+	 * @see BoundingVolumeHierarchy#pick(float[])
+	 */
+	public float[] pickRay(final float screenX, final float screenY, final float[] out) {
+		clip.set(getProjection(), engine.getCamera(camera));
+		clip.unproject(screenX, screenY, g.width, g.height, out);
+		return out;
+	}
+
+	/**
+	 * Where do these world points appear on the screen? The same as calling
+	 * screenX() and screenY() for each point with no model transform, but in
+	 * one pass. Only available with an OpenGL renderer (P3D). Unlike
+	 * screenX(), this sees camera changes not yet fed.
+	 * 
+	 * @param screen
+	 *            receives screenX, screenY for each point, in pixels; both are
+	 *            NaN for a point behind the camera
+	 * @return screen
+	 */
+	public float[] screenPositions(final float[] x, final float[] y, final float[] z,
+			final int count, final float[] screen) {
+		clip.set(getProjection(), engine.getCamera(camera));
+		clip.project(x, y, z, count, g.width, g.height, screen);
+		return screen;
+	}
+
+	/**
+	 * The PGraphics' projection matrix, row-major.
+	 */
+	private float[] getProjection() {
+		if (!g.isGL() || !g.is3D()) {
+			throw new IllegalStateException("PeasyCam needs a 3D OpenGL renderer (P3D)"
+					+ " to read the projection");
+		}
+		final PMatrix3D m = ((PGraphicsOpenGL)g).projection;
+		final float[] p = projection;
+		p[0] = m.m00;
+		p[1] = m.m01;
+		p[2] = m.m02;
+		p[3] = m.m03;
+		p[4] = m.m10;
+		p[5] = m.m11;
+		p[6] = m.m12;
+		p[7] = m.m13;
+		p[8] = m.m20;
+		p[9] = m.m21;
+		p[10] = m.m22;
+		p[11] = m.m23;
+		p[12] = m.m30;
+		p[13] = m.m31;
+		p[14] = m.m32;
+		p[15] = m.m33;
+		return p;
 	}
 
 	static void apply(final PGraphics g, final Vector3D center, final Rotation rotation,
 			final double distance) {
-		final Vector3D pos = rotation.applyTo(LOOK).scalarMultiply(distance).add(center);
-		final Vector3D rup = rotation.applyTo(UP);
+		final Vector3D pos = rotation.applyTo(CameraEngine.LOOK).scalarMultiply(distance)
+				.add(center);
+		final Vector3D rup = rotation.applyTo(CameraEngine.UP);
 		g.camera((float)pos.getX(), (float)pos.getY(), (float)pos.getZ(), //
 				(float)center.getX(), (float)center.getY(), (float)center.getZ(), //
 				(float)rup.getX(), (float)rup.getY(), (float)rup.getZ());
@@ -432,37 +435,31 @@ public class PeasyCam {
 	 * @return float[]{x,y,z}
 	 */
 	public float[] getPosition() {
-		final Vector3D pos = rotation.applyTo(LOOK).scalarMultiply(distance).add(center);
-		return new float[] { (float)pos.getX(), (float)pos.getY(), (float)pos.getZ() };
+		return engine.getPosition();
 	}
 
 	public void reset() {
-		reset(300);
+		engine.reset();
 	}
 
 	public void reset(final long animationTimeInMillis) {
-		setState(new CameraState(new Rotation(), startCenter, startDistance),
-				animationTimeInMillis);
+		engine.reset(animationTimeInMillis);
 	}
 
 	public void pan(final double dx, final double dy) {
-		center = center.add(rotation.applyTo(new Vector3D(dx, dy, 0)));
-		feed();
+		engine.pan(dx, dy);
 	}
 
 	public void rotateX(final double angle) {
-		rotation = rotation.applyTo(new Rotation(Vector3D.plusI, angle));
-		feed();
+		engine.rotateX(angle);
 	}
 
 	public void rotateY(final double angle) {
-		rotation = rotation.applyTo(new Rotation(Vector3D.plusJ, angle));
-		feed();
+		engine.rotateY(angle);
 	}
 
 	public void rotateZ(final double angle) {
-		rotation = rotation.applyTo(new Rotation(Vector3D.plusK, angle));
-		feed();
+		engine.rotateZ(angle);
 	}
 
 	PApplet getApplet() {
@@ -470,52 +467,68 @@ public class PeasyCam {
 	}
 
 	public CameraState getState() {
-		return new CameraState(rotation, center, distance);
+		return engine.getState();
+	}
+
+	/**
+	 * The camera's state as of the start of the current frame. Safe to call
+	 * from any thread.
+	 * 
+	 * @see CameraEngine#getSnapshot()
+	 */
+	public CameraState getSnapshot() {
+		return engine.getSnapshot();
+	}
+
+	/**
+	 * Commands that other threads may issue; they are applied at the start of
+	 * the next frame.
+	 */
+	public CameraCommandQueue getCommandQueue() {
+		return engine.getCommandQueue();
 	}
 
 	/**
 	 * Permit arbitrary rotation. (Default mode.)
 	 */
 	public void setFreeRotationMode() {
-		permaConstraint = null;
+		engine.setFreeRotationMode();
 	}
 
 	/**
 	 * Only permit yaw.
 	 */
 	public void setYawRotationMode() {
-		permaConstraint = Constraint.YAW;
+		engine.setYawRotationMode();
 	}
 
 	/**
 	 * Only permit pitch.
 	 */
 	public void setPitchRotationMode() {
-		permaConstraint = Constraint.PITCH;
+		engine.setPitchRotationMode();
 	}
 
 	/**
 	 * Only permit roll.
 	 */
 	public void setRollRotationMode() {
-		permaConstraint = Constraint.ROLL;
+		engine.setRollRotationMode();
 	}
 
 	/**
 	 * Only suppress roll.
 	 */
 	public void setSuppressRollRotationMode() {
-		permaConstraint = Constraint.SUPPRESS_ROLL;
+		engine.setSuppressRollRotationMode();
 	}
 
 	public void setMinimumDistance(final double minimumDistance) {
-		this.minimumDistance = Math.max(minimumDistance, SMALLEST_MINIMUM_DISTANCE);
-		safeSetDistance(distance);
+		engine.setMinimumDistance(minimumDistance);
 	}
 
 	public void setMaximumDistance(final double maximumDistance) {
-		this.maximumDistance = maximumDistance;
-		safeSetDistance(distance);
+		engine.setMaximumDistance(maximumDistance);
 	}
 
 	public void setResetOnDoubleClick(final boolean resetOnDoubleClick) {
@@ -523,29 +536,15 @@ public class PeasyCam {
 	}
 
 	public void setState(final CameraState state) {
-		setState(state, 300);
+		engine.setState(state);
 	}
 
 	public void setState(final CameraState state, final long animationTimeMillis) {
-		if (animationTimeMillis > 0) {
-			rotationInterps.startInterpolation(new RotationInterp(state.rotation,
-					animationTimeMillis));
-			centerInterps.startInterpolation(new CenterInterp(state.center,
-					animationTimeMillis));
-			distanceInterps.startInterpolation(new DistanceInterp(state.distance,
-					animationTimeMillis));
-		} else {
-			this.rotation = state.rotation;
-			this.center = state.center;
-			this.distance = state.distance;
-		}
-		feed();
+		engine.setState(state, animationTimeMillis);
 	}
 
 	public void setRotations(final double pitch, final double yaw, final double roll) {
-		rotationInterps.cancelInterpolation();
-		this.rotation = new Rotation(RotationOrder.XYZ, pitch, yaw, roll);
-		feed();
+		engine.setRotations(pitch, yaw, roll);
 	}
 
 	/**
@@ -561,22 +560,7 @@ public class PeasyCam {
 	 *text("Here I am!", 0, 0, 0);</pre>
 	 */
 	public float[] getRotations() {
-		try {
-			final double[] angles = rotation.getAngles(RotationOrder.XYZ);
-			return new float[] { (float)angles[0], (float)angles[1], (float)angles[2] };
-		} catch (final CardanEulerSingularityException e) {
-		}
-		try {
-			final double[] angles = rotation.getAngles(RotationOrder.YXZ);
-			return new float[] { (float)angles[1], (float)angles[0], (float)angles[2] };
-		} catch (final CardanEulerSingularityException e) {
-		}
-		try {
-			final double[] angles = rotation.getAngles(RotationOrder.ZXY);
-			return new float[] { (float)angles[2], (float)angles[0], (float)angles[1] };
-		} catch (final CardanEulerSingularityException e) {
-		}
-		return new float[] { 0, 0, 0 };
+		return engine.getRotations();
 	}
 
 	
@@ -626,105 +610,36 @@ public class PeasyCam {
 		g.hint(PConstants.ENABLE_DEPTH_TEST);
 	}
 
-	abstract public class AbstractInterp {
-		double startTime;
-		final double timeInMillis;
-
+	/**
+	 * An animation driven by the sketch's draw() hook, handed its raw progress
+	 * from 0 to 1 and pushing the camera after each step.
+	 * 
+	 * @deprecated animations now live in the engine; extend
+	 *             {@link CameraEngine.AbstractInterp}, which is handed eased
+	 *             progress and runs from the engine's clock
+	 */
+	@Deprecated
+	abstract public class AbstractInterp extends CameraEngine.AbstractInterp {
 		protected AbstractInterp(final long timeInMillis) {
-			this.timeInMillis = timeInMillis;
+			engine.super(timeInMillis, Easing.LINEAR);
 		}
 
+		@Override
 		void start() {
-			startTime = p.millis();
+			super.start();
 			p.registerMethod("draw", this);
 		}
 
+		@Override
 		void cancel() {
+			super.cancel();
 			p.unregisterMethod("draw", this);
 		}
 
+		@Override
 		public void draw() {
-			final double t = (p.millis() - startTime) / timeInMillis;
-			if (t > .99) {
-				cancel();
-				setEndState();
-			} else {
-				interp(t);
-			}
+			super.draw();
 			feed();
 		}
-
-		protected abstract void interp(double t);
-
-		protected abstract void setEndState();
-	}
-
-	class DistanceInterp extends AbstractInterp {
-		private final double startDistance = distance;
-		private final double endDistance;
-
-		public DistanceInterp(final double endDistance, final long timeInMillis) {
-			super(timeInMillis);
-			this.endDistance = Math.min(maximumDistance,
-					Math.max(minimumDistance, endDistance));
-		}
-
-		@Override
-		protected void interp(final double t) {
-			distance = InterpolationUtil.smooth(startDistance, endDistance, t);
-		}
-
-		@Override
-		protected void setEndState() {
-			distance = endDistance;
-		}
-	}
-
-	class CenterInterp extends AbstractInterp {
-		private final Vector3D startCenter = center;
-		private final Vector3D endCenter;
-
-		public CenterInterp(final Vector3D endCenter, final long timeInMillis) {
-			super(timeInMillis);
-			this.endCenter = endCenter;
-		}
-
-		@Override
-		protected void interp(final double t) {
-			center = InterpolationUtil.smooth(startCenter, endCenter, t);
-		}
-
-		@Override
-		protected void setEndState() {
-			center = endCenter;
-		}
-	}
-
-	class RotationInterp extends AbstractInterp {
-		final Rotation startRotation = rotation;
-		final Rotation endRotation;
-
-		public RotationInterp(final Rotation endRotation, final long timeInMillis) {
-			super(timeInMillis);
-			this.endRotation = endRotation;
-		}
-
-		@Override
-		void start() {
-			rotateX.stop();
-			rotateY.stop();
-			rotateZ.stop();
-			super.start();
-		}
-
-		@Override
-		protected void interp(final double t) {
-			rotation = InterpolationUtil.slerp(startRotation, endRotation, t);
-		}
-
-		@Override
-		protected void setEndState() {
-			rotation = endRotation;
-		}
 	}
-}
+}
\ No newline at end of file
@@ -0,0 +1,127 @@
+/*
+   The PeasyCam Processing library, which provides an easy-peasy
+   camera for 3D sketching.
+  
+   Copyright 2008 Jonathan Feinberg
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package peasy;
+
+import peasy.org.apache.commons.math.geometry.MutableRotation;
+import peasy.org.apache.commons.math.geometry.Rotation;
+
+/**
+ * Spherical linear interpolation between two fixed rotations, for evaluating
+ * at many values of t. The same curve as
+ * {@link InterpolationUtil#slerp(Rotation, Rotation, double)}, but the angle
+ * between the rotations is found once, up front, and each evaluation uses a
+ * polynomial for the two sines instead of calling Math.sin, and writes into a
+ * {@link MutableRotation} instead of allocating.
+ * 
+ * <p>
+ * The angle between the quaternions is at most pi/2 (the shorter way round is
+ * always taken), so the sines are of angles within [0, pi/2], where the
+ * polynomial is within 6e-8 of the true sine. The weights, and so the
+ * quaternion components, are within that of the exact slerp.
+ */
+public class Slerp {
+	private final double a0, a1, a2, a3;
+	private final double b0, b1, b2, b3;
+	private final double theta;
+	private final double inverseSinTheta;
+	private final boolean linear;
+
+	public Slerp(final Rotation a, final Rotation b) {
+		a0 = a.getQ0();
+		a1 = a.getQ1();
+		a2 = a.getQ2();
+		a3 = a.getQ3();
+		double cosTheta = a0 * b.getQ0() + a1 * b.getQ1() + a2 * b.getQ2() + a3
+				* b.getQ3();
+		final double sign = cosTheta < 0 ? -1 : 1;
+		cosTheta *= sign;
+		b0 = sign * b.getQ0();
+		b1 = sign * b.getQ1();
+		b2 = sign * b.getQ2();
+		b3 = sign * b.getQ3();
+
+		theta = Math.acos(Math.min(cosTheta, 1));
+		final double sinTheta = Math.sqrt(1.0 - cosTheta * cosTheta);
+		linear = !(sinTheta > 0.001);
+		inverseSinTheta = linear ? 0 : 1 / sinTheta;
+	}
+
+	/**
+	 * @param out
+	 *            receives the rotation a fraction t of the way from a to b
+	 * @return out
+	 */
+	public MutableRotation interpolate(final double t, final MutableRotation out) {
+		final double w1, w2;
+		if (linear) {
+			w1 = 1.0 - t;
+			w2 = t;
+		} else {
+			w1 = sin((1.0 - t) * theta) * inverseSinTheta;
+			w2 = sin(t * theta) * inverseSinTheta;
+		}
+		return out.set(w1 * a0 + w2 * b0, w1 * a1 + w2 * b1, w1 * a2 + w2 * b2, w1 * a3
+				+ w2 * b3, false);
+	}
+
+	/**
+	 * The Taylor series of sine to x<sup>11</sup>; for |x| &lt;= pi/2 the error
+	 * is below x<sup>13</sup>/13!, about 6e-8.
+	 */
+	static double sin(final double x) {
+		final double x2 = x * x;
+		return x * (1 + x2 * (S3 + x2 * (S5 + x2 * (S7 + x2 * (S9 + x2 * S11)))));
+	}
+
+	/**
+	 * The weight slerp gives the end quaternion at t, sin(t theta) / sin(theta),
+	 * from cos(theta) alone, by D. Eberly's polynomial in A Fast and Accurate
+	 * Algorithm for Computing SLERP. Within 1e-7 for angles up to 0.9 (cos(theta)
+	 * &gt;= 0.62), and 2e-5 up to pi/2. The weight of the start quaternion is
+	 * weight(cosTheta, 1 - t).
+	 */
+	static double weight(final double cosTheta, final double t) {
+		final double x = cosTheta - 1;
+		final double t2 = t * t;
+		double b = 1;
+		for (int i = EBERLY_U.length - 1; i >= 0; i--) {
+			b = 1 + (EBERLY_U[i] * t2 - EBERLY_V[i]) * x * b;
+		}
+		return t * b;
+	}
+
+	// u[i] = 1 / ((i + 1)(2i + 3)) and v[i] = (i + 1) / (2i + 3), with the last
+	// pair scaled to spread the error of truncating the series
+	private static final double[] EBERLY_U = new double[8];
+	private static final double[] EBERLY_V = new double[8];
+	static {
+		for (int i = 0; i < 8; i++) {
+			EBERLY_U[i] = 1.0 / ((i + 1) * (2 * i + 3));
+			EBERLY_V[i] = (i + 1.0) / (2 * i + 3);
+		}
+		EBERLY_U[7] *= 1.85298109240830;
+		EBERLY_V[7] *= 1.85298109240830;
+	}
+
+	private static final double S3 = -1.0 / 6;
+	private static final double S5 = 1.0 / 120;
+	private static final double S7 = -1.0 / 5040;
+	private static final double S9 = 1.0 / 362880;
+	private static final double S11 = -1.0 / 39916800;
+}
@@ -0,0 +1,353 @@
+/*
+   The PeasyCam Processing library, which provides an easy-peasy
+   camera for 3D sketching.
+  
+   Copyright 2008 Jonathan Feinberg
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+
+package peasy.org.apache.commons.math.geometry;
+
+/**
+ * A single-precision counterpart of {@link MutableRotation}.
+ *
+ * <p>
+ * The quaternion conventions are exactly those of {@link Rotation}. Each
+ * composition rounds to float, so a long chain of them drifts away from unit
+ * norm sooner than in double; {@link #compose(float, float, float, float)}
+ * therefore renormalizes whenever the norm has drifted by more than a few
+ * units in the last place. None of the operations allocate.
+ * </p>
+ *
+ * @see FloatVector3D
+ */
+public class FloatRotation {
+
+	/**
+	 * Squared norm drift beyond which compositions renormalize, a few times
+	 * the float epsilon.
+	 */
+	private static final float DRIFT = 4e-7f;
+
+	/**
+	 * Build the identity rotation.
+	 */
+	public FloatRotation() {
+		q0 = 1;
+		q1 = 0;
+		q2 = 0;
+		q3 = 0;
+	}
+
+	/**
+	 * Get the scalar coordinate of the quaternion.
+	 *
+	 * @return scalar coordinate of the quaternion
+	 */
+	public float getQ0() {
+		return q0;
+	}
+
+	/**
+	 * Get the first coordinate of the vectorial part of the quaternion.
+	 *
+	 * @return first coordinate of the vectorial part of the quaternion
+	 */
+	public float getQ1() {
+		return q1;
+	}
+
+	/**
+	 * Get the second coordinate of the vectorial part of the quaternion.
+	 *
+	 * @return second coordinate of the vectorial part of the quaternion
+	 */
+	public float getQ2() {
+		return q2;
+	}
+
+	/**
+	 * Get the third coordinate of the vectorial part of the quaternion.
+	 *
+	 * @return third coordinate of the vectorial part of the quaternion
+	 */
+	public float getQ3() {
+		return q3;
+	}
+
+	/**
+	 * Set the quaternion coordinates of the instance.
+	 *
+	 * @param q0
+	 *            scalar part of the quaternion
+	 * @param q1
+	 *            first coordinate of the vectorial part of the quaternion
+	 * @param q2
+	 *            second coordinate of the vectorial part of the quaternion
+	 * @param q3
+	 *            third coordinate of the vectorial part of the quaternion
+	 * @param needsNormalization
+	 *            if true, the coordinates are normalized after being set
+	 * @return this
+	 */
+	public FloatRotation set(final float q0, final float q1, final float q2,
+			final float q3, final boolean needsNormalization) {
+		this.q0 = q0;
+		this.q1 = q1;
+		this.q2 = q2;
+		this.q3 = q3;
+		if (needsNormalization) {
+			normalize();
+		}
+		return this;
+	}
+
+	/**
+	 * Copy a double-precision rotation into the instance, rounding it to
+	 * float.
+	 *
+	 * @param r
+	 *            rotation to copy
+	 * @return this
+	 */
+	public FloatRotation set(final MutableRotation r) {
+		return set((float)r.getQ0(), (float)r.getQ1(), (float)r.getQ2(),
+				(float)r.getQ3(), true);
+	}
+
+	/**
+	 * Copy another rotation into the instance.
+	 *
+	 * @param r
+	 *            rotation to copy
+	 * @return this
+	 */
+	public FloatRotation set(final FloatRotation r) {
+		return set(r.q0, r.q1, r.q2, r.q3, false);
+	}
+
+	/**
+	 * Reset the instance to the identity rotation.
+	 *
+	 * @return this
+	 */
+	public FloatRotation setIdentity() {
+		return set(1, 0, 0, 0, false);
+	}
+
+	/**
+	 * Normalize the quaternion in place.
+	 *
+	 * @return this
+	 */
+	public FloatRotation normalize() {
+		final float inv = (float)(1.0 / Math.sqrt(q0 * q0 + q1 * q1 + q2 * q2 + q3
+				* q3));
+		q0 *= inv;
+		q1 *= inv;
+		q2 *= inv;
+		q3 *= inv;
+		return this;
+	}
+
+	/**
+	 * Replace the instance by its composition with the rotation given by its
+	 * quaternion coordinates, i.e. <code>this = this o r</code>.
+	 *
+	 * @param r0
+	 *            scalar part of r
+	 * @param r1
+	 *            first coordinate of the vectorial part of r
+	 * @param r2
+	 *            second coordinate of the vectorial part of r
+	 * @param r3
+	 *            third coordinate of the vectorial part of r
+	 * @return this
+	 * @see MutableRotation#compose(double, double, double, double)
+	 */
+	public FloatRotation compose(final float r0, final float r1, final float r2,
+			final float r3) {
+		final float n0 = r0 * q0 - (r1 * q1 + r2 * q2 + r3 * q3);
+		final float n1 = r1 * q0 + r0 * q1 + (r2 * q3 - r3 * q2);
+		final float n2 = r2 * q0 + r0 * q2 + (r3 * q1 - r1 * q3);
+		final float n3 = r3 * q0 + r0 * q3 + (r1 * q2 - r2 * q1);
+		return setComposed(n0, n1, n2, n3);
+	}
+
+	/**
+	 * Store the result of a composition, renormalizing it if it has drifted.
+	 */
+	private FloatRotation setComposed(final float n0, final float n1, final float n2,
+			final float n3) {
+		q0 = n0;
+		q1 = n1;
+		q2 = n2;
+		q3 = n3;
+		final float drift = n0 * n0 + n1 * n1 + n2 * n2 + n3 * n3 - 1;
+		if (drift > DRIFT || drift < -DRIFT) {
+			normalize();
+		}
+		return this;
+	}
+
+	/**
+	 * Replace the instance by its composition with the rotation of the given
+	 * angle around the given unit axis, without building that rotation.
+	 *
+	 * @param x
+	 *            abscissa of the axis, which must be normalized
+	 * @param y
+	 *            ordinate of the axis
+	 * @param z
+	 *            height of the axis
+	 * @param angle
+	 *            rotation angle
+	 * @return this
+	 * @see MutableRotation#composeAxisAngle(Vector3D, double)
+	 */
+	public FloatRotation composeAxisAngle(final float x, final float y, final float z,
+			final float angle) {
+		final double halfAngle = -0.5 * angle;
+		final float sin = (float)Math.sin(halfAngle);
+		return compose((float)Math.cos(halfAngle), sin * x, sin * y, sin * z);
+	}
+
+	/**
+	 * Replace the instance by its composition with the rotation of the given
+	 * angle around the x axis.
+	 *
+	 * @param angle
+	 *            rotation angle
+	 * @return this
+	 * @see MutableRotation#composeAroundX(double)
+	 */
+	public FloatRotation composeAroundX(final float angle) {
+		final double halfAngle = -0.5 * angle;
+		final float r0 = (float)MutableRotation.cos(halfAngle);
+		final float r1 = (float)MutableRotation.sin(halfAngle);
+		return setComposed(r0 * q0 - r1 * q1, r1 * q0 + r0 * q1, r0 * q2 - r1 * q3, r0 * q3
+				+ r1 * q2);
+	}
+
+	/**
+	 * Replace the instance by its composition with the rotation of the given
+	 * angle around the y axis.
+	 *
+	 * @param angle
+	 *            rotation angle
+	 * @return this
+	 * @see MutableRotation#composeAroundY(double)
+	 */
+	public FloatRotation composeAroundY(final float angle) {
+		final double halfAngle = -0.5 * angle;
+		final float r0 = (float)MutableRotation.cos(halfAngle);
+		final float r2 = (float)MutableRotation.sin(halfAngle);
+		return setComposed(r0 * q0 - r2 * q2, r0 * q1 + r2 * q3, r2 * q0 + r0 * q2, r0 * q3
+				- r2 * q1);
+	}
+
+	/**
+	 * Replace the instance by its composition with the rotation of the given
+	 * angle around the z axis.
+	 *
+	 * @param angle
+	 *            rotation angle
+	 * @return this
+	 * @see MutableRotation#composeAroundZ(double)
+	 */
+	public FloatRotation composeAroundZ(final float angle) {
+		final double halfAngle = -0.5 * angle;
+		final float r0 = (float)MutableRotation.cos(halfAngle);
+		final float r3 = (float)MutableRotation.sin(halfAngle);
+		return setComposed(r0 * q0 - r3 * q3, r0 * q1 - r3 * q2, r0 * q2 + r3 * q1, r3 * q0
+				+ r0 * q3);
+	}
+
+	/**
+	 * Apply the rotation to a vector given by its coordinates.
+	 *
+	 * @param x
+	 *            abscissa of the vector to apply the rotation to
+	 * @param y
+	 *            ordinate of the vector to apply the rotation to
+	 * @param z
+	 *            height of the vector to apply the rotation to
+	 * @param out
+	 *            receives the image of the vector by the rotation
+	 * @return out
+	 */
+	public FloatVector3D applyTo(final float x, final float y, final float z,
+			final FloatVector3D out) {
+		final float s = q1 * x + q2 * y + q3 * z;
+		return out.set(2 * (q0 * (x * q0 - (q2 * z - q3 * y)) + s * q1) - x, 2
+				* (q0 * (y * q0 - (q3 * x - q1 * z)) + s * q2) - y, 2
+				* (q0 * (z * q0 - (q1 * y - q2 * x)) + s * q3) - z);
+	}
+
+	/**
+	 * Apply the inverse of the rotation to a vector given by its coordinates.
+	 *
+	 * @param x
+	 *            abscissa of the vector to apply the inverse rotation to
+	 * @param y
+	 *            ordinate of the vector to apply the inverse rotation to
+	 * @param z
+	 *            height of the vector to apply the inverse rotation to
+	 * @param out
+	 *            receives the vector whose image by the rotation is (x, y, z)
+	 * @return out
+	 */
+	public FloatVector3D applyInverseTo(final float x, final float y, final float z,
+			final FloatVector3D out) {
+		final float s = q1 * x + q2 * y + q3 * z;
+		final float m0 = -q0;
+		return out.set(2 * (m0 * (x * m0 - (q2 * z - q3 * y)) + s * q1) - x, 2
+				* (m0 * (y * m0 - (q3 * x - q1 * z)) + s * q2) - y, 2
+				* (m0 * (z * m0 - (q1 * y - q2 * x)) + s * q3) - z);
+	}
+
+	/**
+	 * Copy the instance into a double-precision rotation, renormalized in
+	 * double.
+	 *
+	 * @param out
+	 *            receives the quaternion of the instance
+	 * @return out
+	 */
+	public MutableRotation get(final MutableRotation out) {
+		return out.set(q0, q1, q2, q3, true);
+	}
+
+	/**
+	 * Get an immutable double-precision copy of the instance.
+	 *
+	 * @return a new rotation with the quaternion of the instance
+	 */
+	public Rotation toRotation() {
+		return new Rotation(q0, q1, q2, q3, true);
+	}
+
+	/** Scalar coordinate of the quaternion. */
+	private float q0;
+
+	/** First coordinate of the vectorial part of the quaternion. */
+	private float q1;
+
+	/** Second coordinate of the vectorial part of the quaternion. */
+	private float q2;
+
+	/** Third coordinate of the vectorial part of the quaternion. */
+	private float q3;
+
+}
@@ -0,0 +1,208 @@
+/*
+   The PeasyCam Processing library, which provides an easy-peasy
+   camera for 3D sketching.
+  
+   Copyright 2008 Jonathan Feinberg
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+
+package peasy.org.apache.commons.math.geometry;
+
+/**
+ * A single-precision counterpart of {@link MutableVector3D}.
+ *
+ * <p>
+ * Processing takes its camera in float, so a camera kept in this type hands
+ * its coordinates over without conversions, in half the memory. The price is
+ * precision: about 7 significant digits instead of 16.
+ * </p>
+ *
+ * @see FloatRotation
+ */
+public class FloatVector3D {
+
+	/**
+	 * Build a null vector.
+	 */
+	public FloatVector3D() {
+		x = 0;
+		y = 0;
+		z = 0;
+	}
+
+	/**
+	 * Build a vector from its coordinates.
+	 *
+	 * @param x
+	 *            abscissa
+	 * @param y
+	 *            ordinate
+	 * @param z
+	 *            height
+	 */
+	public FloatVector3D(final float x, final float y, final float z) {
+		this.x = x;
+		this.y = y;
+		this.z = z;
+	}
+
+	/**
+	 * Get the abscissa of the vector.
+	 *
+	 * @return abscissa of the vector
+	 */
+	public float getX() {
+		return x;
+	}
+
+	/**
+	 * Get the ordinate of the vector.
+	 *
+	 * @return ordinate of the vector
+	 */
+	public float getY() {
+		return y;
+	}
+
+	/**
+	 * Get the height of the vector.
+	 *
+	 * @return height of the vector
+	 */
+	public float getZ() {
+		return z;
+	}
+
+	/**
+	 * Get the L<sub>2</sub> norm for the vector.
+	 *
+	 * @return euclidian norm for the vector
+	 */
+	public float getNorm() {
+		return (float)Math.sqrt(x * x + y * y + z * z);
+	}
+
+	/**
+	 * Set the coordinates of the instance.
+	 *
+	 * @param x
+	 *            abscissa
+	 * @param y
+	 *            ordinate
+	 * @param z
+	 *            height
+	 * @return this
+	 */
+	public FloatVector3D set(final float x, final float y, final float z) {
+		this.x = x;
+		this.y = y;
+		this.z = z;
+		return this;
+	}
+
+	/**
+	 * Copy another vector into the instance, rounding it to float.
+	 *
+	 * @param v
+	 *            vector to copy
+	 * @return this
+	 */
+	public FloatVector3D set(final MutableVector3D v) {
+		return set((float)v.getX(), (float)v.getY(), (float)v.getZ());
+	}
+
+	/**
+	 * Copy another vector into the instance.
+	 *
+	 * @param v
+	 *            vector to copy
+	 * @return this
+	 */
+	public FloatVector3D set(final FloatVector3D v) {
+		return set(v.x, v.y, v.z);
+	}
+
+	/**
+	 * Add a vector to the instance.
+	 *
+	 * @param dx
+	 *            abscissa to add
+	 * @param dy
+	 *            ordinate to add
+	 * @param dz
+	 *            height to add
+	 * @return this
+	 */
+	public FloatVector3D add(final float dx, final float dy, final float dz) {
+		x += dx;
+		y += dy;
+		z += dz;
+		return this;
+	}
+
+	/**
+	 * Add a vector to the instance.
+	 *
+	 * @param v
+	 *            vector to add
+	 * @return this
+	 */
+	public FloatVector3D add(final FloatVector3D v) {
+		return add(v.x, v.y, v.z);
+	}
+
+	/**
+	 * Multiply the instance by a scalar.
+	 *
+	 * @param a
+	 *            scalar
+	 * @return this
+	 */
+	public FloatVector3D scalarMultiply(final float a) {
+		x *= a;
+		y *= a;
+		z *= a;
+		return this;
+	}
+
+	/**
+	 * Copy the instance into a double-precision vector.
+	 *
+	 * @param out
+	 *            receives the coordinates of the instance
+	 * @return out
+	 */
+	public MutableVector3D get(final MutableVector3D out) {
+		return out.set(x, y, z);
+	}
+
+	/**
+	 * Get an immutable double-precision copy of the instance.
+	 *
+	 * @return a new vector with the coordinates of the instance
+	 */
+	public Vector3D toVector3D() {
+		return new Vector3D(x, y, z);
+	}
+
+	/** Abscissa. */
+	private float x;
+
+	/** Ordinate. */
+	private float y;
+
+	/** Height. */
+	private float z;
+
+}
@@ -0,0 +1,481 @@
+/*
+   The PeasyCam Processing library, which provides an easy-peasy
+   camera for 3D sketching.
+
+   Copyright 2008 Jonathan Feinberg
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+
+package peasy.org.apache.commons.math.geometry;
+
+/**
+ * A mutable counterpart of {@link Rotation}.
+ *
+ * <p>
+ * The quaternion conventions are exactly those of {@link Rotation}, so
+ * <code>m.compose(r)</code> leaves <code>m</code> equal to what
+ * <code>m.toRotation().applyTo(r)</code> would have returned, and
+ * <code>m.applyTo(u, out)</code> leaves in <code>out</code> what
+ * <code>m.toRotation().applyTo(u)</code> would have returned. None of the
+ * operations allocate.
+ * </p>
+ *
+ * @see MutableVector3D
+ */
+public class MutableRotation {
+
+	/**
+	 * Largest half angle, 1/32, for which {@link #sin(double)} and
+	 * {@link #cos(double)} use their series. It covers rotation steps of up
+	 * to 1/16 radian.
+	 */
+	static final double SMALL_ANGLE = 1.0 / 32;
+
+	/**
+	 * Build the identity rotation.
+	 */
+	public MutableRotation() {
+		q0 = 1;
+		q1 = 0;
+		q2 = 0;
+		q3 = 0;
+	}
+
+	/**
+	 * Build a mutable copy of an immutable rotation.
+	 *
+	 * @param r
+	 *            rotation to copy
+	 */
+	public MutableRotation(final Rotation r) {
+		set(r);
+	}
+
+	/**
+	 * Get the scalar coordinate of the quaternion.
+	 *
+	 * @return scalar coordinate of the quaternion
+	 */
+	public double getQ0() {
+		return q0;
+	}
+
+	/**
+	 * Get the first coordinate of the vectorial part of the quaternion.
+	 *
+	 * @return first coordinate of the vectorial part of the quaternion
+	 */
+	public double getQ1() {
+		return q1;
+	}
+
+	/**
+	 * Get the second coordinate of the vectorial part of the quaternion.
+	 *
+	 * @return second coordinate of the vectorial part of the quaternion
+	 */
+	public double getQ2() {
+		return q2;
+	}
+
+	/**
+	 * Get the third coordinate of the vectorial part of the quaternion.
+	 *
+	 * @return third coordinate of the vectorial part of the quaternion
+	 */
+	public double getQ3() {
+		return q3;
+	}
+
+	/**
+	 * Set the quaternion coordinates of the instance.
+	 *
+	 * @param q0
+	 *            scalar part of the quaternion
+	 * @param q1
+	 *            first coordinate of the vectorial part of the quaternion
+	 * @param q2
+	 *            second coordinate of the vectorial part of the quaternion
+	 * @param q3
+	 *            third coordinate of the vectorial part of the quaternion
+	 * @param needsNormalization
+	 *            if true, the coordinates are normalized after being set
+	 * @return this
+	 */
+	public MutableRotation set(final double q0, final double q1, final double q2,
+			final double q3, final boolean needsNormalization) {
+		this.q0 = q0;
+		this.q1 = q1;
+		this.q2 = q2;
+		this.q3 = q3;
+		matrixStale = true;
+		if (needsNormalization) {
+			normalize();
+		}
+		return this;
+	}
+
+	/**
+	 * Copy an immutable rotation into the instance.
+	 *
+	 * @param r
+	 *            rotation to copy
+	 * @return this
+	 */
+	public MutableRotation set(final Rotation r) {
+		return set(r.getQ0(), r.getQ1(), r.getQ2(), r.getQ3(), false);
+	}
+
+	/**
+	 * Copy another mutable rotation into the instance.
+	 *
+	 * @param r
+	 *            rotation to copy
+	 * @return this
+	 */
+	public MutableRotation set(final MutableRotation r) {
+		return set(r.q0, r.q1, r.q2, r.q3, false);
+	}
+
+	/**
+	 * Reset the instance to the identity rotation.
+	 *
+	 * @return this
+	 */
+	public MutableRotation setIdentity() {
+		return set(1, 0, 0, 0, false);
+	}
+
+	/**
+	 * Normalize the quaternion in place, removing the drift accumulated by long
+	 * chains of compositions.
+	 *
+	 * @return this
+	 */
+	public MutableRotation normalize() {
+		final double inv = 1.0 / Math.sqrt(q0 * q0 + q1 * q1 + q2 * q2 + q3 * q3);
+		q0 *= inv;
+		q1 *= inv;
+		q2 *= inv;
+		q3 *= inv;
+		matrixStale = true;
+		return this;
+	}
+
+	/**
+	 * Replace the instance by its composition with the rotation given by its
+	 * quaternion coordinates, i.e. <code>this = this o r</code>.
+	 *
+	 * @param r0
+	 *            scalar part of r
+	 * @param r1
+	 *            first coordinate of the vectorial part of r
+	 * @param r2
+	 *            second coordinate of the vectorial part of r
+	 * @param r3
+	 *            third coordinate of the vectorial part of r
+	 * @return this
+	 * @see Rotation#applyTo(Rotation)
+	 */
+	public MutableRotation compose(final double r0, final double r1, final double r2,
+			final double r3) {
+		final double n0 = r0 * q0 - (r1 * q1 + r2 * q2 + r3 * q3);
+		final double n1 = r1 * q0 + r0 * q1 + (r2 * q3 - r3 * q2);
+		final double n2 = r2 * q0 + r0 * q2 + (r3 * q1 - r1 * q3);
+		final double n3 = r3 * q0 + r0 * q3 + (r1 * q2 - r2 * q1);
+		q0 = n0;
+		q1 = n1;
+		q2 = n2;
+		q3 = n3;
+		matrixStale = true;
+		return this;
+	}
+
+	/**
+	 * Replace the instance by its composition with another rotation, i.e.
+	 * <code>this = this o r</code>.
+	 *
+	 * @param r
+	 *            rotation to compose with
+	 * @return this
+	 */
+	public MutableRotation compose(final Rotation r) {
+		return compose(r.getQ0(), r.getQ1(), r.getQ2(), r.getQ3());
+	}
+
+	/**
+	 * Replace the instance by its composition with the rotation of the given
+	 * angle around the given axis, without building that rotation.
+	 *
+	 * @param axis
+	 *            axis around which to rotate
+	 * @param angle
+	 *            rotation angle
+	 * @return this
+	 * @exception ArithmeticException
+	 *                if the axis norm is zero
+	 * @see Rotation#Rotation(Vector3D, double)
+	 */
+	public MutableRotation composeAxisAngle(final Vector3D axis, final double angle) {
+		final double norm = axis.getNorm();
+		if (norm == 0) {
+			throw new ArithmeticException("zero norm for rotation axis");
+		}
+		final double halfAngle = -0.5 * angle;
+		final double coeff = Math.sin(halfAngle) / norm;
+		return compose(Math.cos(halfAngle), coeff * axis.getX(), coeff * axis.getY(),
+				coeff * axis.getZ());
+	}
+
+	/**
+	 * Replace the instance by its composition with the rotation of the given
+	 * angle around the x axis, i.e. what
+	 * <code>composeAxisAngle(Vector3D.plusI, angle)</code> does, with the
+	 * products by the zero coordinates left out. Small angles, such as the
+	 * per-frame steps of an inertial spin, skip {@link Math#sin(double)} and
+	 * {@link Math#cos(double)} as well.
+	 *
+	 * @param angle
+	 *            rotation angle
+	 * @return this
+	 */
+	public MutableRotation composeAroundX(final double angle) {
+		final double halfAngle = -0.5 * angle;
+		final double r0 = cos(halfAngle), r1 = sin(halfAngle);
+		final double n0 = r0 * q0 - r1 * q1;
+		final double n1 = r1 * q0 + r0 * q1;
+		final double n2 = r0 * q2 - r1 * q3;
+		final double n3 = r0 * q3 + r1 * q2;
+		return set(n0, n1, n2, n3, false);
+	}
+
+	/**
+	 * Replace the instance by its composition with the rotation of the given
+	 * angle around the y axis.
+	 *
+	 * @param angle
+	 *            rotation angle
+	 * @return this
+	 * @see #composeAroundX(double)
+	 */
+	public MutableRotation composeAroundY(final double angle) {
+		final double halfAngle = -0.5 * angle;
+		final double r0 = cos(halfAngle), r2 = sin(halfAngle);
+		final double n0 = r0 * q0 - r2 * q2;
+		final double n1 = r0 * q1 + r2 * q3;
+		final double n2 = r2 * q0 + r0 * q2;
+		final double n3 = r0 * q3 - r2 * q1;
+		return set(n0, n1, n2, n3, false);
+	}
+
+	/**
+	 * Replace the instance by its composition with the rotation of the given
+	 * angle around the z axis.
+	 *
+	 * @param angle
+	 *            rotation angle
+	 * @return this
+	 * @see #composeAroundX(double)
+	 */
+	public MutableRotation composeAroundZ(final double angle) {
+		final double halfAngle = -0.5 * angle;
+		final double r0 = cos(halfAngle), r3 = sin(halfAngle);
+		final double n0 = r0 * q0 - r3 * q3;
+		final double n1 = r0 * q1 - r3 * q2;
+		final double n2 = r0 * q2 + r3 * q1;
+		final double n3 = r3 * q0 + r0 * q3;
+		return set(n0, n1, n2, n3, false);
+	}
+
+	/**
+	 * Sine of x, by its Taylor series through x<sup>7</sup> when |x| is at most
+	 * {@link #SMALL_ANGLE}. The first term left out is then below
+	 * x &middot; 2<sup>-40</sup> / 9!, far under the rounding error of the
+	 * result.
+	 */
+	static double sin(final double x) {
+		if (x > SMALL_ANGLE || x < -SMALL_ANGLE) {
+			return Math.sin(x);
+		}
+		final double x2 = x * x;
+		return x
+				* (1 - x2 * (1.0 / 6) * (1 - x2 * (1.0 / 20) * (1 - x2 * (1.0 / 42))));
+	}
+
+	/**
+	 * Cosine of x, by its Taylor series through x<sup>8</sup> when |x| is at
+	 * most {@link #SMALL_ANGLE}. The first term left out is then below
+	 * 2<sup>-50</sup> / 10!.
+	 */
+	static double cos(final double x) {
+		if (x > SMALL_ANGLE || x < -SMALL_ANGLE) {
+			return Math.cos(x);
+		}
+		final double x2 = x * x;
+		return 1 - x2 * 0.5
+				* (1 - x2 * (1.0 / 12) * (1 - x2 * (1.0 / 30) * (1 - x2 * (1.0 / 56))));
+	}
+
+	/**
+	 * Apply the rotation to a vector given by its coordinates.
+	 *
+	 * @param x
+	 *            abscissa of the vector to apply the rotation to
+	 * @param y
+	 *            ordinate of the vector to apply the rotation to
+	 * @param z
+	 *            height of the vector to apply the rotation to
+	 * @param out
+	 *            receives the image of the vector by the rotation
+	 * @return out
+	 */
+	public MutableVector3D applyTo(final double x, final double y, final double z,
+			final MutableVector3D out) {
+		if (matrixStale) {
+			updateMatrix();
+		}
+		return out.set(m00 * x + m01 * y + m02 * z, m10 * x + m11 * y + m12 * z, m20
+				* x + m21 * y + m22 * z);
+	}
+
+	/**
+	 * Apply the rotation to a vector.
+	 *
+	 * @param u
+	 *            vector to apply the rotation to
+	 * @param out
+	 *            receives the image of u by the rotation
+	 * @return out
+	 */
+	public MutableVector3D applyTo(final Vector3D u, final MutableVector3D out) {
+		return applyTo(u.getX(), u.getY(), u.getZ(), out);
+	}
+
+	/**
+	 * Apply the inverse of the rotation to a vector given by its coordinates.
+	 *
+	 * @param x
+	 *            abscissa of the vector to apply the inverse rotation to
+	 * @param y
+	 *            ordinate of the vector to apply the inverse rotation to
+	 * @param z
+	 *            height of the vector to apply the inverse rotation to
+	 * @param out
+	 *            receives the vector whose image by the rotation is (x, y, z)
+	 * @return out
+	 */
+	public MutableVector3D applyInverseTo(final double x, final double y,
+			final double z, final MutableVector3D out) {
+		if (matrixStale) {
+			updateMatrix();
+		}
+		return out.set(m00 * x + m10 * y + m20 * z, m01 * x + m11 * y + m21 * z, m02
+				* x + m12 * y + m22 * z);
+	}
+
+	/**
+	 * Get the 3X3 matrix corresponding to the instance, without allocating.
+	 *
+	 * @param out
+	 *            array of at least nine elements receiving the matrix in row
+	 *            major order
+	 * @return out
+	 * @see Rotation#getMatrix(double[])
+	 */
+	public double[] getMatrix(final double[] out) {
+		if (matrixStale) {
+			updateMatrix();
+		}
+		out[0] = m00;
+		out[1] = m01;
+		out[2] = m02;
+		out[3] = m10;
+		out[4] = m11;
+		out[5] = m12;
+		out[6] = m20;
+		out[7] = m21;
+		out[8] = m22;
+		return out;
+	}
+
+	/**
+	 * Rebuild the cached matrix from the quaternion. A camera applies its
+	 * rotation to several vectors between changes, and the matrix product
+	 * is cheaper than the quaternion formula each time.
+	 */
+	private void updateMatrix() {
+		final double q0q0 = q0 * q0;
+		final double q0q1 = q0 * q1;
+		final double q0q2 = q0 * q2;
+		final double q0q3 = q0 * q3;
+		final double q1q2 = q1 * q2;
+		final double q1q3 = q1 * q3;
+		final double q2q3 = q2 * q3;
+		m00 = 2.0 * (q0q0 + q1 * q1) - 1.0;
+		m10 = 2.0 * (q1q2 - q0q3);
+		m20 = 2.0 * (q1q3 + q0q2);
+		m01 = 2.0 * (q1q2 + q0q3);
+		m11 = 2.0 * (q0q0 + q2 * q2) - 1.0;
+		m21 = 2.0 * (q2q3 - q0q1);
+		m02 = 2.0 * (q1q3 - q0q2);
+		m12 = 2.0 * (q2q3 + q0q1);
+		m22 = 2.0 * (q0q0 + q3 * q3) - 1.0;
+		matrixStale = false;
+	}
+
+	/**
+	 * Get the Cardan or Euler angles corresponding to the instance, without
+	 * throwing when the rotation is singular.
+	 *
+	 * @param order
+	 *            rotation order to use
+	 * @param angles
+	 *            array of at least three elements receiving the angles; left
+	 *            untouched if the rotation is singular
+	 * @return false if the rotation is singular with respect to the angles set
+	 *         specified
+	 * @see Rotation#getAngles(RotationOrder, double[])
+	 */
+	public boolean getAngles(final RotationOrder order, final double[] angles) {
+		return Rotation.getAngles(q0, q1, q2, q3, order, angles);
+	}
+
+	/**
+	 * Get an immutable copy of the instance.
+	 *
+	 * @return a new rotation with the quaternion of the instance
+	 */
+	public Rotation toRotation() {
+		return new Rotation(q0, q1, q2, q3, false);
+	}
+
+	/** Scalar coordinate of the quaternion. */
+	private double q0;
+
+	/** First coordinate of the vectorial part of the quaternion. */
+	private double q1;
+
+	/** Second coordinate of the vectorial part of the quaternion. */
+	private double q2;
+
+	/** Third coordinate of the vectorial part of the quaternion. */
+	private double q3;
+
+	/** Whether the quaternion changed since the matrix was last built. */
+	private boolean matrixStale = true;
+
+	/** Matrix of the rotation, valid unless matrixStale. */
+	private double m00, m01, m02, m10, m11, m12, m20, m21, m22;
+
+}
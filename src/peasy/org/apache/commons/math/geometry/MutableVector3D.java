@@ -0,0 +1,235 @@
+/*
+   The PeasyCam Processing library, which provides an easy-peasy
+   camera for 3D sketching.
+
+   Copyright 2008 Jonathan Feinberg
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+
+package peasy.org.apache.commons.math.geometry;
+
+/**
+ * A mutable counterpart of {@link Vector3D}.
+ *
+ * <p>
+ * Every operation modifies the instance in place and returns it, so that a
+ * long-lived instance can be used as scratch space on paths that must not
+ * allocate. Use {@link #toVector3D()} to obtain an immutable snapshot.
+ * </p>
+ *
+ * @see MutableRotation
+ */
+public class MutableVector3D {
+
+	/**
+	 * Build a null vector.
+	 */
+	public MutableVector3D() {
+		x = 0;
+		y = 0;
+		z = 0;
+	}
+
+	/**
+	 * Build a vector from its coordinates.
+	 *
+	 * @param x
+	 *            abscissa
+	 * @param y
+	 *            ordinate
+	 * @param z
+	 *            height
+	 */
+	public MutableVector3D(final double x, final double y, final double z) {
+		this.x = x;
+		this.y = y;
+		this.z = z;
+	}
+
+	/**
+	 * Build a vector with the coordinates of an immutable one.
+	 *
+	 * @param v
+	 *            vector to copy
+	 */
+	public MutableVector3D(final Vector3D v) {
+		this(v.getX(), v.getY(), v.getZ());
+	}
+
+	/**
+	 * Get the abscissa of the vector.
+	 *
+	 * @return abscissa of the vector
+	 */
+	public double getX() {
+		return x;
+	}
+
+	/**
+	 * Get the ordinate of the vector.
+	 *
+	 * @return ordinate of the vector
+	 */
+	public double getY() {
+		return y;
+	}
+
+	/**
+	 * Get the height of the vector.
+	 *
+	 * @return height of the vector
+	 */
+	public double getZ() {
+		return z;
+	}
+
+	/**
+	 * Get the L<sub>2</sub> norm for the vector.
+	 *
+	 * @return euclidian norm for the vector
+	 */
+	public double getNorm() {
+		return Math.sqrt(x * x + y * y + z * z);
+	}
+
+	/**
+	 * Set the coordinates of the instance.
+	 *
+	 * @param x
+	 *            abscissa
+	 * @param y
+	 *            ordinate
+	 * @param z
+	 *            height
+	 * @return this
+	 */
+	public MutableVector3D set(final double x, final double y, final double z) {
+		this.x = x;
+		this.y = y;
+		this.z = z;
+		return this;
+	}
+
+	/**
+	 * Copy the coordinates of an immutable vector into the instance.
+	 *
+	 * @param v
+	 *            vector to copy
+	 * @return this
+	 */
+	public MutableVector3D set(final Vector3D v) {
+		return set(v.getX(), v.getY(), v.getZ());
+	}
+
+	/**
+	 * Copy the coordinates of another mutable vector into the instance.
+	 *
+	 * @param v
+	 *            vector to copy
+	 * @return this
+	 */
+	public MutableVector3D set(final MutableVector3D v) {
+		return set(v.x, v.y, v.z);
+	}
+
+	/**
+	 * Add a vector to the instance.
+	 *
+	 * @param dx
+	 *            abscissa to add
+	 * @param dy
+	 *            ordinate to add
+	 * @param dz
+	 *            height to add
+	 * @return this
+	 */
+	public MutableVector3D add(final double dx, final double dy, final double dz) {
+		x += dx;
+		y += dy;
+		z += dz;
+		return this;
+	}
+
+	/**
+	 * Add a vector to the instance.
+	 *
+	 * @param v
+	 *            vector to add
+	 * @return this
+	 */
+	public MutableVector3D add(final MutableVector3D v) {
+		return add(v.x, v.y, v.z);
+	}
+
+	/**
+	 * Add a scaled vector to the instance.
+	 *
+	 * @param factor
+	 *            scale factor to apply to v before adding it
+	 * @param v
+	 *            vector to add
+	 * @return this
+	 */
+	public MutableVector3D add(final double factor, final MutableVector3D v) {
+		return add(factor * v.x, factor * v.y, factor * v.z);
+	}
+
+	/**
+	 * Multiply the instance by a scalar.
+	 *
+	 * @param a
+	 *            scalar
+	 * @return this
+	 */
+	public MutableVector3D scalarMultiply(final double a) {
+		x *= a;
+		y *= a;
+		z *= a;
+		return this;
+	}
+
+	/**
+	 * Normalize the instance in place.
+	 *
+	 * @return this
+	 * @exception ArithmeticException
+	 *                if the norm is null
+	 */
+	public MutableVector3D normalize() {
+		final double s = getNorm();
+		if (s == 0) {
+			throw new ArithmeticException("cannot normalize a zero norm vector");
+		}
+		return scalarMultiply(1 / s);
+	}
+
+	/**
+	 * Get an immutable copy of the instance.
+	 *
+	 * @return a new vector with the coordinates of the instance
+	 */
+	public Vector3D toVector3D() {
+		return new Vector3D(x, y, z);
+	}
+
+	/** Abscissa. */
+	private double x;
+
+	/** Ordinate. */
+	private double y;
+
+	/** Height. */
+	private double z;
+
+}
@@ -18,6 +18,7 @@
 package peasy.org.apache.commons.math.geometry;
 
 import java.io.Serializable;
+import java.nio.FloatBuffer;
 
 /**
  * This class implements rotations in a three-dimensional space.
@@ -650,6 +651,60 @@ public class Rotation implements Serializable {
 	 */
 	public double[] getAngles(final RotationOrder order)
 			throws CardanEulerSingularityException {
+		final double[] angles = new double[3];
+		if (!getAngles(order, angles)) {
+			throw new CardanEulerSingularityException(order.getA1() != order.getA3());
+		}
+		return angles;
+	}
+
+	/**
+	 * Get the Cardan or Euler angles corresponding to the instance, without
+	 * throwing when the rotation is singular.
+	 * 
+	 * <p>
+	 * The angles are the same as the ones returned by
+	 * {@link #getAngles(RotationOrder)}, but they are written into a
+	 * caller-supplied array and a singularity is reported through the return
+	 * value. This makes the method suitable for code that probes several
+	 * orders in turn on every frame.
+	 * </p>
+	 * 
+	 * @param order
+	 *            rotation order to use
+	 * @param angles
+	 *            array of at least three elements receiving the angles, in the
+	 *            order specified by the set; left untouched if the rotation is
+	 *            singular
+	 * @return false if the rotation is singular with respect to the angles set
+	 *         specified
+	 */
+	public boolean getAngles(final RotationOrder order, final double[] angles) {
+		return getAngles(q0, q1, q2, q3, order, angles);
+	}
+
+	/**
+	 * Exception-free angles extraction shared with {@link MutableRotation}.
+	 * 
+	 * <p>
+	 * <code>aIJ</code> is the coordinate I of the image of the canonical
+	 * vector J by the rotation, so the image of a canonical vector by the
+	 * rotation is a column of this matrix and its image by the inverse rotation
+	 * is a row.
+	 * </p>
+	 */
+	static boolean getAngles(final double q0, final double q1, final double q2,
+			final double q3, final RotationOrder order, final double[] angles) {
+
+		final double a00 = 2 * (q0 * q0 + q1 * q1) - 1;
+		final double a01 = 2 * (q1 * q2 + q0 * q3);
+		final double a02 = 2 * (q1 * q3 - q0 * q2);
+		final double a10 = 2 * (q1 * q2 - q0 * q3);
+		final double a11 = 2 * (q0 * q0 + q2 * q2) - 1;
+		final double a12 = 2 * (q2 * q3 + q0 * q1);
+		final double a20 = 2 * (q1 * q3 + q0 * q2);
+		final double a21 = 2 * (q2 * q3 - q0 * q1);
+		final double a22 = 2 * (q0 * q0 + q3 * q3) - 1;
 
 		if (order == RotationOrder.XYZ) {
 
@@ -658,13 +713,12 @@ public class Rotation implements Serializable {
 			// (-r) (Vector3D.plusI) coordinates are :
 			// cos (psi) cos (theta), -sin (psi) cos (theta), sin (theta)
 			// and we can choose to have theta in the interval [-PI/2 ; +PI/2]
-			final Vector3D v1 = applyTo(Vector3D.plusK);
-			final Vector3D v2 = applyInverseTo(Vector3D.plusI);
-			if ((v2.getZ() < -0.9999999999) || (v2.getZ() > 0.9999999999)) {
-				throw new CardanEulerSingularityException(true);
+			if ((a02 < -0.9999999999) || (a02 > 0.9999999999)) {
+				return false;
 			}
-			return new double[] { Math.atan2(-(v1.getY()), v1.getZ()),
-					Math.asin(v2.getZ()), Math.atan2(-(v2.getY()), v2.getX()) };
+			angles[0] = Math.atan2(-a12, a22);
+			angles[1] = Math.asin(a02);
+			angles[2] = Math.atan2(-a01, a00);
 
 		} else if (order == RotationOrder.XZY) {
 
@@ -673,13 +727,12 @@ public class Rotation implements Serializable {
 			// (-r) (Vector3D.plusI) coordinates are :
 			// cos (theta) cos (psi), -sin (psi), sin (theta) cos (psi)
 			// and we can choose to have psi in the interval [-PI/2 ; +PI/2]
-			final Vector3D v1 = applyTo(Vector3D.plusJ);
-			final Vector3D v2 = applyInverseTo(Vector3D.plusI);
-			if ((v2.getY() < -0.9999999999) || (v2.getY() > 0.9999999999)) {
-				throw new CardanEulerSingularityException(true);
+			if ((a01 < -0.9999999999) || (a01 > 0.9999999999)) {
+				return false;
 			}
-			return new double[] { Math.atan2(v1.getZ(), v1.getY()),
-					-Math.asin(v2.getY()), Math.atan2(v2.getZ(), v2.getX()) };
+			angles[0] = Math.atan2(a21, a11);
+			angles[1] = -Math.asin(a01);
+			angles[2] = Math.atan2(a02, a00);
 
 		} else if (order == RotationOrder.YXZ) {
 
@@ -688,13 +741,12 @@ public class Rotation implements Serializable {
 			// (-r) (Vector3D.plusJ) coordinates are :
 			// sin (psi) cos (phi), cos (psi) cos (phi), -sin (phi)
 			// and we can choose to have phi in the interval [-PI/2 ; +PI/2]
-			final Vector3D v1 = applyTo(Vector3D.plusK);
-			final Vector3D v2 = applyInverseTo(Vector3D.plusJ);
-			if ((v2.getZ() < -0.9999999999) || (v2.getZ() > 0.9999999999)) {
-				throw new CardanEulerSingularityException(true);
+			if ((a12 < -0.9999999999) || (a12 > 0.9999999999)) {
+				return false;
 			}
-			return new double[] { Math.atan2(v1.getX(), v1.getZ()),
-					-Math.asin(v2.getZ()), Math.atan2(v2.getX(), v2.getY()) };
+			angles[0] = Math.atan2(a02, a22);
+			angles[1] = -Math.asin(a12);
+			angles[2] = Math.atan2(a10, a11);
 
 		} else if (order == RotationOrder.YZX) {
 
@@ -703,13 +755,12 @@ public class Rotation implements Serializable {
 			// (-r) (Vector3D.plusJ) coordinates are :
 			// sin (psi), cos (phi) cos (psi), -sin (phi) cos (psi)
 			// and we can choose to have psi in the interval [-PI/2 ; +PI/2]
-			final Vector3D v1 = applyTo(Vector3D.plusI);
-			final Vector3D v2 = applyInverseTo(Vector3D.plusJ);
-			if ((v2.getX() < -0.9999999999) || (v2.getX() > 0.9999999999)) {
-				throw new CardanEulerSingularityException(true);
+			if ((a10 < -0.9999999999) || (a10 > 0.9999999999)) {
+				return false;
 			}
-			return new double[] { Math.atan2(-(v1.getZ()), v1.getX()),
-					Math.asin(v2.getX()), Math.atan2(-(v2.getZ()), v2.getY()) };
+			angles[0] = Math.atan2(-a20, a00);
+			angles[1] = Math.asin(a10);
+			angles[2] = Math.atan2(-a12, a11);
 
 		} else if (order == RotationOrder.ZXY) {
 
@@ -718,13 +769,12 @@ public class Rotation implements Serializable {
 			// (-r) (Vector3D.plusK) coordinates are :
 			// -sin (theta) cos (phi), sin (phi), cos (theta) cos (phi)
 			// and we can choose to have phi in the interval [-PI/2 ; +PI/2]
-			final Vector3D v1 = applyTo(Vector3D.plusJ);
-			final Vector3D v2 = applyInverseTo(Vector3D.plusK);
-			if ((v2.getY() < -0.9999999999) || (v2.getY() > 0.9999999999)) {
-				throw new CardanEulerSingularityException(true);
+			if ((a21 < -0.9999999999) || (a21 > 0.9999999999)) {
+				return false;
 			}
-			return new double[] { Math.atan2(-(v1.getX()), v1.getY()),
-					Math.asin(v2.getY()), Math.atan2(-(v2.getX()), v2.getZ()) };
+			angles[0] = Math.atan2(-a01, a11);
+			angles[1] = Math.asin(a21);
+			angles[2] = Math.atan2(-a20, a22);
 
 		} else if (order == RotationOrder.ZYX) {
 
@@ -733,13 +783,12 @@ public class Rotation implements Serializable {
 			// (-r) (Vector3D.plusK) coordinates are :
 			// -sin (theta), sin (phi) cos (theta), cos (phi) cos (theta)
 			// and we can choose to have theta in the interval [-PI/2 ; +PI/2]
-			final Vector3D v1 = applyTo(Vector3D.plusI);
-			final Vector3D v2 = applyInverseTo(Vector3D.plusK);
-			if ((v2.getX() < -0.9999999999) || (v2.getX() > 0.9999999999)) {
-				throw new CardanEulerSingularityException(true);
+			if ((a20 < -0.9999999999) || (a20 > 0.9999999999)) {
+				return false;
 			}
-			return new double[] { Math.atan2(v1.getY(), v1.getX()),
-					-Math.asin(v2.getX()), Math.atan2(v2.getY(), v2.getZ()) };
+			angles[0] = Math.atan2(a10, a00);
+			angles[1] = -Math.asin(a20);
+			angles[2] = Math.atan2(a21, a22);
 
 		} else if (order == RotationOrder.XYX) {
 
@@ -748,13 +797,12 @@ public class Rotation implements Serializable {
 			// (-r) (Vector3D.plusI) coordinates are :
 			// cos (theta), sin (theta) sin (phi2), sin (theta) cos (phi2)
 			// and we can choose to have theta in the interval [0 ; PI]
-			final Vector3D v1 = applyTo(Vector3D.plusI);
-			final Vector3D v2 = applyInverseTo(Vector3D.plusI);
-			if ((v2.getX() < -0.9999999999) || (v2.getX() > 0.9999999999)) {
-				throw new CardanEulerSingularityException(false);
+			if ((a00 < -0.9999999999) || (a00 > 0.9999999999)) {
+				return false;
 			}
-			return new double[] { Math.atan2(v1.getY(), -v1.getZ()),
-					Math.acos(v2.getX()), Math.atan2(v2.getY(), v2.getZ()) };
+			angles[0] = Math.atan2(a10, -a20);
+			angles[1] = Math.acos(a00);
+			angles[2] = Math.atan2(a01, a02);
 
 		} else if (order == RotationOrder.XZX) {
 
@@ -763,13 +811,12 @@ public class Rotation implements Serializable {
 			// (-r) (Vector3D.plusI) coordinates are :
 			// cos (psi), -sin (psi) cos (phi2), sin (psi) sin (phi2)
 			// and we can choose to have psi in the interval [0 ; PI]
-			final Vector3D v1 = applyTo(Vector3D.plusI);
-			final Vector3D v2 = applyInverseTo(Vector3D.plusI);
-			if ((v2.getX() < -0.9999999999) || (v2.getX() > 0.9999999999)) {
-				throw new CardanEulerSingularityException(false);
+			if ((a00 < -0.9999999999) || (a00 > 0.9999999999)) {
+				return false;
 			}
-			return new double[] { Math.atan2(v1.getZ(), v1.getY()), Math.acos(v2.getX()),
-					Math.atan2(v2.getZ(), -v2.getY()) };
+			angles[0] = Math.atan2(a20, a10);
+			angles[1] = Math.acos(a00);
+			angles[2] = Math.atan2(a02, -a01);
 
 		} else if (order == RotationOrder.YXY) {
 
@@ -778,13 +825,12 @@ public class Rotation implements Serializable {
 			// (-r) (Vector3D.plusJ) coordinates are :
 			// sin (phi) sin (theta2), cos (phi), -sin (phi) cos (theta2)
 			// and we can choose to have phi in the interval [0 ; PI]
-			final Vector3D v1 = applyTo(Vector3D.plusJ);
-			final Vector3D v2 = applyInverseTo(Vector3D.plusJ);
-			if ((v2.getY() < -0.9999999999) || (v2.getY() > 0.9999999999)) {
-				throw new CardanEulerSingularityException(false);
+			if ((a11 < -0.9999999999) || (a11 > 0.9999999999)) {
+				return false;
 			}
-			return new double[] { Math.atan2(v1.getX(), v1.getZ()), Math.acos(v2.getY()),
-					Math.atan2(v2.getX(), -v2.getZ()) };
+			angles[0] = Math.atan2(a01, a21);
+			angles[1] = Math.acos(a11);
+			angles[2] = Math.atan2(a10, -a12);
 
 		} else if (order == RotationOrder.YZY) {
 
@@ -793,13 +839,12 @@ public class Rotation implements Serializable {
 			// (-r) (Vector3D.plusJ) coordinates are :
 			// sin (psi) cos (theta2), cos (psi), sin (psi) sin (theta2)
 			// and we can choose to have psi in the interval [0 ; PI]
-			final Vector3D v1 = applyTo(Vector3D.plusJ);
-			final Vector3D v2 = applyInverseTo(Vector3D.plusJ);
-			if ((v2.getY() < -0.9999999999) || (v2.getY() > 0.9999999999)) {
-				throw new CardanEulerSingularityException(false);
+			if ((a11 < -0.9999999999) || (a11 > 0.9999999999)) {
+				return false;
 			}
-			return new double[] { Math.atan2(v1.getZ(), -v1.getX()),
-					Math.acos(v2.getY()), Math.atan2(v2.getZ(), v2.getX()) };
+			angles[0] = Math.atan2(a21, -a01);
+			angles[1] = Math.acos(a11);
+			angles[2] = Math.atan2(a12, a10);
 
 		} else if (order == RotationOrder.ZXZ) {
 
@@ -808,13 +853,12 @@ public class Rotation implements Serializable {
 			// (-r) (Vector3D.plusK) coordinates are :
 			// sin (phi) sin (psi2), sin (phi) cos (psi2), cos (phi)
 			// and we can choose to have phi in the interval [0 ; PI]
-			final Vector3D v1 = applyTo(Vector3D.plusK);
-			final Vector3D v2 = applyInverseTo(Vector3D.plusK);
-			if ((v2.getZ() < -0.9999999999) || (v2.getZ() > 0.9999999999)) {
-				throw new CardanEulerSingularityException(false);
+			if ((a22 < -0.9999999999) || (a22 > 0.9999999999)) {
+				return false;
 			}
-			return new double[] { Math.atan2(v1.getX(), -v1.getY()),
-					Math.acos(v2.getZ()), Math.atan2(v2.getX(), v2.getY()) };
+			angles[0] = Math.atan2(a02, -a12);
+			angles[1] = Math.acos(a22);
+			angles[2] = Math.atan2(a20, a21);
 
 		} else { // last possibility is ZYZ
 
@@ -823,16 +867,17 @@ public class Rotation implements Serializable {
 			// (-r) (Vector3D.plusK) coordinates are :
 			// -sin (theta) cos (psi2), sin (theta) sin (psi2), cos (theta)
 			// and we can choose to have theta in the interval [0 ; PI]
-			final Vector3D v1 = applyTo(Vector3D.plusK);
-			final Vector3D v2 = applyInverseTo(Vector3D.plusK);
-			if ((v2.getZ() < -0.9999999999) || (v2.getZ() > 0.9999999999)) {
-				throw new CardanEulerSingularityException(false);
+			if ((a22 < -0.9999999999) || (a22 > 0.9999999999)) {
+				return false;
 			}
-			return new double[] { Math.atan2(v1.getY(), v1.getX()), Math.acos(v2.getZ()),
-					Math.atan2(v2.getY(), -v2.getX()) };
+			angles[0] = Math.atan2(a12, a02);
+			angles[1] = Math.acos(a22);
+			angles[2] = Math.atan2(a21, -a20);
 
 		}
 
+		return true;
+
 	}
 
 	/**
@@ -841,39 +886,45 @@ public class Rotation implements Serializable {
 	 * @return the matrix corresponding to the instance
 	 */
 	public double[][] getMatrix() {
+		final Matrix a = matrix();
+		return new double[][] { { a.m00, a.m01, a.m02 }, { a.m10, a.m11, a.m12 },
+				{ a.m20, a.m21, a.m22 } };
+	}
 
-		// products
-		final double q0q0 = q0 * q0;
-		final double q0q1 = q0 * q1;
-		final double q0q2 = q0 * q2;
-		final double q0q3 = q0 * q3;
-		final double q1q1 = q1 * q1;
-		final double q1q2 = q1 * q2;
-		final double q1q3 = q1 * q3;
-		final double q2q2 = q2 * q2;
-		final double q2q3 = q2 * q3;
-		final double q3q3 = q3 * q3;
-
-		// create the matrix
-		final double[][] m = new double[3][];
-		m[0] = new double[3];
-		m[1] = new double[3];
-		m[2] = new double[3];
-
-		m[0][0] = 2.0 * (q0q0 + q1q1) - 1.0;
-		m[1][0] = 2.0 * (q1q2 - q0q3);
-		m[2][0] = 2.0 * (q1q3 + q0q2);
-
-		m[0][1] = 2.0 * (q1q2 + q0q3);
-		m[1][1] = 2.0 * (q0q0 + q2q2) - 1.0;
-		m[2][1] = 2.0 * (q2q3 - q0q1);
-
-		m[0][2] = 2.0 * (q1q3 - q0q2);
-		m[1][2] = 2.0 * (q2q3 + q0q1);
-		m[2][2] = 2.0 * (q0q0 + q3q3) - 1.0;
-
-		return m;
+	/**
+	 * Get the 3X3 matrix corresponding to the instance, without allocating.
+	 * 
+	 * @param out
+	 *            array of at least nine elements receiving the matrix in row
+	 *            major order, i.e. <code>out[3 * i + j]</code> is element
+	 *            <code>[i][j]</code> of {@link #getMatrix()}
+	 * @return out
+	 */
+	public double[] getMatrix(final double[] out) {
+		final Matrix a = matrix();
+		out[0] = a.m00;
+		out[1] = a.m01;
+		out[2] = a.m02;
+		out[3] = a.m10;
+		out[4] = a.m11;
+		out[5] = a.m12;
+		out[6] = a.m20;
+		out[7] = a.m21;
+		out[8] = a.m22;
+		return out;
+	}
 
+	/**
+	 * Get the matrix of the instance, building it on first use. Once built it
+	 * makes applying the rotation to a vector cheaper than the quaternion
+	 * formula.
+	 */
+	private Matrix matrix() {
+		Matrix a = matrix;
+		if (a == null) {
+			matrix = a = new Matrix(q0, q1, q2, q3);
+		}
+		return a;
 	}
 
 	/**
@@ -889,11 +940,10 @@ public class Rotation implements Serializable {
 		final double y = u.getY();
 		final double z = u.getZ();
 
-		final double s = q1 * x + q2 * y + q3 * z;
+		final Matrix a = matrix();
 
-		return new Vector3D(2 * (q0 * (x * q0 - (q2 * z - q3 * y)) + s * q1) - x, 2
-				* (q0 * (y * q0 - (q3 * x - q1 * z)) + s * q2) - y, 2
-				* (q0 * (z * q0 - (q1 * y - q2 * x)) + s * q3) - z);
+		return new Vector3D(a.m00 * x + a.m01 * y + a.m02 * z, a.m10 * x + a.m11 * y
+				+ a.m12 * z, a.m20 * x + a.m21 * y + a.m22 * z);
 
 	}
 
@@ -910,15 +960,289 @@ public class Rotation implements Serializable {
 		final double y = u.getY();
 		final double z = u.getZ();
 
-		final double s = q1 * x + q2 * y + q3 * z;
-		final double m0 = -q0;
+		final Matrix a = matrix();
 
-		return new Vector3D(2 * (m0 * (x * m0 - (q2 * z - q3 * y)) + s * q1) - x, 2
-				* (m0 * (y * m0 - (q3 * x - q1 * z)) + s * q2) - y, 2
-				* (m0 * (z * m0 - (q1 * y - q2 * x)) + s * q3) - z);
+		return new Vector3D(a.m00 * x + a.m10 * y + a.m20 * z, a.m01 * x + a.m11 * y
+				+ a.m21 * z, a.m02 * x + a.m12 * y + a.m22 * z);
 
 	}
 
+	/**
+	 * Apply the rotation to an array of vectors stored as consecutive x, y, z
+	 * triples.
+	 * 
+	 * <p>
+	 * This and the other bulk methods turn the rotation into a matrix once,
+	 * then run a plain loop that allocates nothing, so they are much faster
+	 * than rotating {@link Vector3D} instances one by one. The input and output
+	 * may be the same array, at the same offset, but must not otherwise
+	 * overlap.
+	 * </p>
+	 * 
+	 * @param in
+	 *            coordinates of the vectors to apply the rotation to
+	 * @param inOffset
+	 *            index in <code>in</code> of the first abscissa
+	 * @param out
+	 *            receives the coordinates of the images of the vectors; may be
+	 *            <code>in</code> with <code>outOffset == inOffset</code>, but
+	 *            not with the two ranges partly overlapping
+	 * @param outOffset
+	 *            index in <code>out</code> of the first abscissa
+	 * @param count
+	 *            number of vectors
+	 * @exception IllegalArgumentException
+	 *                if <code>out</code> is <code>in</code> and the ranges
+	 *                overlap at different offsets
+	 */
+	public void applyTo(final float[] in, final int inOffset, final float[] out,
+			final int outOffset, final int count) {
+		transform(false, in, inOffset, out, outOffset, count);
+	}
+
+	/**
+	 * Apply the inverse of the rotation to an array of vectors stored as
+	 * consecutive x, y, z triples.
+	 * 
+	 * @see #applyTo(float[], int, float[], int, int)
+	 */
+	public void applyInverseTo(final float[] in, final int inOffset, final float[] out,
+			final int outOffset, final int count) {
+		transform(true, in, inOffset, out, outOffset, count);
+	}
+
+	/**
+	 * Apply the rotation to an array of vectors stored as consecutive x, y, z
+	 * triples.
+	 * 
+	 * @see #applyTo(float[], int, float[], int, int)
+	 */
+	public void applyTo(final double[] in, final int inOffset, final double[] out,
+			final int outOffset, final int count) {
+		transform(false, in, inOffset, out, outOffset, count);
+	}
+
+	/**
+	 * Apply the inverse of the rotation to an array of vectors stored as
+	 * consecutive x, y, z triples.
+	 * 
+	 * @see #applyTo(float[], int, float[], int, int)
+	 */
+	public void applyInverseTo(final double[] in, final int inOffset,
+			final double[] out, final int outOffset, final int count) {
+		transform(true, in, inOffset, out, outOffset, count);
+	}
+
+	/**
+	 * Apply the rotation to vectors stored as separate arrays of abscissas,
+	 * ordinates and heights. With this layout the JIT can compile the loop to
+	 * SIMD instructions.
+	 * 
+	 * @param x
+	 *            abscissas of the vectors to apply the rotation to
+	 * @param y
+	 *            ordinates of the vectors
+	 * @param z
+	 *            heights of the vectors
+	 * @param outX
+	 *            receives the abscissas of the images, may be x
+	 * @param outY
+	 *            receives the ordinates of the images, may be y
+	 * @param outZ
+	 *            receives the heights of the images, may be z
+	 * @param count
+	 *            number of vectors, from index 0
+	 * @see #applyTo(float[], int, float[], int, int)
+	 */
+	public void applyTo(final float[] x, final float[] y, final float[] z,
+			final float[] outX, final float[] outY, final float[] outZ, final int count) {
+		transform(false, x, y, z, outX, outY, outZ, count);
+	}
+
+	/**
+	 * Apply the inverse of the rotation to vectors stored as separate arrays of
+	 * abscissas, ordinates and heights.
+	 * 
+	 * @see #applyTo(float[], float[], float[], float[], float[], float[], int)
+	 */
+	public void applyInverseTo(final float[] x, final float[] y, final float[] z,
+			final float[] outX, final float[] outY, final float[] outZ, final int count) {
+		transform(true, x, y, z, outX, outY, outZ, count);
+	}
+
+	/**
+	 * Apply the rotation to vectors stored as separate arrays of abscissas,
+	 * ordinates and heights.
+	 * 
+	 * @see #applyTo(float[], float[], float[], float[], float[], float[], int)
+	 */
+	public void applyTo(final double[] x, final double[] y, final double[] z,
+			final double[] outX, final double[] outY, final double[] outZ,
+			final int count) {
+		transform(false, x, y, z, outX, outY, outZ, count);
+	}
+
+	/**
+	 * Apply the inverse of the rotation to vectors stored as separate arrays of
+	 * abscissas, ordinates and heights.
+	 * 
+	 * @see #applyTo(float[], float[], float[], float[], float[], float[], int)
+	 */
+	public void applyInverseTo(final double[] x, final double[] y, final double[] z,
+			final double[] outX, final double[] outY, final double[] outZ,
+			final int count) {
+		transform(true, x, y, z, outX, outY, outZ, count);
+	}
+
+	/**
+	 * Apply the rotation to vectors stored in a buffer as consecutive x, y, z
+	 * triples, such as the vertex data of an OpenGL buffer. The buffers are
+	 * read and written from their current positions, which are left unchanged.
+	 * 
+	 * @param in
+	 *            coordinates of the vectors to apply the rotation to
+	 * @param out
+	 *            receives the coordinates of the images of the vectors, may be
+	 *            in
+	 * @param count
+	 *            number of vectors
+	 * @see #applyTo(float[], int, float[], int, int)
+	 */
+	public void applyTo(final FloatBuffer in, final FloatBuffer out, final int count) {
+		transform(false, in, out, count);
+	}
+
+	/**
+	 * Apply the inverse of the rotation to vectors stored in a buffer as
+	 * consecutive x, y, z triples.
+	 * 
+	 * @see #applyTo(FloatBuffer, FloatBuffer, int)
+	 */
+	public void applyInverseTo(final FloatBuffer in, final FloatBuffer out,
+			final int count) {
+		transform(true, in, out, count);
+	}
+
+	// The bulk transforms multiply by the rotation matrix, transposed for the
+	// inverse rotation.
+
+	// Each triple is read in full before it is written, so rotating in place
+	// is safe; with a shifted overlap, later triples could be read after they
+	// had already been overwritten.
+	private static void checkOverlap(final boolean sameArray, final int inOffset,
+			final int outOffset, final int count) {
+		if (sameArray && inOffset != outOffset
+				&& Math.abs((long)inOffset - outOffset) < 3L * count) {
+			throw new IllegalArgumentException(
+					"input and output overlap at different offsets");
+		}
+	}
+
+	private void transform(final boolean inverse, final float[] in, final int inOffset,
+			final float[] out, final int outOffset, final int count) {
+		checkOverlap(in == out, inOffset, outOffset, count);
+		final Matrix m = matrix();
+		final float a00 = (float)m.m00;
+		final float a01 = (float)(inverse ? m.m10 : m.m01);
+		final float a02 = (float)(inverse ? m.m20 : m.m02);
+		final float a10 = (float)(inverse ? m.m01 : m.m10);
+		final float a11 = (float)m.m11;
+		final float a12 = (float)(inverse ? m.m21 : m.m12);
+		final float a20 = (float)(inverse ? m.m02 : m.m20);
+		final float a21 = (float)(inverse ? m.m12 : m.m21);
+		final float a22 = (float)m.m22;
+		for (int i = 0, j = inOffset, k = outOffset; i < count; i++, j += 3, k += 3) {
+			final float x = in[j], y = in[j + 1], z = in[j + 2];
+			out[k] = a00 * x + a01 * y + a02 * z;
+			out[k + 1] = a10 * x + a11 * y + a12 * z;
+			out[k + 2] = a20 * x + a21 * y + a22 * z;
+		}
+	}
+
+	private void transform(final boolean inverse, final double[] in, final int inOffset,
+			final double[] out, final int outOffset, final int count) {
+		checkOverlap(in == out, inOffset, outOffset, count);
+		final Matrix m = matrix();
+		final double a00 = m.m00;
+		final double a01 = inverse ? m.m10 : m.m01;
+		final double a02 = inverse ? m.m20 : m.m02;
+		final double a10 = inverse ? m.m01 : m.m10;
+		final double a11 = m.m11;
+		final double a12 = inverse ? m.m21 : m.m12;
+		final double a20 = inverse ? m.m02 : m.m20;
+		final double a21 = inverse ? m.m12 : m.m21;
+		final double a22 = m.m22;
+		for (int i = 0, j = inOffset, k = outOffset; i < count; i++, j += 3, k += 3) {
+			final double x = in[j], y = in[j + 1], z = in[j + 2];
+			out[k] = a00 * x + a01 * y + a02 * z;
+			out[k + 1] = a10 * x + a11 * y + a12 * z;
+			out[k + 2] = a20 * x + a21 * y + a22 * z;
+		}
+	}
+
+	private void transform(final boolean inverse, final float[] x, final float[] y,
+			final float[] z, final float[] outX, final float[] outY, final float[] outZ,
+			final int count) {
+		final Matrix m = matrix();
+		final float a00 = (float)m.m00;
+		final float a01 = (float)(inverse ? m.m10 : m.m01);
+		final float a02 = (float)(inverse ? m.m20 : m.m02);
+		final float a10 = (float)(inverse ? m.m01 : m.m10);
+		final float a11 = (float)m.m11;
+		final float a12 = (float)(inverse ? m.m21 : m.m12);
+		final float a20 = (float)(inverse ? m.m02 : m.m20);
+		final float a21 = (float)(inverse ? m.m12 : m.m21);
+		final float a22 = (float)m.m22;
+		for (int i = 0; i < count; i++) {
+			final float xi = x[i], yi = y[i], zi = z[i];
+			outX[i] = a00 * xi + a01 * yi + a02 * zi;
+			outY[i] = a10 * xi + a11 * yi + a12 * zi;
+			outZ[i] = a20 * xi + a21 * yi + a22 * zi;
+		}
+	}
+
+	private void transform(final boolean inverse, final double[] x, final double[] y,
+			final double[] z, final double[] outX, final double[] outY,
+			final double[] outZ, final int count) {
+		final Matrix m = matrix();
+		final double a00 = m.m00;
+		final double a01 = inverse ? m.m10 : m.m01;
+		final double a02 = inverse ? m.m20 : m.m02;
+		final double a10 = inverse ? m.m01 : m.m10;
+		final double a11 = m.m11;
+		final double a12 = inverse ? m.m21 : m.m12;
+		final double a20 = inverse ? m.m02 : m.m20;
+		final double a21 = inverse ? m.m12 : m.m21;
+		final double a22 = m.m22;
+		for (int i = 0; i < count; i++) {
+			final double xi = x[i], yi = y[i], zi = z[i];
+			outX[i] = a00 * xi + a01 * yi + a02 * zi;
+			outY[i] = a10 * xi + a11 * yi + a12 * zi;
+			outZ[i] = a20 * xi + a21 * yi + a22 * zi;
+		}
+	}
+
+	private void transform(final boolean inverse, final FloatBuffer in, final FloatBuffer out,
+			final int count) {
+		final Matrix m = matrix();
+		final float a00 = (float)m.m00;
+		final float a01 = (float)(inverse ? m.m10 : m.m01);
+		final float a02 = (float)(inverse ? m.m20 : m.m02);
+		final float a10 = (float)(inverse ? m.m01 : m.m10);
+		final float a11 = (float)m.m11;
+		final float a12 = (float)(inverse ? m.m21 : m.m12);
+		final float a20 = (float)(inverse ? m.m02 : m.m20);
+		final float a21 = (float)(inverse ? m.m12 : m.m21);
+		final float a22 = (float)m.m22;
+		final int inStart = in.position(), outStart = out.position();
+		for (int i = 0, j = inStart, k = outStart; i < count; i++, j += 3, k += 3) {
+			final float x = in.get(j), y = in.get(j + 1), z = in.get(j + 2);
+			out.put(k, a00 * x + a01 * y + a02 * z);
+			out.put(k + 1, a10 * x + a11 * y + a12 * z);
+			out.put(k + 2, a20 * x + a21 * y + a22 * z);
+		}
+	}
+
 	/**
 	 * Apply the instance to another rotation. Applying the instance to a
 	 * rotation is computing the composition in an order compliant with the
@@ -1072,6 +1396,43 @@ public class Rotation implements Serializable {
 	/** Third coordinate of the vectorial part of the quaternion. */
 	private final double q3;
 
+	/** Matrix of the rotation, built on first use. */
+	private transient Matrix matrix;
+
+	/**
+	 * The elements of a rotation matrix. They are final so that a rotation
+	 * shared between threads can cache its matrix without locking: a thread
+	 * either sees no matrix yet and builds its own, or sees a complete one.
+	 */
+	private static final class Matrix {
+		final double m00, m01, m02, m10, m11, m12, m20, m21, m22;
+
+		Matrix(final double q0, final double q1, final double q2, final double q3) {
+			final double q0q0 = q0 * q0;
+			final double q0q1 = q0 * q1;
+			final double q0q2 = q0 * q2;
+			final double q0q3 = q0 * q3;
+			final double q1q1 = q1 * q1;
+			final double q1q2 = q1 * q2;
+			final double q1q3 = q1 * q3;
+			final double q2q2 = q2 * q2;
+			final double q2q3 = q2 * q3;
+			final double q3q3 = q3 * q3;
+
+			m00 = 2.0 * (q0q0 + q1q1) - 1.0;
+			m10 = 2.0 * (q1q2 - q0q3);
+			m20 = 2.0 * (q1q3 + q0q2);
+
+			m01 = 2.0 * (q1q2 + q0q3);
+			m11 = 2.0 * (q0q0 + q2q2) - 1.0;
+			m21 = 2.0 * (q2q3 - q0q1);
+
+			m02 = 2.0 * (q1q3 - q0q2);
+			m12 = 2.0 * (q2q3 + q0q1);
+			m22 = 2.0 * (q0q0 + q3q3) - 1.0;
+		}
+	}
+
 	/** Serializable version identifier */
 	private static final long serialVersionUID = 8225864499430109352L;
 
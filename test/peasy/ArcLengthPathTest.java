@@ -0,0 +1,118 @@
+/*
+   The PeasyCam Processing library, which provides an easy-peasy
+   camera for 3D sketching.
+  
+   Copyright 2008 Jonathan Feinberg
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package peasy;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import peasy.org.apache.commons.math.geometry.Rotation;
+import peasy.org.apache.commons.math.geometry.Vector3D;
+
+public class ArcLengthPathTest {
+
+	private static CameraState state(final Rotation r, final double x, final double y,
+			final double z, final double distance) {
+		return new CameraState(r, new Vector3D(x, y, z), distance);
+	}
+
+	/**
+	 * Measure the tour again, far more finely, and check that the camera has
+	 * travelled each length by the time the path says it has.
+	 */
+	private static void assertMatchesFineMeasurement(final ArcLengthPath path) {
+		final CameraTour tour = path.getTour();
+		final double start = tour.getStartMillis(), end = tour.getEndMillis();
+		final double total = path.getLength();
+		final int fine = 200000, checks = 100;
+		final double[] a = tour.getState(start, new double[8]), b = new double[8];
+		double length = 0;
+		int next = 1;
+		for (int i = 1; i <= fine; i++) {
+			final double time = start + (end - start) * i / fine;
+			tour.getState(time, b);
+			length += step(a, b);
+			System.arraycopy(b, 0, a, 0, 8);
+			while (next <= checks && path.getTime(total * next / checks) <= time) {
+				assertEquals("check " + next, total * next / checks, length, 1e-3 * total);
+				next++;
+			}
+		}
+		assertEquals(checks + 1, next);
+		assertEquals(total, length, 1e-3 * total);
+	}
+
+	private static double step(final double[] a, final double[] b) {
+		final double dx = b[4] - a[4], dy = b[5] - a[5], dz = b[6] - a[6], dd = b[7]
+				- a[7];
+		final double dot = Math.abs(a[0] * b[0] + a[1] * b[1] + a[2] * b[2] + a[3] * b[3]);
+		final double swing = 2 * Math.acos(Math.min(1, dot)) * (a[7] + b[7]) / 2;
+		return Math.sqrt(dx * dx + dy * dy + dz * dz + dd * dd + swing * swing);
+	}
+
+	@Test
+	public void unevenlySpacedKeysAreCrossedAtConstantSpeed() {
+		final Rotation r = new Rotation();
+		// the spline doubles back a little on its way from 0 to 10
+		assertMatchesFineMeasurement(new ArcLengthPath(new CameraState[] {
+				state(r, 0, 0, 0, 500), state(r, 10, 0, 0, 500), state(r, 100, 0, 0, 500) },
+				256));
+	}
+
+	@Test
+	public void turningCountsByHowFarTheEyeSwings() {
+		final double angle = 1.2, distance = 300;
+		final ArcLengthPath orbit = new ArcLengthPath(new CameraState[] {
+				state(new Rotation(), 0, 0, 0, distance),
+				state(new Rotation(Vector3D.plusJ, angle), 0, 0, 0, distance) }, 64);
+		assertEquals(angle * distance, orbit.getLength(), 1e-6);
+	}
+
+	@Test
+	public void randomKeysAreCrossedAtConstantSpeed() {
+		final Random random = new Random(18);
+		final CameraState[] keys = new CameraState[8];
+		Rotation r = new Rotation();
+		for (int i = 0; i < keys.length; i++) {
+			r = new Rotation(new Vector3D(random.nextGaussian(), random.nextGaussian(),
+					random.nextGaussian()), random.nextDouble()).applyTo(r);
+			keys[i] = state(r, random.nextGaussian() * 500, random.nextGaussian() * 500,
+					random.nextGaussian() * 500, 200 + random.nextDouble() * 800);
+		}
+		assertMatchesFineMeasurement(new ArcLengthPath(keys, 64));
+	}
+
+	@Test
+	public void lengthsOutsideThePathAreClamped() {
+		final ArcLengthPath path = new ArcLengthPath(new CameraState[] {
+				state(new Rotation(), 0, 0, 0, 100), state(new Rotation(), 0, 50, 0, 100) },
+				16);
+		assertEquals(path.getTour().getStartMillis(), path.getTime(-10), 0);
+		assertEquals(path.getTour().getEndMillis(), path.getTime(1e6), 0);
+		double last = path.getTime(0);
+		for (int i = 1; i <= 50; i++) {
+			final double time = path.getTime(i);
+			assertTrue(time > last);
+			last = time;
+		}
+	}
+}
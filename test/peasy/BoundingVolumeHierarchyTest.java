@@ -0,0 +1,142 @@
+/*
+   The PeasyCam Processing library, which provides an easy-peasy
+   camera for 3D sketching.
+  
+   Copyright 2008 Jonathan Feinberg
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package peasy;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.BitSet;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class BoundingVolumeHierarchyTest {
+
+	private static final int COUNT = 5000;
+
+	private final Random random = new Random(8);
+	private final float[] x = new float[COUNT], y = new float[COUNT],
+			z = new float[COUNT], r = new float[COUNT];
+
+	private BoundingVolumeHierarchy scatter() {
+		final BoundingVolumeHierarchy bvh = new BoundingVolumeHierarchy(COUNT);
+		for (int i = 0; i < COUNT; i++) {
+			place(bvh, i);
+		}
+		bvh.build();
+		return bvh;
+	}
+
+	private void place(final BoundingVolumeHierarchy bvh, final int i) {
+		x[i] = (random.nextFloat() - 0.5f) * 2000;
+		y[i] = (random.nextFloat() - 0.5f) * 2000;
+		z[i] = (random.nextFloat() - 0.5f) * 2000;
+		r[i] = 1 + random.nextFloat() * 20;
+		bvh.setSphere(i, x[i], y[i], z[i], r[i]);
+	}
+
+	private Frustum frustum() {
+		final float[] camera = { (float)random.nextGaussian() * 300,
+				(float)random.nextGaussian() * 300, (float)random.nextGaussian() * 300,
+				(float)random.nextGaussian() * 300, (float)random.nextGaussian() * 300,
+				(float)random.nextGaussian() * 300, 0, 1, 0 };
+		return new Frustum().set(ClipMatrix.perspective(Math.PI / 3, 4 / 3.0, 10, 1500,
+				new float[16]), camera);
+	}
+
+	private void assertCullsLikeBruteForce(final BoundingVolumeHierarchy bvh) {
+		final BitSet visible = new BitSet();
+		for (int n = 0; n < 20; n++) {
+			final Frustum frustum = frustum();
+			final int count = bvh.cull(frustum, visible);
+			assertEquals(visible.cardinality(), count);
+			for (int i = 0; i < COUNT; i++) {
+				assertEquals("object " + i, frustum.intersectsBox(x[i] - r[i], y[i] - r[i],
+						z[i] - r[i], x[i] + r[i], y[i] + r[i], z[i] + r[i]), visible.get(i));
+			}
+		}
+	}
+
+	private void assertPicksLikeBruteForce(final BoundingVolumeHierarchy bvh) {
+		final float[] ray = new float[6], distance = new float[1];
+		for (int n = 0; n < 200; n++) {
+			final double dx = random.nextGaussian(), dy = random.nextGaussian(), dz = random
+					.nextGaussian();
+			final double inv = 1 / Math.sqrt(dx * dx + dy * dy + dz * dz);
+			ray[0] = (float)random.nextGaussian() * 500;
+			ray[1] = (float)random.nextGaussian() * 500;
+			ray[2] = (float)random.nextGaussian() * 500;
+			ray[3] = (float)(dx * inv);
+			ray[4] = (float)(dy * inv);
+			ray[5] = (float)(dz * inv);
+
+			float nearest = Float.POSITIVE_INFINITY;
+			for (int i = 0; i < COUNT; i++) {
+				nearest = Math.min(nearest, enter(ray, i));
+			}
+			final int hit = bvh.pick(ray, distance);
+			if (nearest == Float.POSITIVE_INFINITY) {
+				assertEquals(-1, hit);
+			} else {
+				assertEquals(nearest, distance[0], 0);
+				assertEquals(nearest, enter(ray, hit), 0);
+			}
+		}
+	}
+
+	/**
+	 * Where the ray enters object i's bounds, or +infinity if it misses them.
+	 */
+	private float enter(final float[] ray, final int i) {
+		float near = 0, far = Float.POSITIVE_INFINITY;
+		final float[] center = { x[i], y[i], z[i] };
+		for (int axis = 0; axis < 3; axis++) {
+			final float inv = 1 / ray[3 + axis];
+			final float t0 = (center[axis] - r[i] - ray[axis]) * inv;
+			final float t1 = (center[axis] + r[i] - ray[axis]) * inv;
+			near = Math.max(near, Math.min(t0, t1));
+			far = Math.min(far, Math.max(t0, t1));
+		}
+		return far < near ? Float.POSITIVE_INFINITY : near;
+	}
+
+	@Test
+	public void cullMatchesBruteForce() {
+		assertCullsLikeBruteForce(scatter());
+	}
+
+	@Test
+	public void pickMatchesBruteForce() {
+		assertPicksLikeBruteForce(scatter());
+	}
+
+	@Test
+	public void queriesMatchBruteForceAfterRefit() {
+		final BoundingVolumeHierarchy bvh = scatter();
+		for (int round = 0; round < 5; round++) {
+			// a few objects, then many
+			final int moved = round == 0 ? 3 : COUNT / 4;
+			for (int n = 0; n < moved; n++) {
+				place(bvh, random.nextInt(COUNT));
+			}
+			bvh.refit();
+			assertCullsLikeBruteForce(bvh);
+			assertPicksLikeBruteForce(bvh);
+		}
+	}
+}
@@ -0,0 +1,105 @@
+/*
+   The PeasyCam Processing library, which provides an easy-peasy
+   camera for 3D sketching.
+  
+   Copyright 2008 Jonathan Feinberg
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package peasy;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+public class CameraCommandQueueTest {
+
+	private static CameraEngine engine() {
+		return new CameraEngine(0, 0, 0, 100, new ManualClock(), FixedStepClockTest.INPUT);
+	}
+
+	@Test
+	public void movementKeepsItsPlaceAmongOtherCommands() {
+		final CameraEngine engine = engine();
+		final CameraCommandQueue commands = engine.getCommandQueue();
+		commands.pan(5, 7);
+		commands.lookAt(10, 20, 30, 0);
+		commands.pan(1, 2);
+		commands.pan(1, 2);
+		engine.step();
+		final float[] center = engine.getLookAt();
+		assertEquals(12, center[0], 0);
+		assertEquals(24, center[1], 0);
+		assertEquals(30, center[2], 0);
+	}
+
+	@Test
+	public void concurrentMovementIsNeitherLostNorSplit() throws InterruptedException {
+		final CameraEngine engine = engine();
+		final CameraCommandQueue commands = engine.getCommandQueue();
+		final int threads = 4, pans = 100000;
+		final Thread[] producers = new Thread[threads];
+		for (int t = 0; t < threads; t++) {
+			producers[t] = new Thread() {
+				@Override
+				public void run() {
+					for (int i = 0; i < pans; i++) {
+						commands.pan(1, 2);
+					}
+				}
+			};
+			producers[t].start();
+		}
+		boolean running = true;
+		while (running) {
+			running = false;
+			for (final Thread producer : producers) {
+				running |= producer.isAlive();
+			}
+			engine.step();
+			final float[] center = engine.getLookAt();
+			// both halves of every pan land in the same frame
+			assertEquals(2 * center[0], center[1], 0);
+		}
+		for (final Thread producer : producers) {
+			producer.join();
+		}
+		engine.step();
+		final float[] center = engine.getLookAt();
+		assertEquals(threads * pans, center[0], 0);
+		assertEquals(2 * threads * pans, center[1], 0);
+	}
+
+	@Test(timeout = 10000)
+	public void commandsIssuedDuringTheDrainWaitForTheNextFrame() {
+		final CameraEngine engine = engine();
+		final CameraCommandQueue commands = engine.getCommandQueue();
+		final int[] applied = new int[1];
+		// a producer that issues another command every time one is applied,
+		// so an unbounded drain would never return
+		commands.post(new CameraCommandQueue.Command() {
+			@Override
+			void apply(final CameraEngine e) {
+				applied[0]++;
+				commands.post(this);
+				commands.pan(1, 0);
+			}
+		});
+		for (int frame = 1; frame <= 10; frame++) {
+			engine.step();
+			assertEquals(frame, applied[0]);
+			// the pans issued with the previous frame's command, not this one's
+			assertEquals(frame - 1, engine.getLookAt()[0], 0);
+		}
+	}
+}
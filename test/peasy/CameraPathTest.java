@@ -0,0 +1,95 @@
+/*
+   The PeasyCam Processing library, which provides an easy-peasy
+   camera for 3D sketching.
+  
+   Copyright 2008 Jonathan Feinberg
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package peasy;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class CameraPathTest {
+
+	private static final double PERIOD = 10;
+
+	@Rule
+	public final TemporaryFolder folder = new TemporaryFolder();
+
+	/**
+	 * Record a camera whose center moves one unit in x per millisecond, with
+	 * calls at irregular times.
+	 */
+	private File record(final double... times) throws IOException {
+		final File path = folder.newFile("path.cam");
+		final ManualClock clock = new ManualClock(1000);
+		final CameraEngine engine = new CameraEngine(0, 0, 0, 100, clock,
+				FixedStepClockTest.INPUT);
+		final CameraPathRecorder recorder = new CameraPathRecorder(path, PERIOD);
+		try {
+			for (final double time : times) {
+				clock.set(1000 + time);
+				engine.setState(new double[] { 1, 0, 0, 0, time, 0, 0, 100 });
+				recorder.record(engine);
+			}
+		} finally {
+			recorder.close();
+		}
+		return path;
+	}
+
+	@Test
+	public void samplesAreEvenlySpacedAndBlendedBetweenCalls() throws IOException {
+		final CameraPathPlayer player = new CameraPathPlayer(record(0, 4, 37, 40, 61));
+		try {
+			assertEquals(7, player.getSampleCount());
+			final double[] sample = new double[8];
+			for (int i = 0; i < 7; i++) {
+				assertEquals(i * PERIOD, player.getSample(i, sample), 0);
+				assertEquals(i * PERIOD, sample[4], 1e-9);
+				assertEquals(1, sample[0], 1e-12);
+				assertEquals(100, sample[7], 0);
+			}
+		} finally {
+			player.close();
+		}
+	}
+
+	@Test
+	public void seekingBlendsBetweenSamples() throws IOException {
+		final CameraPathPlayer player = new CameraPathPlayer(record(0, 25, 50));
+		try {
+			assertEquals(50, player.getDurationMillis(), 0);
+			final double[] state = new double[8];
+			assertEquals(33, player.getState(33, state)[4], 1e-9);
+			assertEquals(0, player.getState(-5, state)[4], 0);
+			assertEquals(50, player.getState(500, state)[4], 0);
+
+			final CameraEngine engine = new CameraEngine(0, 0, 0, 1, new ManualClock(),
+					FixedStepClockTest.INPUT);
+			player.seek(12.5, engine);
+			assertEquals(12.5, engine.getState(state)[4], 1e-9);
+			assertEquals(100, state[7], 0);
+		} finally {
+			player.close();
+		}
+	}
+}
@@ -0,0 +1,82 @@
+/*
+   The PeasyCam Processing library, which provides an easy-peasy
+   camera for 3D sketching.
+  
+   Copyright 2008 Jonathan Feinberg
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package peasy;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Test;
+
+public class CameraSnapshotTest {
+
+	private static CameraEngine engine() {
+		return new CameraEngine(0, 0, 0, 100, new ManualClock(), FixedStepClockTest.INPUT);
+	}
+
+	@Test
+	public void snapshotFollowsTheFrame() {
+		final CameraEngine engine = engine();
+		final CameraState before = engine.getSnapshot();
+		assertEquals(100, before.distance, 0);
+
+		engine.lookAt(1, 2, 3, 250, 0);
+		// not yet: the frame has not ended
+		assertSame(before, engine.getSnapshot());
+
+		engine.step();
+		final CameraState after = engine.getSnapshot();
+		assertEquals(1, after.center.getX(), 0);
+		assertEquals(2, after.center.getY(), 0);
+		assertEquals(3, after.center.getZ(), 0);
+		assertEquals(250, after.distance, 0);
+
+		// an idle frame publishes nothing new
+		engine.step();
+		assertSame(after, engine.getSnapshot());
+	}
+
+	@Test
+	public void readersOnOtherThreadsSeeWholeFrames() throws InterruptedException {
+		final CameraEngine engine = engine();
+		final AtomicReference<String> failure = new AtomicReference<String>();
+		final Thread reader = new Thread() {
+			@Override
+			public void run() {
+				for (int i = 0; i < 200000 && failure.get() == null; i++) {
+					final CameraState s = engine.getSnapshot();
+					final double k = s.center.getX();
+					if (s.center.getY() != k || s.center.getZ() != k
+							|| s.distance != 100 + k) {
+						failure.set("frame " + k + " was torn");
+					}
+				}
+			}
+		};
+		reader.start();
+		// every frame keeps center x = y = z and distance = 100 + x
+		for (int k = 1; reader.isAlive(); k++) {
+			engine.lookAt(k, k, k, 100.0 + k, 0);
+			engine.step();
+		}
+		reader.join();
+		assertEquals(null, failure.get());
+	}
+}
@@ -0,0 +1,129 @@
+/*
+   The PeasyCam Processing library, which provides an easy-peasy
+   camera for 3D sketching.
+  
+   Copyright 2008 Jonathan Feinberg
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package peasy;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class CameraStateCodecTest {
+
+	private static final int COUNT = 1000;
+
+	/**
+	 * Random states with unit quaternions, whose largest component falls in
+	 * every position and with either sign.
+	 */
+	private static double[] states(final int count) {
+		final Random random = new Random(11);
+		final double[] states = new double[8 * count];
+		for (int i = 0; i < count; i++) {
+			double norm = 0;
+			for (int k = 0; k < 4; k++) {
+				states[8 * i + k] = random.nextGaussian();
+				norm += states[8 * i + k] * states[8 * i + k];
+			}
+			norm = Math.sqrt(norm);
+			for (int k = 0; k < 4; k++) {
+				states[8 * i + k] /= norm;
+			}
+			for (int k = 4; k < 7; k++) {
+				states[8 * i + k] = random.nextGaussian() * 1000;
+			}
+			states[8 * i + 7] = 1 + random.nextDouble() * 5000;
+		}
+		return states;
+	}
+
+	private static double[] roundTrip(final double[] states,
+			final CameraStateCodec.Format format) {
+		final ByteBuffer buffer = ByteBuffer.allocate(COUNT * format.size);
+		CameraStateCodec.encode(states, COUNT, format, buffer);
+		assertEquals(COUNT * format.size, buffer.position());
+		buffer.flip();
+		final double[] decoded = CameraStateCodec.decode(format, buffer,
+				new double[8 * COUNT], COUNT);
+		assertEquals(0, buffer.remaining());
+		return decoded;
+	}
+
+	@Test
+	public void doubleIsExact() {
+		final double[] states = states(COUNT);
+		final double[] decoded = roundTrip(states, CameraStateCodec.Format.DOUBLE);
+		for (int i = 0; i < 8 * COUNT; i++) {
+			assertEquals(states[i], decoded[i], 0);
+		}
+	}
+
+	@Test
+	public void floatRoundsEachValue() {
+		final double[] states = states(COUNT);
+		final double[] decoded = roundTrip(states, CameraStateCodec.Format.FLOAT);
+		for (int i = 0; i < 8 * COUNT; i++) {
+			assertEquals((float)states[i], decoded[i], 0);
+		}
+	}
+
+	@Test
+	public void smallestThreeKeepsTheRotation() {
+		final double[] states = states(COUNT);
+		final double[] decoded = roundTrip(states, CameraStateCodec.Format.SMALLEST_THREE);
+		for (int i = 0; i < COUNT; i++) {
+			// q and -q are the same rotation
+			double dot = 0, norm = 0;
+			for (int k = 0; k < 4; k++) {
+				dot += states[8 * i + k] * decoded[8 * i + k];
+				norm += decoded[8 * i + k] * decoded[8 * i + k];
+			}
+			assertEquals(1, norm, 1e-5);
+			final double angle = 2 * Math.acos(Math.min(1, Math.abs(dot)));
+			assertTrue("state " + i + " is off by " + angle + " radians", angle < 1e-5);
+			for (int k = 4; k < 8; k++) {
+				assertEquals((float)states[8 * i + k], decoded[8 * i + k], 0);
+			}
+		}
+	}
+
+	@Test
+	public void cameraStateRoundTrips() {
+		final CameraEngine engine = new CameraEngine(10, 20, 30, 400, new ManualClock(),
+				FixedStepClockTest.INPUT);
+		engine.rotateX(0.3);
+		engine.rotateY(-1.2);
+		final CameraState state = engine.getState();
+		final ByteBuffer buffer = ByteBuffer.allocate(CameraStateCodec.Format.DOUBLE.size);
+		CameraStateCodec.encode(state, CameraStateCodec.Format.DOUBLE, buffer);
+		buffer.flip();
+		final CameraState decoded = CameraStateCodec.decode(
+				CameraStateCodec.Format.DOUBLE, buffer);
+		assertEquals(state.rotation.getQ0(), decoded.rotation.getQ0(), 0);
+		assertEquals(state.rotation.getQ1(), decoded.rotation.getQ1(), 0);
+		assertEquals(state.rotation.getQ2(), decoded.rotation.getQ2(), 0);
+		assertEquals(state.rotation.getQ3(), decoded.rotation.getQ3(), 0);
+		assertEquals(state.center.getX(), decoded.center.getX(), 0);
+		assertEquals(state.center.getY(), decoded.center.getY(), 0);
+		assertEquals(state.center.getZ(), decoded.center.getZ(), 0);
+		assertEquals(state.distance, decoded.distance, 0);
+	}
+}
@@ -0,0 +1,159 @@
+/*
+   The PeasyCam Processing library, which provides an easy-peasy
+   camera for 3D sketching.
+  
+   Copyright 2008 Jonathan Feinberg
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package peasy;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import peasy.org.apache.commons.math.geometry.Rotation;
+import peasy.org.apache.commons.math.geometry.Vector3D;
+
+public class CameraTourTest {
+
+	private static final int KEYS = 12;
+
+	private final double[] keyframes = new double[8 * KEYS];
+	private final double[] times = new double[KEYS];
+
+	/**
+	 * Keyframes each turned up to a radian from the one before, at uneven
+	 * times.
+	 */
+	public CameraTourTest() {
+		final Random random = new Random(17);
+		Rotation r = new Rotation();
+		double time = 0;
+		for (int i = 0; i < KEYS; i++) {
+			r = new Rotation(new Vector3D(random.nextGaussian(), random.nextGaussian(),
+					random.nextGaussian()), random.nextDouble()).applyTo(r);
+			keyframes[8 * i] = r.getQ0();
+			keyframes[8 * i + 1] = r.getQ1();
+			keyframes[8 * i + 2] = r.getQ2();
+			keyframes[8 * i + 3] = r.getQ3();
+			for (int c = 4; c < 7; c++) {
+				keyframes[8 * i + c] = random.nextGaussian() * 500;
+			}
+			keyframes[8 * i + 7] = 200 + random.nextDouble() * 800;
+			times[i] = time;
+			time += 500 + random.nextDouble() * 2000;
+		}
+	}
+
+	@Test
+	public void passesThroughEveryKeyframe() {
+		final CameraTour tour = new CameraTour(keyframes, times);
+		final double[] state = new double[8];
+		for (int i = 0; i < KEYS; i++) {
+			tour.getState(times[i], state);
+			assertEquals(1, Math.abs(dot(state, 0, keyframes, 8 * i)), 1e-9);
+			for (int c = 4; c < 8; c++) {
+				assertEquals(keyframes[8 * i + c], state[c], 1e-9);
+			}
+		}
+	}
+
+	@Test
+	public void timesOutsideTheTourAreClamped() {
+		final CameraTour tour = new CameraTour(keyframes, times);
+		final double[] before = tour.getState(times[0] - 1000, new double[8]);
+		final double[] start = tour.getState(times[0], new double[8]);
+		final double[] after = tour.getState(times[KEYS - 1] + 1000, new double[8]);
+		final double[] end = tour.getState(times[KEYS - 1], new double[8]);
+		for (int c = 0; c < 8; c++) {
+			assertEquals(start[c], before[c], 0);
+			assertEquals(end[c], after[c], 0);
+		}
+	}
+
+	@Test
+	public void velocityIsContinuousAtEveryKeyframe() {
+		final CameraTour tour = new CameraTour(keyframes, times);
+		final double h = 0.01;
+		final double[] a = new double[8], b = new double[8], c = new double[8];
+		final double[] left = new double[3], right = new double[3];
+		for (int i = 1; i < KEYS - 1; i++) {
+			tour.getState(times[i] - h, a);
+			tour.getState(times[i], b);
+			tour.getState(times[i] + h, c);
+			for (int k = 4; k < 8; k++) {
+				final double in = (b[k] - a[k]) / h, out = (c[k] - b[k]) / h;
+				assertEquals("key " + i, in, out, 1e-3 * (1 + Math.abs(in)));
+			}
+			angularVelocity(a, b, h, left);
+			angularVelocity(b, c, h, right);
+			final double speed = Math.sqrt(left[0] * left[0] + left[1] * left[1] + left[2]
+					* left[2]);
+			assertTrue(speed > 0);
+			for (int k = 0; k < 3; k++) {
+				assertEquals("key " + i, left[k], right[k], 1e-2 * speed);
+			}
+		}
+	}
+
+	@Test
+	public void anyOrderOfTimesGivesTheSameStates() {
+		final CameraTour forwards = new CameraTour(keyframes, times);
+		final CameraTour scattered = new CameraTour(keyframes, times);
+		final Random random = new Random(1);
+		final double[] expected = new double[8], actual = new double[8];
+		for (int n = 0; n < 1000; n++) {
+			final double t = random.nextDouble() * times[KEYS - 1];
+			scattered.getState(t, actual);
+			// a fresh evaluation, from a tour that has not moved since the start
+			new CameraTour(keyframes, times).getState(t, expected);
+			for (int c = 0; c < 8; c++) {
+				assertEquals(expected[c], actual[c], 0);
+			}
+		}
+		for (int n = 0; n <= 1000; n++) {
+			final double t = times[KEYS - 1] * n / 1000;
+			forwards.getState(t, actual);
+			new CameraTour(keyframes, times).getState(t, expected);
+			for (int c = 0; c < 8; c++) {
+				assertEquals(expected[c], actual[c], 0);
+			}
+		}
+	}
+
+	private static double dot(final double[] a, final int i, final double[] b,
+			final int j) {
+		return a[i] * b[j] + a[i + 1] * b[j + 1] + a[i + 2] * b[j + 2] + a[i + 3]
+				* b[j + 3];
+	}
+
+	/**
+	 * The world-frame angular velocity turning a into b over h, per
+	 * millisecond.
+	 */
+	private static void angularVelocity(final double[] a, final double[] b,
+			final double h, final double[] out) {
+		final Rotation ra = new Rotation(a[0], a[1], a[2], a[3], true);
+		final Rotation rb = new Rotation(b[0], b[1], b[2], b[3], true);
+		final Rotation delta = rb.applyTo(ra.revert());
+		final Vector3D axis = delta.getAxis();
+		final double angle = delta.getAngle() / h;
+		out[0] = axis.getX() * angle;
+		out[1] = axis.getY() * angle;
+		out[2] = axis.getZ() * angle;
+	}
+}
@@ -0,0 +1,103 @@
+/*
+   The PeasyCam Processing library, which provides an easy-peasy
+   camera for 3D sketching.
+  
+   Copyright 2008 Jonathan Feinberg
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package peasy;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+public class ClipMatrixTest {
+
+	private static ClipMatrix clip() {
+		return new ClipMatrix().set(
+				ClipMatrix.perspective(Math.PI / 3, 4 / 3.0, 10, 5000, new float[16]), 120,
+				-80, 500, 10, 20, -30, 0.1, 1, 0.05);
+	}
+
+	@Test
+	public void centerProjectsToMiddleOfScreen() {
+		final float[] screen = new float[2];
+		clip().project(new float[] { 10 }, new float[] { 20 }, new float[] { -30 }, 1,
+				800, 600, screen);
+		assertEquals(400, screen[0], 1e-3);
+		assertEquals(300, screen[1], 1e-3);
+	}
+
+	@Test
+	public void pointBehindEyeIsNaN() {
+		final float[] screen = new float[2];
+		// past the eye, on the far side from the center
+		clip().project(new float[] { 230 }, new float[] { -180 }, new float[] { 1030 },
+				1, 800, 600, screen);
+		assertTrue(Float.isNaN(screen[0]));
+		assertTrue(Float.isNaN(screen[1]));
+	}
+
+	@Test
+	public void unprojectedRayPassesThroughProjectedPoint() {
+		final ClipMatrix clip = clip();
+		final Random random = new Random(9);
+		final int n = 1000;
+		final float[] x = new float[n], y = new float[n], z = new float[n];
+		for (int i = 0; i < n; i++) {
+			// points between the eye and a little beyond the center, well
+			// clear of the near plane
+			final double t = 0.2 + random.nextDouble() * 1.4;
+			x[i] = (float)(120 + t * (10 - 120) + random.nextGaussian() * 20);
+			y[i] = (float)(-80 + t * (20 + 80) + random.nextGaussian() * 20);
+			z[i] = (float)(500 + t * (-30 - 500) + random.nextGaussian() * 20);
+		}
+		final float[] screen = new float[2 * n];
+		clip.project(x, y, z, n, 800, 600, screen);
+		final float[] ray = new float[6];
+		for (int i = 0; i < n; i++) {
+			clip.unproject(screen[2 * i], screen[2 * i + 1], 800, 600, ray);
+			assertEquals(1, Math.sqrt(ray[3] * ray[3] + ray[4] * ray[4] + ray[5] * ray[5]),
+					1e-6);
+			// distance from the point to the ray's line
+			final double px = x[i] - ray[0], py = y[i] - ray[1], pz = z[i] - ray[2];
+			final double along = px * ray[3] + py * ray[4] + pz * ray[5];
+			final double cx = px - along * ray[3];
+			final double cy = py - along * ray[4];
+			final double cz = pz - along * ray[5];
+			final double range = Math.sqrt(px * px + py * py + pz * pz);
+			assertTrue(along > 0);
+			assertEquals(0, Math.sqrt(cx * cx + cy * cy + cz * cz), 1e-4 * range + 1e-3);
+		}
+	}
+
+	@Test
+	public void rayStartsOnNearPlane() {
+		final ClipMatrix clip = clip();
+		final float[] ray = new float[6];
+		clip.unproject(400, 300, 800, 600, ray);
+		// the near plane is 10 from the eye, along the line of sight
+		final double dx = 10 - 120, dy = 20 + 80, dz = -30 - 500;
+		final double len = Math.sqrt(dx * dx + dy * dy + dz * dz);
+		assertEquals(120 + 10 * dx / len, ray[0], 1e-3);
+		assertEquals(-80 + 10 * dy / len, ray[1], 1e-3);
+		assertEquals(500 + 10 * dz / len, ray[2], 1e-3);
+		assertEquals(dx / len, ray[3], 1e-6);
+		assertEquals(dy / len, ray[4], 1e-6);
+		assertEquals(dz / len, ray[5], 1e-6);
+	}
+}
@@ -0,0 +1,93 @@
+/*
+   The PeasyCam Processing library, which provides an easy-peasy
+   camera for 3D sketching.
+  
+   Copyright 2008 Jonathan Feinberg
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package peasy;
+
+import static org.junit.Assert.assertEquals;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+public class EasingTest {
+
+	private static List<Easing> curves() throws IllegalAccessException {
+		final List<Easing> curves = new ArrayList<Easing>();
+		for (final Field f : Easing.class.getFields()) {
+			if (Modifier.isStatic(f.getModifiers()) && f.getType() == Easing.class) {
+				curves.add((Easing)f.get(null));
+			}
+		}
+		return curves;
+	}
+
+	@Test
+	public void everyCurveRunsFromZeroToOne() throws IllegalAccessException {
+		final List<Easing> curves = curves();
+		assertEquals(17, curves.size());
+		for (final Easing curve : curves) {
+			assertEquals(0, curve.ease(0), 1e-9);
+			assertEquals(1, curve.ease(1), 1e-9);
+		}
+	}
+
+	@Test
+	public void smoothstepIsTheClassicCurve() {
+		for (int i = 0; i <= 100; i++) {
+			final double t = i / 100.0;
+			assertEquals(InterpolationUtil.smooth(0, 1, t), Easing.SMOOTHSTEP.ease(t), 1e-15);
+		}
+	}
+
+	@Test
+	public void bakedTableHitsItsSamplesAndStaysClose() throws IllegalAccessException {
+		for (final Easing curve : curves()) {
+			final Easing baked = curve.bake(256);
+			for (int i = 0; i <= 256; i++) {
+				final double t = i / 256.0;
+				assertEquals((float)curve.ease(t), baked.ease(t), 0);
+			}
+			for (int i = 0; i <= 1000; i++) {
+				final double t = i / 1000.0;
+				assertEquals(curve.ease(t), baked.ease(t), 2e-3);
+			}
+			assertEquals(baked.ease(0), baked.ease(-0.5), 0);
+			assertEquals(baked.ease(1), baked.ease(1.5), 0);
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void emptyTableIsRejected() {
+		Easing.LINEAR.bake(0);
+	}
+
+	@Test
+	public void bezierMatchesCss() {
+		// control points on the diagonal give a straight line
+		final Easing straight = Easing.bezier(1 / 3.0, 1 / 3.0, 2 / 3.0, 2 / 3.0);
+		for (int i = 0; i <= 100; i++) {
+			assertEquals(i / 100.0, straight.ease(i / 100.0), 1e-6);
+		}
+		// CSS's "ease"
+		final Easing ease = Easing.bezier(0.25, 0.1, 0.25, 1);
+		assertEquals(0.8024033877399112, ease.ease(0.5), 1e-6);
+	}
+}
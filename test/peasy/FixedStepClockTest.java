@@ -0,0 +1,128 @@
+/*
+   The PeasyCam Processing library, which provides an easy-peasy
+   camera for 3D sketching.
+  
+   Copyright 2008 Jonathan Feinberg
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package peasy;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import processing.core.PApplet;
+import processing.core.PGraphics;
+
+public class FixedStepClockTest {
+
+	static final InputSource INPUT = new InputSource() {
+		public int getMouseX() {
+			return 400;
+		}
+
+		public int getMouseY() {
+			return 300;
+		}
+
+		public int getWidth() {
+			return 800;
+		}
+
+		public int getHeight() {
+			return 600;
+		}
+	};
+
+	@Test
+	public void sharedClockRunsAtOneFramePerTick() {
+		final FixedStepClock clock = new FixedStepClock(60);
+		final CameraEngine a = new CameraEngine(0, 0, 0, 100, clock, INPUT);
+		final CameraEngine b = new CameraEngine(0, 0, 0, 100, clock, INPUT);
+		a.setDistance(200, 1000);
+		b.setDistance(200, 1000);
+		int frames = 0;
+		while (a.getDistance() != 200) {
+			clock.tick();
+			a.step();
+			b.step();
+			frames++;
+			assertTrue(frames < 1000);
+		}
+		// a second of animation at 60 frames per second, however many cameras
+		assertEquals(60, frames);
+		assertEquals(200, b.getDistance(), 0);
+		assertEquals(60, clock.getFrameCount());
+	}
+
+	@Test
+	public void stepDoesNotTickTheClock() {
+		final FixedStepClock clock = new FixedStepClock(30);
+		final CameraEngine engine = new CameraEngine(0, 0, 0, 100, clock, INPUT);
+		for (int i = 0; i < 10; i++) {
+			engine.step();
+		}
+		assertEquals(0, clock.millis(), 0);
+	}
+
+	/**
+	 * Keeps the objects registered for "pre".
+	 */
+	private static class PreApplet extends PApplet {
+		final List<Object> pre = new ArrayList<Object>();
+
+		@Override
+		public void registerMethod(final String methodName, final Object target) {
+			if ("pre".equals(methodName)) {
+				pre.add(target);
+			}
+		}
+
+		@Override
+		public void unregisterMethod(final String methodName, final Object target) {
+			if ("pre".equals(methodName)) {
+				pre.remove(target);
+			}
+		}
+	}
+
+	@Test
+	public void attachRegistersWithOneSketchAtATime() {
+		final FixedStepClock clock = new FixedStepClock(60);
+		final PreApplet first = new PreApplet(), second = new PreApplet();
+		clock.attach(first);
+		assertEquals(1, first.pre.size());
+		clock.attach(second);
+		assertEquals(0, first.pre.size());
+		assertEquals(1, second.pre.size());
+		clock.detach();
+		clock.detach();
+		assertEquals(0, second.pre.size());
+	}
+
+	@Test
+	public void settingTheClockDoesNotRegisterIt() {
+		final PreApplet applet = new PreApplet();
+		applet.width = 800;
+		applet.height = 600;
+		final PeasyCam cam = new PeasyCam(applet, new PGraphics(), 100);
+		final int registered = applet.pre.size();
+		cam.setClock(new FixedStepClock(60));
+		assertEquals(registered, applet.pre.size());
+	}
+}
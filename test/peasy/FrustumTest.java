@@ -0,0 +1,213 @@
+/*
+   The PeasyCam Processing library, which provides an easy-peasy
+   camera for 3D sketching.
+  
+   Copyright 2008 Jonathan Feinberg
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package peasy;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.BitSet;
+
+import org.junit.Test;
+
+public class FrustumTest {
+
+	// the camera PGraphics.camera() sets up for an 800x600 sketch, with the
+	// default perspective: looking down -z from (0, 0, EYE)
+	private static final double EYE = 300 / Math.tan(Math.PI / 6);
+	private static final double NEAR = EYE / 10, FAR = EYE * 10;
+	private static final double TAN_X = 4 / 3.0 * Math.tan(Math.PI / 6);
+	private static final double TAN_Y = Math.tan(Math.PI / 6);
+
+	// depth in front of the eye at which the side planes are probed
+	private static final double DEPTH = 1000;
+
+	private static Frustum frustum() {
+		return new Frustum().set(ClipMatrix.defaultPerspective(800, 600, new float[16]),
+				new float[] { 0, 0, (float)EYE, 0, 0, 0, 0, 1, 0 });
+	}
+
+	/**
+	 * The expected a, b, c, d of each plane, inward normal first.
+	 */
+	private static double[] expectedPlane(final int plane) {
+		final double nx = Math.sqrt(1 + TAN_X * TAN_X), ny = Math.sqrt(1 + TAN_Y * TAN_Y);
+		switch (plane) {
+		case Frustum.LEFT:
+			return new double[] { 1 / nx, 0, -TAN_X / nx, EYE * TAN_X / nx };
+		case Frustum.RIGHT:
+			return new double[] { -1 / nx, 0, -TAN_X / nx, EYE * TAN_X / nx };
+		case Frustum.BOTTOM:
+			// Processing's y points down the screen
+			return new double[] { 0, -1 / ny, -TAN_Y / ny, EYE * TAN_Y / ny };
+		case Frustum.TOP:
+			return new double[] { 0, 1 / ny, -TAN_Y / ny, EYE * TAN_Y / ny };
+		case Frustum.NEAR:
+			return new double[] { 0, 0, -1, EYE - NEAR };
+		default:
+			return new double[] { 0, 0, 1, FAR - EYE };
+		}
+	}
+
+	/**
+	 * A point on the plane, well inside all the others.
+	 */
+	private static double[] onPlane(final int plane) {
+		final double z = EYE - DEPTH;
+		switch (plane) {
+		case Frustum.LEFT:
+			return new double[] { -DEPTH * TAN_X, 0, z };
+		case Frustum.RIGHT:
+			return new double[] { DEPTH * TAN_X, 0, z };
+		case Frustum.BOTTOM:
+			return new double[] { 0, DEPTH * TAN_Y, z };
+		case Frustum.TOP:
+			return new double[] { 0, -DEPTH * TAN_Y, z };
+		case Frustum.NEAR:
+			return new double[] { 0, 0, EYE - NEAR };
+		default:
+			return new double[] { 0, 0, EYE - FAR };
+		}
+	}
+
+	/**
+	 * The point offset from the plane along its inward normal.
+	 */
+	private static float[] offset(final int plane, final double distance) {
+		final double[] p = onPlane(plane), n = expectedPlane(plane);
+		return new float[] { (float)(p[0] + distance * n[0]),
+				(float)(p[1] + distance * n[1]), (float)(p[2] + distance * n[2]) };
+	}
+
+	@Test
+	public void planesAreUnitAndFaceInwards() {
+		final Frustum frustum = frustum();
+		final float[] plane = new float[4];
+		for (int i = 0; i < 6; i++) {
+			frustum.getPlane(i, plane);
+			assertEquals(1, Math.sqrt(plane[0] * plane[0] + plane[1] * plane[1] + plane[2]
+					* plane[2]), 1e-6);
+			final double[] expected = expectedPlane(i);
+			for (int j = 0; j < 3; j++) {
+				assertEquals(expected[j], plane[j], 1e-5);
+			}
+			assertEquals(expected[3], plane[3], 1e-2);
+		}
+	}
+
+	@Test
+	public void pointsJustInsideAndOutsideEachPlane() {
+		final Frustum frustum = frustum();
+		for (int i = 0; i < 6; i++) {
+			final float[] in = offset(i, 1), out = offset(i, -1);
+			assertTrue(frustum.containsPoint(in[0], in[1], in[2]));
+			assertFalse(frustum.containsPoint(out[0], out[1], out[2]));
+		}
+	}
+
+	@Test
+	public void spheresJustInsideAndOutsideEachPlane() {
+		final Frustum frustum = frustum();
+		for (int i = 0; i < 6; i++) {
+			final float[] out = offset(i, -2);
+			// reaching back across the plane, or stopping just short of it
+			assertTrue(frustum.intersectsSphere(out[0], out[1], out[2], 3));
+			assertFalse(frustum.intersectsSphere(out[0], out[1], out[2], 1));
+			final float[] in = offset(i, 2);
+			assertTrue(frustum.intersectsSphere(in[0], in[1], in[2], 1));
+		}
+	}
+
+	@Test
+	public void boxesJustInsideAndOutsideEachPlane() {
+		final Frustum frustum = frustum();
+		// half a unit either way: at most 0.87 from the center along any normal
+		final float h = 0.5f;
+		for (int i = 0; i < 6; i++) {
+			final float[] in = offset(i, 2), out = offset(i, -2), on = offset(i, 0);
+			assertTrue(frustum.intersectsBox(in[0] - h, in[1] - h, in[2] - h, in[0] + h,
+					in[1] + h, in[2] + h));
+			assertFalse(frustum.intersectsBox(out[0] - h, out[1] - h, out[2] - h, out[0]
+					+ h, out[1] + h, out[2] + h));
+			assertTrue(frustum.intersectsBox(on[0] - h, on[1] - h, on[2] - h, on[0] + h,
+					on[1] + h, on[2] + h));
+
+			assertEquals(Frustum.INSIDE, frustum.classifyBox(in[0] - h, in[1] - h, in[2]
+					- h, in[0] + h, in[1] + h, in[2] + h));
+			assertEquals(Frustum.OUTSIDE, frustum.classifyBox(out[0] - h, out[1] - h,
+					out[2] - h, out[0] + h, out[1] + h, out[2] + h));
+			assertEquals(Frustum.INTERSECTS, frustum.classifyBox(on[0] - h, on[1] - h,
+					on[2] - h, on[0] + h, on[1] + h, on[2] + h));
+		}
+	}
+
+	@Test
+	public void bulkCullingCountsAndClearsStaleBits() {
+		final Frustum frustum = frustum();
+		// for each plane, one item just inside and one just outside
+		final int count = 12;
+		final float[] x = new float[count], y = new float[count], z = new float[count];
+		final float[] radius = new float[count];
+		final float[] minX = new float[count], minY = new float[count], minZ = new float[count];
+		final float[] maxX = new float[count], maxY = new float[count], maxZ = new float[count];
+		for (int i = 0; i < 6; i++) {
+			for (int side = 0; side < 2; side++) {
+				final int k = 2 * i + side;
+				final float[] p = offset(i, side == 0 ? 2 : -2);
+				x[k] = p[0];
+				y[k] = p[1];
+				z[k] = p[2];
+				radius[k] = 1;
+				minX[k] = p[0] - 0.5f;
+				minY[k] = p[1] - 0.5f;
+				minZ[k] = p[2] - 0.5f;
+				maxX[k] = p[0] + 0.5f;
+				maxY[k] = p[1] + 0.5f;
+				maxZ[k] = p[2] + 0.5f;
+			}
+		}
+		final BitSet visible = new BitSet();
+
+		visible.set(0, 3 * count);
+		assertEquals(6, frustum.cullSpheres(x, y, z, radius, count, visible));
+		assertVisibleAreTheInsideOnes(visible, count);
+
+		visible.set(0, 3 * count);
+		assertEquals(6, frustum.cullPoints(x, y, z, count, visible));
+		assertVisibleAreTheInsideOnes(visible, count);
+
+		visible.set(0, 3 * count);
+		assertEquals(6, frustum.cullBoxes(minX, minY, minZ, maxX, maxY, maxZ, count,
+				visible));
+		assertVisibleAreTheInsideOnes(visible, count);
+
+		// a smaller batch through the same BitSet leaves nothing of the larger one
+		assertEquals(2, frustum.cullSpheres(x, y, z, radius, 4, visible));
+		assertEquals(2, visible.cardinality());
+		assertEquals(3, visible.length());
+	}
+
+	private static void assertVisibleAreTheInsideOnes(final BitSet visible, final int count) {
+		for (int k = 0; k < count; k++) {
+			assertEquals((k & 1) == 0, visible.get(k));
+		}
+		// nothing left over past the batch
+		assertEquals(count - 1, visible.length());
+	}
+}
@@ -0,0 +1,152 @@
+/*
+   The PeasyCam Processing library, which provides an easy-peasy
+   camera for 3D sketching.
+  
+   Copyright 2008 Jonathan Feinberg
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package peasy;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import processing.core.PApplet;
+import processing.core.PGraphics;
+import processing.core.PImage;
+
+import peasy.org.apache.commons.math.geometry.Rotation;
+import peasy.org.apache.commons.math.geometry.Vector3D;
+
+public class OfflineRendererTest {
+
+	@Test
+	public void projectionMatchesProcessingsDefaultCamera() {
+		final OfflineRenderer renderer = new OfflineRenderer(null, 800, 600, "", 1);
+		// where PGraphics.camera() puts the camera by default
+		final CameraState state = new CameraState(new Rotation(), new Vector3D(400,
+				300, 0), 300 / Math.tan(Math.PI / 6));
+		final float[] screen = renderer.project(state, new float[] { 400, 0, 750, 123 },
+				new float[] { 300, 0, 20, 456 }, new float[] { 0, 0, 0, 0 }, 4,
+				new float[8]);
+		// the z = 0 plane lands pixel for pixel
+		assertEquals(400, screen[0], 1e-3);
+		assertEquals(300, screen[1], 1e-3);
+		assertEquals(0, screen[2], 1e-3);
+		assertEquals(0, screen[3], 1e-3);
+		assertEquals(750, screen[4], 1e-3);
+		assertEquals(20, screen[5], 1e-3);
+		assertEquals(123, screen[6], 1e-3);
+		assertEquals(456, screen[7], 1e-3);
+	}
+
+	/**
+	 * Records whether it was disposed, and whether any frame's scene was still
+	 * drawing at the time.
+	 */
+	private static class CheckedGraphics extends PGraphics {
+		private final AtomicInteger drawing;
+		private final AtomicBoolean misused;
+		private volatile boolean disposed;
+
+		CheckedGraphics(final AtomicInteger drawing, final AtomicBoolean misused) {
+			this.drawing = drawing;
+			this.misused = misused;
+		}
+
+		@Override
+		public void dispose() {
+			if (drawing.get() > 0) {
+				misused.set(true);
+			}
+			disposed = true;
+		}
+	}
+
+	@Test(timeout = 10000)
+	public void failedFrameDoesNotDisposeGraphicsStillDrawing() throws IOException {
+		final int threads = 4;
+		final AtomicInteger drawing = new AtomicInteger();
+		final AtomicBoolean misused = new AtomicBoolean();
+		final List<CheckedGraphics> created = new ArrayList<CheckedGraphics>();
+		final PApplet applet = new PApplet() {
+			@Override
+			public PGraphics createGraphics(final int w, final int h, final String renderer) {
+				final CheckedGraphics g = new CheckedGraphics(drawing, misused);
+				synchronized (created) {
+					created.add(g);
+				}
+				return g;
+			}
+		};
+		final CountDownLatch othersDrawing = new CountDownLatch(threads - 1);
+		final OfflineRenderer.Scene scene = new OfflineRenderer.Scene() {
+			public void draw(final PGraphics g, final CameraState state, final int frame) {
+				if (frame == 0) {
+					try {
+						othersDrawing.await();
+					} catch (final InterruptedException e) {
+						throw new IllegalStateException(e);
+					}
+					throw new IllegalStateException("frame 0");
+				}
+				drawing.incrementAndGet();
+				othersDrawing.countDown();
+				// keep drawing for a while, ignoring the interrupt shutdownNow() sends
+				final long end = System.nanoTime() + 200000000L;
+				boolean interrupted = false;
+				while (System.nanoTime() < end) {
+					try {
+						Thread.sleep(10);
+					} catch (final InterruptedException e) {
+						interrupted = true;
+					}
+				}
+				drawing.decrementAndGet();
+				if (interrupted) {
+					Thread.currentThread().interrupt();
+				}
+			}
+		};
+		final CameraState[] frames = new CameraState[threads];
+		for (int i = 0; i < threads; i++) {
+			frames[i] = new CameraState(new Rotation(), new Vector3D(0, 0, 0), 100);
+		}
+		try {
+			new OfflineRenderer(applet, 800, 600, "", threads).render(frames, scene,
+					new OfflineRenderer.FrameSink() {
+						public void write(final int frame, final PImage image) {
+						}
+					});
+			fail("frame 0 should have failed the render");
+		} catch (final IllegalStateException e) {
+			assertEquals("frame 0", e.getMessage());
+		}
+		assertFalse("disposed mid-frame", misused.get());
+		assertEquals(threads, created.size());
+		for (final CheckedGraphics g : created) {
+			assertTrue("not disposed", g.disposed);
+		}
+	}
+}
@@ -0,0 +1,119 @@
+/*
+   The PeasyCam Processing library, which provides an easy-peasy
+   camera for 3D sketching.
+  
+   Copyright 2008 Jonathan Feinberg
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package peasy;
+
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Runs the same long session through a double and a single-precision camera,
+ * and measures how far apart they end up.
+ */
+public class SinglePrecisionTest {
+
+	/**
+	 * The bounds {@link CameraEngine#setSinglePrecision(boolean)} documents, as
+	 * fractions of the camera's distance from the origin: the gap grows with
+	 * the length of the session.
+	 */
+	static final int SHORT = 50000, LONG = 200000;
+	static final double SHORT_BOUND = 1e-4, LONG_BOUND = 1e-3;
+
+	private static int mouseX = 400, mouseY = 300;
+
+	private static final InputSource INPUT = new InputSource() {
+		public int getMouseX() {
+			return mouseX;
+		}
+
+		public int getMouseY() {
+			return mouseY;
+		}
+
+		public int getWidth() {
+			return 800;
+		}
+
+		public int getHeight() {
+			return 600;
+		}
+	};
+
+	@Test
+	public void floatStaysCloseToDouble() {
+		for (long seed = 1; seed <= 3; seed++) {
+			final double shortDrift = session(seed, SHORT);
+			assertTrue("drift " + shortDrift + " after " + SHORT + " frames",
+					shortDrift < SHORT_BOUND);
+			final double longDrift = session(seed, LONG);
+			assertTrue("drift " + longDrift + " after " + LONG + " frames",
+					longDrift < LONG_BOUND);
+		}
+	}
+
+	/**
+	 * @return the largest difference between the two cameras' eye, center or
+	 *         up vector, each scaled by the eye's distance from the origin
+	 */
+	static double session(final long seed, final int frames) {
+		final ManualClock clock = new ManualClock();
+		final CameraEngine d = new CameraEngine(0, 0, 0, 500, clock, INPUT);
+		final CameraEngine f = new CameraEngine(0, 0, 0, 500, clock, INPUT);
+		f.setSinglePrecision(true);
+		final float[] cd = new float[9], cf = new float[9];
+		final Random random = new Random(seed);
+		final CameraEngine.Button[] buttons = CameraEngine.Button.values();
+		double largest = 0;
+		for (int frame = 0; frame < frames; frame++) {
+			mouseX = random.nextInt(800);
+			mouseY = random.nextInt(600);
+			final CameraEngine.Button button = random.nextInt(10) < 7 ? buttons[0]
+					: buttons[1 + random.nextInt(2)];
+			final double dx = random.nextGaussian() * 4, dy = random.nextGaussian() * 4;
+			d.mouseDragged(button, dx, dy, false, false);
+			f.mouseDragged(button, dx, dy, false, false);
+			if (random.nextInt(50) == 0) {
+				final double angle = random.nextGaussian() * 0.1;
+				d.rotateY(angle);
+				f.rotateY(angle);
+			}
+			if (random.nextInt(500) == 0) {
+				final int clicks = random.nextInt(5) - 2;
+				d.mouseWheel(clicks);
+				f.mouseWheel(clicks);
+			}
+			clock.advance(1000 / 60.0);
+			d.step();
+			f.step();
+			d.getCamera(cd);
+			f.getCamera(cf);
+			final double scale = Math.sqrt(cd[0] * cd[0] + cd[1] * cd[1] + cd[2] * cd[2]);
+			for (int i = 0; i < 6; i++) {
+				largest = Math.max(largest, Math.abs(cd[i] - cf[i]) / scale);
+			}
+			for (int i = 6; i < 9; i++) {
+				largest = Math.max(largest, Math.abs(cd[i] - cf[i]));
+			}
+		}
+		return largest;
+	}
+}
@@ -0,0 +1,93 @@
+/*
+   The PeasyCam Processing library, which provides an easy-peasy
+   camera for 3D sketching.
+  
+   Copyright 2008 Jonathan Feinberg
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package peasy;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import peasy.org.apache.commons.math.geometry.MutableRotation;
+import peasy.org.apache.commons.math.geometry.Rotation;
+import peasy.org.apache.commons.math.geometry.Vector3D;
+
+public class SlerpTest {
+
+	@Test
+	public void sineIsWithinItsBound() {
+		for (int i = 0; i <= 10000; i++) {
+			final double x = Math.PI / 2 * i / 10000;
+			assertEquals(Math.sin(x), Slerp.sin(x), 6e-8);
+		}
+	}
+
+	@Test
+	public void weightIsWithinItsBounds() {
+		for (int i = 0; i <= 1000; i++) {
+			final double theta = Math.PI / 2 * i / 1000;
+			final double cosTheta = Math.cos(theta);
+			for (int j = 0; j <= 20; j++) {
+				final double t = j / 20.0;
+				final double exact = theta == 0 ? t : Math.sin(t * theta) / Math.sin(theta);
+				assertEquals(exact, Slerp.weight(cosTheta, t), theta <= 0.9 ? 1e-7 : 2e-5);
+			}
+		}
+	}
+
+	@Test
+	public void interpolationMatchesExactSlerp() {
+		final Random random = new Random(16);
+		final MutableRotation out = new MutableRotation();
+		for (int n = 0; n < 1000; n++) {
+			final Rotation a = random(random), b = random(random);
+			final Slerp slerp = new Slerp(a, b);
+			for (int i = 0; i <= 10; i++) {
+				final double t = i / 10.0;
+				final Rotation exact = InterpolationUtil.slerp(a, b, t);
+				slerp.interpolate(t, out);
+				assertEquals(exact.getQ0(), out.getQ0(), 1e-7);
+				assertEquals(exact.getQ1(), out.getQ1(), 1e-7);
+				assertEquals(exact.getQ2(), out.getQ2(), 1e-7);
+				assertEquals(exact.getQ3(), out.getQ3(), 1e-7);
+			}
+		}
+	}
+
+	@Test
+	public void nearlyEqualRotationsBlendLinearly() {
+		final Rotation a = new Rotation(new Vector3D(1, 2, 3), 0.4);
+		final Rotation b = new Rotation(new Vector3D(1, 2, 3), 0.4 + 1e-4);
+		final MutableRotation out = new Slerp(a, b).interpolate(0.5, new MutableRotation());
+		final Rotation exact = InterpolationUtil.slerp(a, b, 0.5);
+		assertEquals(exact.getQ0(), out.getQ0(), 1e-9);
+		assertEquals(exact.getQ1(), out.getQ1(), 1e-9);
+		assertEquals(exact.getQ2(), out.getQ2(), 1e-9);
+		assertEquals(exact.getQ3(), out.getQ3(), 1e-9);
+		final double norm = out.getQ0() * out.getQ0() + out.getQ1() * out.getQ1()
+				+ out.getQ2() * out.getQ2() + out.getQ3() * out.getQ3();
+		assertTrue(Math.abs(norm - 1) < 1e-8);
+	}
+
+	static Rotation random(final Random random) {
+		return new Rotation(random.nextGaussian(), random.nextGaussian(), random
+				.nextGaussian(), random.nextGaussian(), true);
+	}
+}
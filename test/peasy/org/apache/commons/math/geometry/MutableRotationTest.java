@@ -0,0 +1,117 @@
+/*
+   The PeasyCam Processing library, which provides an easy-peasy
+   camera for 3D sketching.
+
+   Copyright 2008 Jonathan Feinberg
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+
+package peasy.org.apache.commons.math.geometry;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+public class MutableRotationTest {
+
+	private static void assertMatchesQuaternion(final MutableRotation r,
+			final Random random) {
+		final double q0 = r.getQ0(), q1 = r.getQ1(), q2 = r.getQ2(), q3 = r.getQ3();
+		final Vector3D u = new Vector3D(random.nextGaussian(), random.nextGaussian(),
+				random.nextGaussian());
+		final MutableVector3D out = new MutableVector3D();
+		r.applyTo(u, out);
+		RotationTest.assertVector(RotationTest.sandwich(q0, q1, q2, q3, false, u), out
+				.getX(), out.getY(), out.getZ(), 1e-12);
+		r.applyInverseTo(u.getX(), u.getY(), u.getZ(), out);
+		RotationTest.assertVector(RotationTest.sandwich(q0, q1, q2, q3, true, u), out
+				.getX(), out.getY(), out.getZ(), 1e-12);
+		final double[] m = r.getMatrix(new double[9]);
+		final double[] expected = new Rotation(q0, q1, q2, q3, false)
+				.getMatrix(new double[9]);
+		for (int i = 0; i < 9; i++) {
+			assertEquals(expected[i], m[i], 1e-12);
+		}
+	}
+
+	@Test
+	public void cachedMatrixFollowsEveryChange() {
+		final Random random = new Random(24);
+		final MutableRotation r = new MutableRotation();
+		assertMatchesQuaternion(r, random);
+		for (int n = 0; n < 100; n++) {
+			r.set(RotationTest.random(random));
+			assertMatchesQuaternion(r, random);
+			r.set(random.nextGaussian(), random.nextGaussian(), random.nextGaussian(),
+					random.nextGaussian(), true);
+			assertMatchesQuaternion(r, random);
+			r.compose(RotationTest.random(random));
+			assertMatchesQuaternion(r, random);
+			r.composeAxisAngle(new Vector3D(1, 2, 3), random.nextGaussian());
+			assertMatchesQuaternion(r, random);
+			r.composeAroundX(random.nextGaussian());
+			assertMatchesQuaternion(r, random);
+			r.composeAroundY(random.nextGaussian() * 1e-3);
+			assertMatchesQuaternion(r, random);
+			r.composeAroundZ(random.nextGaussian());
+			assertMatchesQuaternion(r, random);
+			r.normalize();
+			assertMatchesQuaternion(r, random);
+			r.set(new MutableRotation(RotationTest.random(random)));
+			assertMatchesQuaternion(r, random);
+		}
+		r.setIdentity();
+		assertMatchesQuaternion(r, random);
+	}
+
+	@Test
+	public void composeAroundAxesMatchesComposeAxisAngle() {
+		final Random random = new Random(25);
+		final Vector3D[] axes = { Vector3D.plusI, Vector3D.plusJ, Vector3D.plusK };
+		for (int n = 0; n < 1000; n++) {
+			final Rotation start = RotationTest.random(random);
+			// small angles take the series, large ones Math.sin and Math.cos
+			final double angle = n % 2 == 0 ? random.nextGaussian() * 0.01 : random
+					.nextGaussian() * 2;
+			for (int axis = 0; axis < 3; axis++) {
+				final MutableRotation expected = new MutableRotation(start)
+						.composeAxisAngle(axes[axis], angle);
+				final MutableRotation actual = new MutableRotation(start);
+				if (axis == 0) {
+					actual.composeAroundX(angle);
+				} else if (axis == 1) {
+					actual.composeAroundY(angle);
+				} else {
+					actual.composeAroundZ(angle);
+				}
+				assertEquals(expected.getQ0(), actual.getQ0(), 1e-15);
+				assertEquals(expected.getQ1(), actual.getQ1(), 1e-15);
+				assertEquals(expected.getQ2(), actual.getQ2(), 1e-15);
+				assertEquals(expected.getQ3(), actual.getQ3(), 1e-15);
+			}
+		}
+	}
+
+	@Test
+	public void smallAngleSeriesMatchesTheLibrary() {
+		final double limit = MutableRotation.SMALL_ANGLE;
+		for (int i = -1000; i <= 1000; i++) {
+			final double x = limit * i / 1000;
+			assertEquals(Math.sin(x), MutableRotation.sin(x), Math.ulp(Math.sin(x)) * 2);
+			assertEquals(Math.cos(x), MutableRotation.cos(x), Math.ulp(1.0));
+		}
+	}
+}
@@ -0,0 +1,312 @@
+/*
+   The PeasyCam Processing library, which provides an easy-peasy
+   camera for 3D sketching.
+
+   Copyright 2008 Jonathan Feinberg
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+
+package peasy.org.apache.commons.math.geometry;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.nio.FloatBuffer;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class RotationTest {
+
+	static final RotationOrder[] ORDERS = { RotationOrder.XYZ, RotationOrder.XZY,
+			RotationOrder.YXZ, RotationOrder.YZX, RotationOrder.ZXY, RotationOrder.ZYX,
+			RotationOrder.XYX, RotationOrder.XZX, RotationOrder.YXY, RotationOrder.YZY,
+			RotationOrder.ZXZ, RotationOrder.ZYZ };
+
+	static Rotation random(final Random random) {
+		return new Rotation(random.nextGaussian(), random.nextGaussian(), random
+				.nextGaussian(), random.nextGaussian(), true);
+	}
+
+	static void assertSameRotation(final Rotation expected, final double q0,
+			final double q1, final double q2, final double q3, final double delta) {
+		// q and -q are the same rotation
+		final double sign = expected.getQ0() * q0 + expected.getQ1() * q1
+				+ expected.getQ2() * q2 + expected.getQ3() * q3 < 0 ? -1 : 1;
+		assertEquals(expected.getQ0(), sign * q0, delta);
+		assertEquals(expected.getQ1(), sign * q1, delta);
+		assertEquals(expected.getQ2(), sign * q2, delta);
+		assertEquals(expected.getQ3(), sign * q3, delta);
+	}
+
+	private static boolean isCardan(final RotationOrder order) {
+		return order.getA1() != order.getA3();
+	}
+
+	@Test
+	public void anglesRebuildTheRotationInEveryOrder() {
+		final Random random = new Random(21);
+		final double[] angles = new double[3];
+		for (final RotationOrder order : ORDERS) {
+			for (int n = 0; n < 1000; n++) {
+				final Rotation r = random(random);
+				assertTrue(order + " " + n, r.getAngles(order, angles));
+				final Rotation rebuilt = new Rotation(order, angles[0], angles[1],
+						angles[2]);
+				assertSameRotation(r, rebuilt.getQ0(), rebuilt.getQ1(), rebuilt.getQ2(),
+						rebuilt.getQ3(), 1e-9);
+			}
+		}
+	}
+
+	@Test
+	public void bothFormsAgree() throws CardanEulerSingularityException {
+		final Random random = new Random(12);
+		final double[] angles = new double[3];
+		for (final RotationOrder order : ORDERS) {
+			final Rotation r = random(random);
+			assertTrue(r.getAngles(order, angles));
+			assertArrayEquals(angles, r.getAngles(order), 0);
+			assertTrue(new MutableRotation(r).getAngles(order, angles));
+			assertArrayEquals(angles, r.getAngles(order), 0);
+		}
+	}
+
+	@Test
+	public void singularRotationsReportFalseAndLeaveTheAnglesAlone() {
+		final double[] angles = { 7, 8, 9 };
+		for (final RotationOrder order : ORDERS) {
+			// the second angle at pi/2 is singular for Cardan orders, at 0 for
+			// Euler orders
+			final Rotation r = new Rotation(order, 0.3, isCardan(order) ? Math.PI / 2 : 0,
+					-0.4);
+			assertFalse(order.toString(), r.getAngles(order, angles));
+			assertArrayEquals(new double[] { 7, 8, 9 }, angles, 0);
+			try {
+				r.getAngles(order);
+				fail(order + " should be singular");
+			} catch (final CardanEulerSingularityException e) {
+				// expected
+			}
+		}
+	}
+
+	private static final int COUNT = 37;
+
+	@Test
+	public void bulkTransformsMatchOneByOne() {
+		final Random random = new Random(23);
+		final double[] x = new double[COUNT], y = new double[COUNT], z = new double[COUNT];
+		for (int i = 0; i < COUNT; i++) {
+			x[i] = random.nextGaussian() * 100;
+			y[i] = random.nextGaussian() * 100;
+			z[i] = random.nextGaussian() * 100;
+		}
+		for (int n = 0; n < 20; n++) {
+			final Rotation r = random(random);
+			final double[] ex = new double[COUNT], ey = new double[COUNT];
+			final double[] ez = new double[COUNT], ix = new double[COUNT];
+			final double[] iy = new double[COUNT], iz = new double[COUNT];
+			for (int i = 0; i < COUNT; i++) {
+				final Vector3D v = new Vector3D(x[i], y[i], z[i]);
+				final Vector3D a = r.applyTo(v), b = r.applyInverseTo(v);
+				ex[i] = a.getX();
+				ey[i] = a.getY();
+				ez[i] = a.getZ();
+				ix[i] = b.getX();
+				iy[i] = b.getY();
+				iz[i] = b.getZ();
+			}
+			assertInterleaved(r, false, x, y, z, ex, ey, ez);
+			assertInterleaved(r, true, x, y, z, ix, iy, iz);
+			assertSeparate(r, false, x, y, z, ex, ey, ez);
+			assertSeparate(r, true, x, y, z, ix, iy, iz);
+		}
+	}
+
+	@Test
+	public void shiftedOverlapInOneArrayIsRejected() {
+		final Rotation r = new Rotation(new Vector3D(1, 2, 3), 0.7);
+		final double[] d = new double[12];
+		final float[] f = new float[12];
+		// two vectors each: in place and disjoint ranges are fine
+		r.applyTo(d, 0, d, 0, 2);
+		r.applyTo(d, 0, d, 6, 2);
+		r.applyInverseTo(f, 6, f, 0, 2);
+		// overlapping by one coordinate, either way round
+		final int[][] offsets = { { 0, 3 }, { 3, 0 }, { 0, 5 }, { 5, 0 } };
+		for (final int[] o : offsets) {
+			for (int method = 0; method < 4; method++) {
+				try {
+					switch (method) {
+					case 0:
+						r.applyTo(d, o[0], d, o[1], 2);
+						break;
+					case 1:
+						r.applyInverseTo(d, o[0], d, o[1], 2);
+						break;
+					case 2:
+						r.applyTo(f, o[0], f, o[1], 2);
+						break;
+					default:
+						r.applyInverseTo(f, o[0], f, o[1], 2);
+					}
+					fail("method " + method + " accepted offsets " + o[0] + ", " + o[1]);
+				} catch (final IllegalArgumentException e) {
+					// expected
+				}
+			}
+		}
+	}
+
+	// x, y, z triples at an offset, out of place and in place
+	private static void assertInterleaved(final Rotation r, final boolean inverse,
+			final double[] x, final double[] y, final double[] z, final double[] ex,
+			final double[] ey, final double[] ez) {
+		final int offset = 2;
+		final double[] d = new double[offset + 3 * COUNT];
+		final float[] f = new float[offset + 3 * COUNT];
+		for (int i = 0; i < COUNT; i++) {
+			d[offset + 3 * i] = x[i];
+			d[offset + 3 * i + 1] = y[i];
+			d[offset + 3 * i + 2] = z[i];
+			f[offset + 3 * i] = (float)x[i];
+			f[offset + 3 * i + 1] = (float)y[i];
+			f[offset + 3 * i + 2] = (float)z[i];
+		}
+		final double[] dOut = new double[3 * COUNT];
+		final float[] fOut = new float[3 * COUNT];
+		final FloatBuffer buffer = FloatBuffer.wrap(f.clone());
+		buffer.position(offset);
+		if (inverse) {
+			r.applyInverseTo(d, offset, dOut, 0, COUNT);
+			r.applyInverseTo(f, offset, fOut, 0, COUNT);
+			r.applyInverseTo(d, offset, d, offset, COUNT);
+			r.applyInverseTo(f, offset, f, offset, COUNT);
+			r.applyInverseTo(buffer, buffer, COUNT);
+		} else {
+			r.applyTo(d, offset, dOut, 0, COUNT);
+			r.applyTo(f, offset, fOut, 0, COUNT);
+			r.applyTo(d, offset, d, offset, COUNT);
+			r.applyTo(f, offset, f, offset, COUNT);
+			r.applyTo(buffer, buffer, COUNT);
+		}
+		assertEquals(offset, buffer.position());
+		for (int i = 0; i < COUNT; i++) {
+			final double[] expected = { ex[i], ey[i], ez[i] };
+			for (int k = 0; k < 3; k++) {
+				assertEquals(expected[k], dOut[3 * i + k], 1e-9);
+				assertEquals(expected[k], d[offset + 3 * i + k], 1e-9);
+				assertEquals(expected[k], fOut[3 * i + k], 1e-4);
+				assertEquals(expected[k], f[offset + 3 * i + k], 1e-4);
+				assertEquals(expected[k], buffer.get(offset + 3 * i + k), 1e-4);
+			}
+		}
+	}
+
+	// separate arrays of x, y and z, out of place and in place
+	private static void assertSeparate(final Rotation r, final boolean inverse,
+			final double[] x, final double[] y, final double[] z, final double[] ex,
+			final double[] ey, final double[] ez) {
+		final double[] dx = x.clone(), dy = y.clone(), dz = z.clone();
+		final float[] fx = new float[COUNT], fy = new float[COUNT], fz = new float[COUNT];
+		for (int i = 0; i < COUNT; i++) {
+			fx[i] = (float)x[i];
+			fy[i] = (float)y[i];
+			fz[i] = (float)z[i];
+		}
+		final double[] dxOut = new double[COUNT], dyOut = new double[COUNT];
+		final double[] dzOut = new double[COUNT];
+		final float[] fxOut = new float[COUNT], fyOut = new float[COUNT];
+		final float[] fzOut = new float[COUNT];
+		if (inverse) {
+			r.applyInverseTo(dx, dy, dz, dxOut, dyOut, dzOut, COUNT);
+			r.applyInverseTo(fx, fy, fz, fxOut, fyOut, fzOut, COUNT);
+			r.applyInverseTo(dx, dy, dz, dx, dy, dz, COUNT);
+			r.applyInverseTo(fx, fy, fz, fx, fy, fz, COUNT);
+		} else {
+			r.applyTo(dx, dy, dz, dxOut, dyOut, dzOut, COUNT);
+			r.applyTo(fx, fy, fz, fxOut, fyOut, fzOut, COUNT);
+			r.applyTo(dx, dy, dz, dx, dy, dz, COUNT);
+			r.applyTo(fx, fy, fz, fx, fy, fz, COUNT);
+		}
+		assertArrayEquals(ex, dxOut, 1e-9);
+		assertArrayEquals(ey, dyOut, 1e-9);
+		assertArrayEquals(ez, dzOut, 1e-9);
+		assertArrayEquals(ex, dx, 1e-9);
+		assertArrayEquals(ey, dy, 1e-9);
+		assertArrayEquals(ez, dz, 1e-9);
+		for (int i = 0; i < COUNT; i++) {
+			assertEquals(ex[i], fxOut[i], 1e-4);
+			assertEquals(ey[i], fyOut[i], 1e-4);
+			assertEquals(ez[i], fzOut[i], 1e-4);
+			assertEquals(ex[i], fx[i], 1e-4);
+			assertEquals(ey[i], fy[i], 1e-4);
+			assertEquals(ez[i], fz[i], 1e-4);
+		}
+	}
+
+	/**
+	 * The quaternion formula Rotation applied vectors with before it cached a
+	 * matrix.
+	 */
+	static Vector3D sandwich(final double q0, final double q1, final double q2,
+			final double q3, final boolean inverse, final Vector3D u) {
+		final double x = u.getX(), y = u.getY(), z = u.getZ();
+		final double s = q1 * x + q2 * y + q3 * z;
+		final double m0 = inverse ? -q0 : q0;
+		return new Vector3D(2 * (m0 * (x * m0 - (q2 * z - q3 * y)) + s * q1) - x, 2
+				* (m0 * (y * m0 - (q3 * x - q1 * z)) + s * q2) - y, 2
+				* (m0 * (z * m0 - (q1 * y - q2 * x)) + s * q3) - z);
+	}
+
+	static void assertVector(final Vector3D expected, final double x, final double y,
+			final double z, final double delta) {
+		assertEquals(expected.getX(), x, delta);
+		assertEquals(expected.getY(), y, delta);
+		assertEquals(expected.getZ(), z, delta);
+	}
+
+	@Test
+	public void cachedMatrixMatchesTheQuaternion() {
+		final Random random = new Random(24);
+		final double[] flat = new double[9];
+		for (int n = 0; n < 200; n++) {
+			final Rotation r = random(random);
+			final double q0 = r.getQ0(), q1 = r.getQ1(), q2 = r.getQ2(), q3 = r.getQ3();
+			// the first call builds the matrix, later ones reuse it
+			for (int k = 0; k < 3; k++) {
+				final Vector3D u = new Vector3D(random.nextGaussian(), random
+						.nextGaussian(), random.nextGaussian());
+				final Vector3D image = r.applyTo(u), preimage = r.applyInverseTo(u);
+				assertVector(sandwich(q0, q1, q2, q3, false, u), image.getX(), image
+						.getY(), image.getZ(), 1e-12);
+				assertVector(sandwich(q0, q1, q2, q3, true, u), preimage.getX(), preimage
+						.getY(), preimage.getZ(), 1e-12);
+			}
+			// element [i][j] is coordinate i of the image of basis vector j
+			final double[][] m = r.getMatrix();
+			r.getMatrix(flat);
+			final Vector3D[] basis = { Vector3D.plusI, Vector3D.plusJ, Vector3D.plusK };
+			for (int j = 0; j < 3; j++) {
+				final Vector3D image = sandwich(q0, q1, q2, q3, false, basis[j]);
+				assertVector(image, m[0][j], m[1][j], m[2][j], 1e-12);
+				assertVector(image, flat[j], flat[3 + j], flat[6 + j], 1e-12);
+			}
+		}
+	}
+}